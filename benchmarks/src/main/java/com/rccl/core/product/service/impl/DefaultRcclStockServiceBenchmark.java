@@ -0,0 +1,290 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.constants.RcclcoreConstants;
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.product.dao.RcclInventoryReservationDao;
+import com.rccl.core.product.dao.RcclStockDao;
+import com.rccl.core.stock.data.BlockTypeStrategyParam;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.stock.service.RcclBlockTypeListBeanPostProcessor;
+import com.rccl.core.stock.service.RcclInventoryBlockService;
+import com.rccl.core.strategy.RcclCommerceAvailabilityCalculationStrategy;
+import com.rccl.core.strategy.RcclStockLevelStatusStrategy;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordercancel.OrderCancelEntry;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.internal.dao.GenericDao;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import de.hybris.platform.servicelayer.session.Session;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.store.BaseStoreModel;
+import de.hybris.platform.travelservices.model.user.TravellerModel;
+import de.hybris.platform.travelservices.model.warehouse.TransportOfferingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+
+/**
+ * benchmarks the hot paths of {@link DefaultRcclStockService} against in-memory fakes of its DAOs, strategies and
+ * session, for 1, 100 and 10k offerings. Throughput and latency percentiles are reported per benchmark, the allocation
+ * rate through the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultRcclStockServiceBenchmark{
+
+    @Param({ "1", "100", "10000" })
+    public int offerings;
+
+    private DefaultRcclStockService stockService;
+    private ProductModel product;
+    private BaseStoreModel baseStore;
+    private TravellerModel traveller;
+    private List<TransportOfferingModel> transportOfferings;
+    private List<StockLevelModel> stockLevels;
+    private List<InventoryBlockModel> inventoryBlocks;
+    private List<OrderCancelEntry> cancelEntries;
+
+    @Setup
+    public void setUp(){
+
+        product = new ProductModel();
+        product.setCode("SHOREX");
+        baseStore = new BaseStoreModel();
+        traveller = new TravellerModel();
+        transportOfferings = new ArrayList<>(offerings);
+        stockLevels = new ArrayList<>(offerings);
+        inventoryBlocks = new ArrayList<>(offerings);
+        cancelEntries = new ArrayList<>(offerings);
+        final OrderModel order = new OrderModel();
+        order.setCode("ORDER");
+        for (int i = 0; i < offerings; i++) {
+            final TransportOfferingModel transportOffering = new TransportOfferingModel();
+            transportOffering.setCode("TO" + i);
+            transportOfferings.add(transportOffering);
+
+            final PK stockLevelPk = PK.fromLong(2L * i + 1);
+            final StockLevelModel stockLevel = new StockLevelModel(){
+
+                @Override
+                public PK getPk(){
+
+                    return stockLevelPk;
+                }
+            };
+            stockLevel.setItemCode("SL" + i);
+            stockLevel.setId("SL" + i);
+            stockLevel.setActive(true);
+            stockLevel.setInStockStatus(InStockStatus.NOTSPECIFIED);
+            stockLevels.add(stockLevel);
+
+            final PK inventoryBlockPk = PK.fromLong(2L * i + 2);
+            final InventoryBlockModel inventoryBlock = new InventoryBlockModel(){
+
+                @Override
+                public PK getPk(){
+
+                    return inventoryBlockPk;
+                }
+            };
+            inventoryBlock.setCode("IB" + i);
+            inventoryBlock.setStocklevel(stockLevel);
+            inventoryBlock.setReserved(Integer.MAX_VALUE / 2);
+            inventoryBlocks.add(inventoryBlock);
+
+            final OrderEntryModel orderEntry = new OrderEntryModel();
+            orderEntry.setEntryNumber(i);
+            orderEntry.setOrder(order);
+            orderEntry.setInventoryBlock(inventoryBlock.getCode());
+            cancelEntries.add(new OrderCancelEntry(orderEntry, 1));
+        }
+        stockService = createStockService();
+    }
+
+    @Benchmark
+    public List<InventoryDto> calculateInventories(){
+
+        return stockService.calculateInventories(createParam(), product, transportOfferings);
+    }
+
+    @Benchmark
+    public InventoryDto fetchInventory(){
+
+        return stockService.fetchInventory(traveller, stockLevels.get(offerings / 2), baseStore);
+    }
+
+    /**
+     * the uncached path behind fetchInventory which ends in getInventoryDto
+     */
+    @Benchmark
+    public InventoryDto getInventoryDto(){
+
+        return stockService.calculateInventory(createParam(), stockLevels.get(offerings / 2));
+    }
+
+    @Benchmark
+    public void releaseInventory(){
+
+        stockService.releaseInventory(cancelEntries);
+    }
+
+    public static void main(final String[] args) throws RunnerException{
+
+        new Runner(new OptionsBuilder().include(DefaultRcclStockServiceBenchmark.class.getSimpleName())
+                        .addProfiler(GCProfiler.class).build()).run();
+    }
+
+    private BlockTypeStrategyParam createParam(){
+
+        final BlockTypeStrategyParam param = new BlockTypeStrategyParam();
+        param.putValue(BlockTypeStrategyParam.BASESTORE, baseStore);
+        param.putValue(BlockTypeStrategyParam.TRAVELLER, traveller);
+        param.putValue(RcclcoreConstants.INCLUDE_PAST_OFFERINGS, Boolean.TRUE);
+        return param;
+    }
+
+    private DefaultRcclStockService createStockService(){
+
+        final Map<String, InventoryBlockModel> inventoryBlocksByCode = inventoryBlocks.stream()
+                        .collect(Collectors.toMap(InventoryBlockModel::getCode, inventoryBlock -> inventoryBlock));
+        final Map<PK, InventoryBlockModel> inventoryBlocksByStockLevel = inventoryBlocks.stream()
+                        .collect(Collectors.toMap(inventoryBlock -> inventoryBlock.getStocklevel().getPk(),
+                                inventoryBlock -> inventoryBlock));
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setRcclStockDao(fake(RcclStockDao.class, (name, args) -> {
+            if ("findStockLevelsForProduct".equals(name) || "getStocklevels".equals(name)) {
+                return stockLevels;
+            }
+            return null;
+        }));
+        service.setStockLevelGenericDao(fake(GenericDao.class, (name, args) -> stockLevels.subList(0, 1)));
+        service.setFlexibleSearchService(fake(FlexibleSearchService.class, (name, args) -> {
+            final FlexibleSearchQuery query = (FlexibleSearchQuery) args[0];
+            final Collection<?> values = (Collection<?>) query.getQueryParameters().get("values");
+            final List<Object> result = new ArrayList<>(values.size());
+            for (final Object value : values) {
+                final InventoryBlockModel inventoryBlock = value instanceof StockLevelModel ?
+                                inventoryBlocksByStockLevel.get(((StockLevelModel) value).getPk()) :
+                                inventoryBlocksByCode.get(value);
+                if (inventoryBlock != null) {
+                    result.add(inventoryBlock);
+                }
+            }
+            return new SearchResultImpl<>(result, result.size(), -1, 0);
+        }));
+        service.setBlockTypeListBeanPostProcessor(fake(RcclBlockTypeListBeanPostProcessor.class, (name, args) -> {
+            final Collection<?> candidates = ((BlockTypeStrategyParam) args[0]).getValue(BlockTypeStrategyParam.INVENTROY_BLOCKS);
+            return candidates.isEmpty() ? null : candidates.iterator().next();
+        }));
+        service.setStatusStrategy(fake(RcclStockLevelStatusStrategy.class, (name, args) -> StockLevelStatus.INSTOCK));
+        service.setAvailableStrategy(fake(RcclCommerceAvailabilityCalculationStrategy.class, (name, args) -> Long.valueOf(10L)));
+        service.setTimeService(fake(TimeService.class, (name, args) -> new Date()));
+        service.setInventoryReservationDao(fake(RcclInventoryReservationDao.class, (name, args) -> Boolean.TRUE));
+        service.setRcclInventoryBlockService(fake(RcclInventoryBlockService.class, (name, args) -> inventoryBlocksByCode.get(args[0])));
+        service.setModelService(fake(ModelService.class, (name, args) -> null));
+
+        final Map<String, Object> sessionAttributes = new ConcurrentHashMap<>();
+        final Session session = fake(Session.class, (name, args) -> {
+            if ("getAttribute".equals(name)) {
+                return sessionAttributes.get(args[0]);
+            } else if ("setAttribute".equals(name)) {
+                sessionAttributes.put((String) args[0], args[1]);
+            }
+            return null;
+        });
+        service.setSessionService(fake(SessionService.class, (name, args) -> {
+            if ("getCurrentSession".equals(name)) {
+                return session;
+            } else if (name.startsWith("executeInLocalView")) {
+                return ((SessionExecutionBody) args[args.length - 1]).execute();
+            }
+            return null;
+        }));
+        return service;
+    }
+
+    /**
+     * creates a fake of the interface which answers every call through answers, primitive results default to zero.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(final Class<T> type, final BiFunction<String, Object[], Object> answers){
+
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            final Object answer = answers.apply(method.getName(), args == null ? new Object[0] : args);
+            return answer == null ? defaultValue(method.getReturnType()) : answer;
+        });
+    }
+
+    private static Object objectMethod(final Object proxy, final Method method, final Object[] args){
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getInterfaces()[0].getSimpleName() + "Fake";
+        }
+    }
+
+    private static Object defaultValue(final Class<?> returnType){
+
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        final Map<Class<?>, Object> defaults = new HashMap<>();
+        defaults.put(boolean.class, Boolean.FALSE);
+        defaults.put(int.class, 0);
+        defaults.put(long.class, 0L);
+        defaults.put(double.class, 0d);
+        defaults.put(float.class, 0f);
+        defaults.put(short.class, (short) 0);
+        defaults.put(byte.class, (byte) 0);
+        defaults.put(char.class, '\0');
+        return defaults.get(returnType);
+    }
+}
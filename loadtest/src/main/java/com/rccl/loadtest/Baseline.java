@@ -0,0 +1,73 @@
+package com.rccl.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+
+/**
+ * stored latencies of a reference run, in the properties format of {@link LatencyReport#toProperties()}. A report
+ * regresses if a percentile of an operation exceeds its baseline by more than the relative tolerance and the absolute
+ * slack, the slack keeps sub-millisecond jitter from failing the build. An error rate above the baseline by more than
+ * the slack regresses as well.
+ */
+public class Baseline{
+
+    private final Properties values;
+
+    private Baseline(final Properties values){
+
+        this.values = values;
+    }
+
+    /**
+     * @param file the baseline file
+     * @return the {@link Baseline}, {@code null} if the file does not exist
+     * @throws IOException if the file can't be read
+     */
+    public static Baseline read(final Path file) throws IOException{
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Properties values = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            values.load(in);
+        }
+        return new Baseline(values);
+    }
+
+    /**
+     * @param report      the {@link LatencyReport} to check
+     * @param tolerance   the allowed relative increase of a percentile, e.g. 0.2 for 20%
+     * @param slackMillis the allowed absolute increase of a percentile in milliseconds
+     * @param errorSlack  the allowed absolute increase of an error rate
+     * @return the regressions, empty if there are none
+     */
+    public List<String> findRegressions(final LatencyReport report, final double tolerance, final double slackMillis,
+                    final double errorSlack){
+
+        final List<String> regressions = new ArrayList<>();
+        report.getOperations().forEach((name, stats) -> {
+            for (int i = 0; i < LatencyReport.PERCENTILES.length; i++) {
+                final String key = name + '.' + LatencyReport.PERCENTILE_KEYS[i];
+                final String baseline = values.getProperty(key);
+                final double actual = stats.getMillisAtPercentile(LatencyReport.PERCENTILES[i]);
+                if (baseline != null && actual > Double.parseDouble(baseline) * (1d + tolerance) + slackMillis) {
+                    regressions.add(String.format(Locale.ROOT, "%s is %.3f ms, baseline %s ms", key, actual, baseline));
+                }
+            }
+            final String key = name + '.' + LatencyReport.ERROR_RATE_KEY;
+            final double baseline = Double.parseDouble(values.getProperty(key, "0"));
+            if (stats.getErrorRate() > baseline + errorSlack) {
+                regressions.add(String.format(Locale.ROOT, "%s is %.4f, baseline %.4f", key, stats.getErrorRate(), baseline));
+            }
+        });
+        return regressions;
+    }
+}
@@ -0,0 +1,80 @@
+package com.rccl.loadtest;
+
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.web.availability.AvailabilityServlet;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.loader.WebappLoader;
+import org.apache.catalina.startup.Tomcat;
+
+import java.io.File;
+
+
+/**
+ * the CounterWebApp web application in an embedded Tomcat on a free port, deployed from its web application
+ * directory with the web.xml of the WAR. The {@link StandInStockBackend} is registered as {@link AvailabilityProvider}
+ * before the servlets start and serves {@code /loadtest/release}. The standalone WAR does not map the
+ * {@link AvailabilityServlet}, it is mapped here as the hybris web application maps it, at {@code /availability} and in
+ * blocking mode at {@code /availability/blocking}. The classes of the web application come from the
+ * classpath of the load test, so the web application and the load test share the provider interface.
+ */
+public class EmbeddedCounterWebApp{
+
+    /**
+     * the context path of the WAR
+     */
+    public static final String CONTEXT_PATH = "/CounterWebApp";
+
+    private final Tomcat tomcat = new Tomcat();
+
+    /**
+     * @param webappDirectory the web application directory, {@code src/main/webapp} of the WAR module
+     * @param baseDirectory   the working directory of Tomcat
+     * @param backend         the {@link StandInStockBackend}
+     */
+    public EmbeddedCounterWebApp(final File webappDirectory, final File baseDirectory, final StandInStockBackend backend){
+
+        tomcat.setBaseDir(baseDirectory.getAbsolutePath());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        final Context context = tomcat.addWebapp(CONTEXT_PATH, webappDirectory.getAbsolutePath());
+        final WebappLoader loader = new WebappLoader();
+        loader.setDelegate(true);
+        context.setLoader(loader);
+        context.setParentClassLoader(EmbeddedCounterWebApp.class.getClassLoader());
+        context.addServletContainerInitializer(
+                        (classes, servletContext) -> servletContext.setAttribute(AvailabilityProvider.CONTEXT_ATTRIBUTE, backend), null);
+        final Wrapper availability = Tomcat.addServlet(context, "availability", AvailabilityServlet.class.getName());
+        availability.addInitParameter("coalesceWindowMillis", "5");
+        availability.addInitParameter("workerThreads", "16");
+        availability.setAsyncSupported(true);
+        availability.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/availability", "availability");
+        final Wrapper availabilityBlocking = Tomcat.addServlet(context, "availabilityBlocking", AvailabilityServlet.class.getName());
+        availabilityBlocking.addInitParameter("mode", "blocking");
+        availabilityBlocking.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/availability/blocking", "availabilityBlocking");
+        Tomcat.addServlet(context, "loadtestRelease", new ReleaseServlet(backend));
+        context.addServletMappingDecoded("/loadtest/release", "loadtestRelease");
+    }
+
+    public void start() throws LifecycleException{
+
+        tomcat.start();
+    }
+
+    public void stop() throws LifecycleException{
+
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    /**
+     * @return the base URL of the web application, valid once started
+     */
+    public String getBaseUrl(){
+
+        return "http://localhost:" + tomcat.getConnector().getLocalPort() + CONTEXT_PATH;
+    }
+}
@@ -0,0 +1,123 @@
+package com.rccl.loadtest;
+
+import com.rccl.core.stock.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+
+/**
+ * end-to-end latency percentiles per operation of one load test run. The report is stored as properties
+ * {@code <operation>.p50}, {@code .p99} and {@code .p999} in milliseconds plus {@code <operation>.errorRate}, the
+ * format of the {@link Baseline}.
+ */
+public class LatencyReport{
+
+    /**
+     * the reported percentiles and their property suffix
+     */
+    static final String[] PERCENTILE_KEYS = { "p50", "p99", "p999" };
+    static final double[] PERCENTILES = { 50d, 99d, 99.9d };
+    static final String ERROR_RATE_KEY = "errorRate";
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final double ratePerSecond;
+    private final long durationSeconds;
+    private final Map<String, OperationStats> operations;
+
+    public LatencyReport(final double ratePerSecond, final long durationSeconds, final Map<String, OperationStats> operations){
+
+        this.ratePerSecond = ratePerSecond;
+        this.durationSeconds = durationSeconds;
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * @return the report as properties in milliseconds
+     */
+    public Properties toProperties(){
+
+        final Properties properties = new Properties();
+        operations.forEach((name, stats) -> {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                properties.setProperty(name + '.' + PERCENTILE_KEYS[i], format(stats.getMillisAtPercentile(PERCENTILES[i])));
+            }
+            properties.setProperty(name + '.' + ERROR_RATE_KEY, format(stats.getErrorRate()));
+        });
+        return properties;
+    }
+
+    public void print(final PrintStream out){
+
+        out.println(String.format(Locale.ROOT, "%.0f requests/s for %ss", ratePerSecond, durationSeconds));
+        out.println(String.format(Locale.ROOT, "%-12s %10s %8s %10s %10s %10s", "operation", "requests", "errors", "p50 ms",
+                        "p99 ms", "p999 ms"));
+        operations.forEach((name, stats) -> out.println(String.format(Locale.ROOT, "%-12s %10d %8d %10.3f %10.3f %10.3f", name,
+                        stats.getCount(), stats.getErrors(), stats.getMillisAtPercentile(PERCENTILES[0]),
+                        stats.getMillisAtPercentile(PERCENTILES[1]), stats.getMillisAtPercentile(PERCENTILES[2]))));
+    }
+
+    public void write(final Path file) throws IOException{
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            toProperties().store(out, String.format(Locale.ROOT, "%.0f requests/s for %ss, latencies in ms", ratePerSecond,
+                            durationSeconds));
+        }
+    }
+
+    public Map<String, OperationStats> getOperations(){
+
+        return operations;
+    }
+
+    private static String format(final double value){
+
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * latencies and errors of one operation
+     */
+    public static final class OperationStats{
+
+        private final LatencyHistogram latencies;
+        private final long errors;
+
+        public OperationStats(final LatencyHistogram latencies, final long errors){
+
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        public long getCount(){
+
+            return latencies.getCount();
+        }
+
+        public long getErrors(){
+
+            return errors;
+        }
+
+        public double getErrorRate(){
+
+            return getCount() == 0 ? 0d : (double) errors / getCount();
+        }
+
+        public double getMillisAtPercentile(final double percentile){
+
+            return latencies.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+    }
+}
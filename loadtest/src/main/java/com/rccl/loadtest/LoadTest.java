@@ -0,0 +1,119 @@
+package com.rccl.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * end-to-end load test of the availability endpoint and of reservation releases. Boots the {@link EmbeddedCounterWebApp}
+ * with the {@link StandInStockBackend}, drives mixed traffic at a fixed arrival rate with the
+ * {@link OpenLoadGenerator}, prints the p50, p99 and p999 latencies and compares them to the stored {@link Baseline}.
+ * A regression fails the run, so {@code mvn verify} of this module fails the build. The baseline is recorded on the CI
+ * host with {@code loadtest.updateBaseline} and committed with the module, a missing baseline fails the run as well.
+ * <p>
+ * Configured by system properties:
+ * <ul>
+ * <li>{@code loadtest.rate} requests per second, 200 by default</li>
+ * <li>{@code loadtest.writeShare} share of release requests, 0.1 by default</li>
+ * <li>{@code loadtest.warmupSeconds} and {@code loadtest.durationSeconds}, 10 and 60 by default</li>
+ * <li>{@code loadtest.maxConnections} requests in flight at most, 256 by default</li>
+ * <li>{@code loadtest.daoLatencyMillis} latency of every DAO call, 2 by default</li>
+ * <li>{@code loadtest.offerings} offerings per availability request, 100 by default</li>
+ * <li>{@code loadtest.webapp} the web application directory, {@code ../src/main/webapp} by default</li>
+ * <li>{@code loadtest.baseline} the baseline file, {@code baseline.properties} by default</li>
+ * <li>{@code loadtest.tolerance} allowed relative latency increase, 0.2 by default</li>
+ * <li>{@code loadtest.slackMillis} allowed absolute latency increase, 1 by default</li>
+ * <li>{@code loadtest.updateBaseline} stores the report as new baseline instead of comparing, false by default</li>
+ * </ul>
+ */
+public final class LoadTest{
+
+    private static final String READ = "read";
+    private static final String WRITE = "write";
+    private static final int BUFFER_SIZE = 8192;
+    private static final double ERROR_SLACK = 0.001d;
+
+    private LoadTest(){
+
+    }
+
+    public static void main(final String[] args) throws Exception{
+
+        final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        final double writeShare = Double.parseDouble(System.getProperty("loadtest.writeShare", "0.1"));
+        final long warmupSeconds = Long.getLong("loadtest.warmupSeconds", 10L);
+        final long durationSeconds = Long.getLong("loadtest.durationSeconds", 60L);
+        final int maxConnections = Integer.getInteger("loadtest.maxConnections", 256);
+        final long daoLatencyMillis = Long.getLong("loadtest.daoLatencyMillis", 2L);
+        final int offerings = Integer.getInteger("loadtest.offerings", 100);
+        final File webapp = new File(System.getProperty("loadtest.webapp", "../src/main/webapp"));
+        final Path baselineFile = Paths.get(System.getProperty("loadtest.baseline", "baseline.properties"));
+        final double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.2"));
+        final double slackMillis = Double.parseDouble(System.getProperty("loadtest.slackMillis", "1"));
+        final boolean updateBaseline = Boolean.getBoolean("loadtest.updateBaseline");
+
+        System.setProperty("http.maxConnections", String.valueOf(maxConnections));
+        final StandInStockBackend backend = new StandInStockBackend(offerings, daoLatencyMillis);
+        final EmbeddedCounterWebApp webApp = new EmbeddedCounterWebApp(webapp, new File("target/tomcat"), backend);
+        webApp.start();
+        final LatencyReport report;
+        try {
+            final String availabilityUrl = webApp.getBaseUrl() + "/availability?productCode=SHOREX&sailingCode=SAILING";
+            final String releaseUrl = webApp.getBaseUrl() + "/loadtest/release?inventoryBlock=";
+            final List<String> inventoryBlocks = backend.getInventoryBlockCodes();
+            report = new OpenLoadGenerator(rate, maxConnections, 42L)
+                            .addOperation(READ, 1d - writeShare, () -> call("GET", availabilityUrl))
+                            .addOperation(WRITE, writeShare, () -> call("POST",
+                                            releaseUrl + inventoryBlocks.get(ThreadLocalRandom.current().nextInt(inventoryBlocks.size()))))
+                            .run(warmupSeconds, durationSeconds);
+        } finally {
+            webApp.stop();
+        }
+        report.print(System.out);
+        report.write(Paths.get("target/loadtest-report.properties"));
+
+        if (updateBaseline) {
+            report.write(baselineFile);
+            System.out.println("Stored the report as baseline " + baselineFile.toAbsolutePath());
+            return;
+        }
+        final Baseline baseline = Baseline.read(baselineFile);
+        if (baseline == null) {
+            throw new IllegalStateException("No baseline " + baselineFile.toAbsolutePath()
+                            + " to compare with, record one with -Dloadtest.updateBaseline=true");
+        }
+        final List<String> regressions = baseline.findRegressions(report, tolerance, slackMillis, ERROR_SLACK);
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Latency regressed beyond the baseline " + baselineFile + ": " + regressions);
+        }
+        System.out.println("No regression against the baseline " + baselineFile);
+    }
+
+    /**
+     * sends the request and reads the whole response, so the connection is reused
+     */
+    private static void call(final String method, final String url) throws IOException{
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        final int status = connection.getResponseCode();
+        try (InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                while (in.read(buffer) >= 0) {
+                    // drain
+                }
+            }
+        }
+        if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new IOException(method + " " + url + " answered " + status);
+        }
+    }
+}
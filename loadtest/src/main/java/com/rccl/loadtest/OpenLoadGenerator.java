@@ -0,0 +1,175 @@
+package com.rccl.loadtest;
+
+import com.rccl.core.stock.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * open-model load generator: requests arrive at a fixed rate regardless of how fast earlier requests complete, as
+ * users of a booking site do. The latency of every request is measured from its intended start time on the arrival
+ * schedule, not from when a client thread got around to send it, so time a request spends waiting for a free
+ * connection or thread while the server is slow is part of its latency and a stalled server is never hidden by fewer
+ * requests being sent (no coordinated omission).
+ * <p>
+ * Each arrival runs one of the added operations, chosen randomly by their shares. Requests of the warm-up period are
+ * sent but not measured.
+ */
+public class OpenLoadGenerator{
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+    private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DRAIN_TIMEOUT_SECONDS = 60L;
+
+    private final double ratePerSecond;
+    private final int maxConcurrency;
+    private final long seed;
+    private final List<Operation> operations = new ArrayList<>();
+    private double totalShare;
+
+    /**
+     * @param ratePerSecond  the number of requests started per second
+     * @param maxConcurrency the number of requests in flight at most, later arrivals queue and their waiting counts
+     * @param seed           the seed of the operation mix
+     */
+    public OpenLoadGenerator(final double ratePerSecond, final int maxConcurrency, final long seed){
+
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be greater than zero");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.maxConcurrency = maxConcurrency;
+        this.seed = seed;
+    }
+
+    /**
+     * @param name    the name of the operation in the report
+     * @param share   the share of the arrivals running the operation
+     * @param request the request of the operation
+     * @return this generator
+     */
+    public OpenLoadGenerator addOperation(final String name, final double share, final Request request){
+
+        if (share > 0) {
+            operations.add(new Operation(name, share, request));
+            totalShare += share;
+        }
+        return this;
+    }
+
+    /**
+     * sends requests at the arrival rate for the warm-up and the measured period and waits for the last responses
+     *
+     * @param warmupSeconds   the length of the unmeasured warm-up period
+     * @param durationSeconds the length of the measured period
+     * @return the {@link LatencyReport} of the measured period
+     */
+    public LatencyReport run(final long warmupSeconds, final long durationSeconds){
+
+        if (operations.isEmpty()) {
+            throw new IllegalStateException("No operation added");
+        }
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService clients = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            final Thread thread = new Thread(runnable, "loadtest-client-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Random random = new Random(seed);
+        final double periodNanos = NANOS_PER_SECOND / ratePerSecond;
+        final long start = System.nanoTime() + START_DELAY_NANOS;
+        final long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (long arrival = 0; ; arrival++) {
+            final long intendedStart = start + (long) (arrival * periodNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            parkUntil(intendedStart);
+            final Operation operation = pick(random);
+            final boolean measured = intendedStart >= measureFrom;
+            clients.execute(() -> {
+                boolean failed = false;
+                try {
+                    operation.request.execute();
+                } catch (final Exception e) {
+                    failed = true;
+                }
+                if (measured) {
+                    operation.latencies.record(System.nanoTime() - intendedStart);
+                    if (failed) {
+                        operation.errors.increment();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        try {
+            if (!clients.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                clients.shutdownNow();
+                throw new IllegalStateException("Requests still in flight " + DRAIN_TIMEOUT_SECONDS + "s after the last arrival");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the last responses", e);
+        }
+        final Map<String, LatencyReport.OperationStats> stats = new LinkedHashMap<>();
+        for (final Operation operation : operations) {
+            stats.put(operation.name, new LatencyReport.OperationStats(operation.latencies, operation.errors.sum()));
+        }
+        return new LatencyReport(ratePerSecond, durationSeconds, stats);
+    }
+
+    private Operation pick(final Random random){
+
+        double point = random.nextDouble() * totalShare;
+        for (final Operation operation : operations) {
+            point -= operation.share;
+            if (point < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static void parkUntil(final long deadline){
+
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * one request of the load test, any exception counts as error
+     */
+    public interface Request{
+
+        void execute() throws Exception;
+    }
+
+    private static final class Operation{
+
+        private final String name;
+        private final double share;
+        private final Request request;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private Operation(final String name, final double share, final Request request){
+
+            this.name = name;
+            this.share = share;
+            this.request = request;
+        }
+    }
+}
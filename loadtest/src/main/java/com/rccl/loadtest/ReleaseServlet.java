@@ -0,0 +1,42 @@
+package com.rccl.loadtest;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+
+/**
+ * write endpoint of the load test, {@code POST /loadtest/release?inventoryBlock=...} releases one unit of the inventory
+ * block through the {@link StandInStockBackend}. The web application has no release endpoint of its own, releases
+ * come from the order cancellation of the platform.
+ */
+public class ReleaseServlet extends HttpServlet{
+
+    private static final long serialVersionUID = 1L;
+    private static final String INVENTORY_BLOCK = "inventoryBlock";
+
+    private final transient StandInStockBackend backend;
+
+    public ReleaseServlet(final StandInStockBackend backend){
+
+        this.backend = backend;
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws IOException{
+
+        final String inventoryBlock = request.getParameter(INVENTORY_BLOCK);
+        if (inventoryBlock == null || inventoryBlock.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, INVENTORY_BLOCK + " is required");
+            return;
+        }
+        try {
+            backend.release(inventoryBlock);
+        } catch (final IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+}
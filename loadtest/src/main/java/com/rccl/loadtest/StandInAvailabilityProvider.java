@@ -0,0 +1,77 @@
+package com.rccl.loadtest;
+
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.core.stock.availability.OfferingAvailability;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * local stand-in for the stock service, for the availability servlet configured with the init-param
+ * {@code providerClass=com.rccl.loadtest.StandInAvailabilityProvider}. It answers with generated offerings after a fixed
+ * latency, which stands for the database round trips of the real service, so the blocking and the asynchronous
+ * endpoint can be compared without a hybris backend. It is not part of the WAR.
+ */
+public class StandInAvailabilityProvider implements AvailabilityProvider{
+
+    /**
+     * system property with the simulated latency in milliseconds
+     */
+    public static final String LATENCY_PROPERTY = "rccl.availability.standin.latencyMillis";
+
+    /**
+     * system property with the number of generated offerings per product and sailing
+     */
+    public static final String OFFERINGS_PROPERTY = "rccl.availability.standin.offerings";
+
+    private static final long DEFAULT_LATENCY_MILLIS = 20L;
+    private static final int DEFAULT_OFFERINGS = 10;
+
+    private final long latencyMillis;
+    private final int offerings;
+
+    public StandInAvailabilityProvider(){
+
+        this(Long.getLong(LATENCY_PROPERTY, DEFAULT_LATENCY_MILLIS), Integer.getInteger(OFFERINGS_PROPERTY, DEFAULT_OFFERINGS));
+    }
+
+    /**
+     * @param latencyMillis the simulated latency of one call
+     * @param offerings     the number of generated offerings per product and sailing
+     */
+    public StandInAvailabilityProvider(final long latencyMillis, final int offerings){
+
+        this.latencyMillis = latencyMillis;
+        this.offerings = offerings;
+    }
+
+    @Override
+    public List<OfferingAvailability> getAvailability(final String productCode, final String sailingCode){
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading availability", e);
+            }
+        }
+        final List<OfferingAvailability> availability = new ArrayList<>(offerings);
+        for (int i = 0; i < offerings; i++) {
+            final long availableQty = (productCode.hashCode() + sailingCode.hashCode() + i) & 0x3F;
+            availability.add(new OfferingAvailability(productCode + '-' + sailingCode + '-' + i, availableQty > 0 ? "inStock" :
+                            "outOfStock", availableQty, false, false, availableQty > 0));
+        }
+        return availability;
+    }
+
+    /**
+     * the generated offerings never change, so the version only depends on what is generated
+     */
+    @Override
+    public String getVersion(final String productCode, final String sailingCode){
+
+        return Integer.toHexString(31 * (31 * productCode.hashCode() + sailingCode.hashCode()) + offerings);
+    }
+}
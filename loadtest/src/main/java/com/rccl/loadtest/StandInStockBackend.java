@@ -0,0 +1,293 @@
+package com.rccl.loadtest;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.product.dao.RcclInventoryReservationDao;
+import com.rccl.core.product.dao.RcclStockDao;
+import com.rccl.core.product.service.impl.DefaultRcclStockService;
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.core.stock.availability.OfferingAvailability;
+import com.rccl.core.stock.data.BlockTypeStrategyParam;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.stock.service.RcclBlockTypeListBeanPostProcessor;
+import com.rccl.core.stock.service.RcclInventoryBlockService;
+import com.rccl.core.strategy.RcclCommerceAvailabilityCalculationStrategy;
+import com.rccl.core.strategy.RcclStockLevelStatusStrategy;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordercancel.OrderCancelEntry;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.internal.dao.GenericDao;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import de.hybris.platform.servicelayer.session.Session;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.store.BaseStoreModel;
+import de.hybris.platform.travelservices.model.warehouse.TransportOfferingModel;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+
+/**
+ * {@link DefaultRcclStockService} wired to in-memory stand-ins of its DAOs, strategies and session, exposed to the
+ * web application as {@link AvailabilityProvider} for reads and through {@link #release(String)} for writes. Every
+ * call of {@link RcclStockDao}, {@link GenericDao}, {@link FlexibleSearchService} and
+ * {@link RcclInventoryReservationDao} waits daoLatencyMillis, which stands for the database round trip.
+ */
+public class StandInStockBackend implements AvailabilityProvider{
+
+    private final long daoLatencyMillis;
+    private final DefaultRcclStockService stockService;
+    private final ProductModel product;
+    private final InventoryCriteria criteria;
+    private final List<TransportOfferingModel> transportOfferings;
+    private final List<StockLevelModel> stockLevels;
+    private final List<InventoryBlockModel> inventoryBlocks;
+    private final Map<String, OrderEntryModel> orderEntriesByInventoryBlock = new HashMap<>();
+
+    /**
+     * @param offerings        the number of offerings of the product
+     * @param daoLatencyMillis the latency of every DAO call
+     */
+    public StandInStockBackend(final int offerings, final long daoLatencyMillis){
+
+        this.daoLatencyMillis = daoLatencyMillis;
+        product = new ProductModel();
+        product.setCode("SHOREX");
+        criteria = InventoryCriteria.of(new BaseStoreModel(), null, true);
+        transportOfferings = new ArrayList<>(offerings);
+        stockLevels = new ArrayList<>(offerings);
+        inventoryBlocks = new ArrayList<>(offerings);
+        final OrderModel order = new OrderModel();
+        order.setCode("ORDER");
+        for (int i = 0; i < offerings; i++) {
+            final TransportOfferingModel transportOffering = new TransportOfferingModel();
+            transportOffering.setCode("TO" + i);
+            transportOfferings.add(transportOffering);
+
+            final PK stockLevelPk = PK.fromLong(2L * i + 1);
+            final StockLevelModel stockLevel = new StockLevelModel(){
+
+                @Override
+                public PK getPk(){
+
+                    return stockLevelPk;
+                }
+            };
+            stockLevel.setItemCode("SL" + i);
+            stockLevel.setId("SL" + i);
+            stockLevel.setProductCode(product.getCode());
+            stockLevel.setActive(true);
+            stockLevel.setInStockStatus(InStockStatus.NOTSPECIFIED);
+            stockLevels.add(stockLevel);
+
+            final PK inventoryBlockPk = PK.fromLong(2L * i + 2);
+            final InventoryBlockModel inventoryBlock = new InventoryBlockModel(){
+
+                @Override
+                public PK getPk(){
+
+                    return inventoryBlockPk;
+                }
+            };
+            inventoryBlock.setCode("IB" + i);
+            inventoryBlock.setStocklevel(stockLevel);
+            inventoryBlock.setReserved(Integer.MAX_VALUE / 2);
+            inventoryBlocks.add(inventoryBlock);
+
+            final OrderEntryModel orderEntry = new OrderEntryModel();
+            orderEntry.setEntryNumber(i);
+            orderEntry.setOrder(order);
+            orderEntry.setInventoryBlock(inventoryBlock.getCode());
+            orderEntriesByInventoryBlock.put(inventoryBlock.getCode(), orderEntry);
+        }
+        stockService = createStockService();
+    }
+
+    /**
+     * the availability of the offerings of the product, through
+     * {@link DefaultRcclStockService#calculateInventories(InventoryCriteria, ProductModel, List)}. There is one product
+     * with one sailing, the codes of the request are not evaluated.
+     */
+    @Override
+    public List<OfferingAvailability> getAvailability(final String productCode, final String sailingCode){
+
+        return stockService.calculateInventories(criteria, product, transportOfferings).stream().map(this::toOfferingAvailability)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * releases one unit of the inventory block through {@link DefaultRcclStockService#releaseInventory(List)}
+     *
+     * @param inventoryBlockCode the code of the inventory block
+     * @throws IllegalArgumentException if the inventory block is unknown
+     */
+    public void release(final String inventoryBlockCode){
+
+        final OrderEntryModel orderEntry = orderEntriesByInventoryBlock.get(inventoryBlockCode);
+        if (orderEntry == null) {
+            throw new IllegalArgumentException("Unknown inventory block " + inventoryBlockCode);
+        }
+        stockService.releaseInventory(Collections.singletonList(new OrderCancelEntry(orderEntry, 1)));
+    }
+
+    /**
+     * @return the codes of all inventory blocks
+     */
+    public List<String> getInventoryBlockCodes(){
+
+        return inventoryBlocks.stream().map(InventoryBlockModel::getCode).collect(Collectors.toList());
+    }
+
+    private OfferingAvailability toOfferingAvailability(final InventoryDto inventoryDto){
+
+        return new OfferingAvailability(inventoryDto.getInventoryBlock().getCode(),
+                        inventoryDto.getStockLevelStatus() != null ? inventoryDto.getStockLevelStatus().getCode() : null,
+                        inventoryDto.getAvailableQty(), inventoryDto.isExpired(), inventoryDto.isForceInStock(),
+                        inventoryDto.isInventoryAvailable());
+    }
+
+    private DefaultRcclStockService createStockService(){
+
+        final Map<String, InventoryBlockModel> inventoryBlocksByCode = inventoryBlocks.stream()
+                        .collect(Collectors.toMap(InventoryBlockModel::getCode, inventoryBlock -> inventoryBlock));
+        final Map<PK, InventoryBlockModel> inventoryBlocksByStockLevel = inventoryBlocks.stream()
+                        .collect(Collectors.toMap(inventoryBlock -> inventoryBlock.getStocklevel().getPk(),
+                                inventoryBlock -> inventoryBlock));
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setRcclStockDao(fake(RcclStockDao.class, (name, args) -> {
+            simulateLatency();
+            if ("findStockLevelsForProduct".equals(name) || "getStocklevels".equals(name)) {
+                return stockLevels;
+            }
+            return null;
+        }));
+        service.setStockLevelGenericDao(fake(GenericDao.class, (name, args) -> {
+            simulateLatency();
+            return stockLevels.subList(0, 1);
+        }));
+        service.setFlexibleSearchService(fake(FlexibleSearchService.class, (name, args) -> {
+            simulateLatency();
+            final FlexibleSearchQuery query = (FlexibleSearchQuery) args[0];
+            final Collection<?> values = (Collection<?>) query.getQueryParameters().get("values");
+            final List<Object> result = new ArrayList<>(values.size());
+            for (final Object value : values) {
+                final InventoryBlockModel inventoryBlock = value instanceof StockLevelModel ?
+                                inventoryBlocksByStockLevel.get(((StockLevelModel) value).getPk()) :
+                                inventoryBlocksByCode.get(value);
+                if (inventoryBlock != null) {
+                    result.add(inventoryBlock);
+                }
+            }
+            return new SearchResultImpl<>(result, result.size(), -1, 0);
+        }));
+        service.setBlockTypeListBeanPostProcessor(fake(RcclBlockTypeListBeanPostProcessor.class, (name, args) -> {
+            final Collection<?> candidates = ((BlockTypeStrategyParam) args[0]).getValue(BlockTypeStrategyParam.INVENTROY_BLOCKS);
+            return candidates.isEmpty() ? null : candidates.iterator().next();
+        }));
+        service.setStatusStrategy(fake(RcclStockLevelStatusStrategy.class, (name, args) -> StockLevelStatus.INSTOCK));
+        service.setAvailableStrategy(fake(RcclCommerceAvailabilityCalculationStrategy.class, (name, args) -> Long.valueOf(10L)));
+        service.setTimeService(fake(TimeService.class, (name, args) -> new Date()));
+        service.setInventoryReservationDao(fake(RcclInventoryReservationDao.class, (name, args) -> {
+            simulateLatency();
+            return Boolean.TRUE;
+        }));
+        service.setRcclInventoryBlockService(fake(RcclInventoryBlockService.class, (name, args) -> inventoryBlocksByCode.get(args[0])));
+        service.setModelService(fake(ModelService.class, (name, args) -> null));
+
+        final Map<String, Object> sessionAttributes = new ConcurrentHashMap<>();
+        final Session session = fake(Session.class, (name, args) -> {
+            if ("getAttribute".equals(name)) {
+                return sessionAttributes.get(args[0]);
+            } else if ("setAttribute".equals(name)) {
+                sessionAttributes.put((String) args[0], args[1]);
+            }
+            return null;
+        });
+        service.setSessionService(fake(SessionService.class, (name, args) -> {
+            if ("getCurrentSession".equals(name)) {
+                return session;
+            } else if (name.startsWith("executeInLocalView")) {
+                return ((SessionExecutionBody) args[args.length - 1]).execute();
+            }
+            return null;
+        }));
+        return service;
+    }
+
+    private void simulateLatency(){
+
+        if (daoLatencyMillis > 0) {
+            try {
+                Thread.sleep(daoLatencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during simulated DAO latency", e);
+            }
+        }
+    }
+
+    /**
+     * creates a fake of the interface which answers every call through answers, primitive results default to zero.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(final Class<T> type, final BiFunction<String, Object[], Object> answers){
+
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            final Object answer = answers.apply(method.getName(), args == null ? new Object[0] : args);
+            return answer == null ? defaultValue(method.getReturnType()) : answer;
+        });
+    }
+
+    private static Object objectMethod(final Object proxy, final Method method, final Object[] args){
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getInterfaces()[0].getSimpleName() + "Fake";
+        }
+    }
+
+    private static Object defaultValue(final Class<?> returnType){
+
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        final Map<Class<?>, Object> defaults = new HashMap<>();
+        defaults.put(boolean.class, Boolean.FALSE);
+        defaults.put(int.class, 0);
+        defaults.put(long.class, 0L);
+        defaults.put(double.class, 0d);
+        defaults.put(float.class, 0f);
+        defaults.put(short.class, (short) 0);
+        defaults.put(byte.class, (byte) 0);
+        defaults.put(char.class, '\0');
+        return defaults.get(returnType);
+    }
+}
@@ -0,0 +1,46 @@
+package com.rccl.core.product.dao;
+
+import com.rccl.core.model.InventoryBlockModel;
+
+import java.util.List;
+import java.util.NavigableMap;
+
+
+/**
+ * DAO for atomic reservation changes on {@link InventoryBlockModel}s
+ */
+public interface RcclInventoryReservationDao{
+
+    /**
+     * releases the quantity from the reservation of the inventory block with one atomic update, concurrent releases of
+     * the same block never overwrite each other. A release larger than the reservation sets the reserved quantity to
+     * qtyToBeReleased.
+     *
+     * @param inventoryBlock  the {@link InventoryBlockModel} to release
+     * @param qtyToBeReleased the quantity to release
+     * @return if the inventory block was updated
+     */
+    boolean release(InventoryBlockModel inventoryBlock, int qtyToBeReleased);
+
+    /**
+     * releases the quantities one after the other, with one batch of atomic updates. The result is the same as calling
+     * {@link #release(InventoryBlockModel, int)} for each quantity in order.
+     *
+     * @param inventoryBlock the {@link InventoryBlockModel} to release
+     * @param quantities     the quantities to release, in order
+     * @return if the inventory block was updated for every quantity
+     */
+    boolean release(InventoryBlockModel inventoryBlock, List<Integer> quantities);
+
+    /**
+     * releases journaled quantities exactly once. The last journal sequence applied to the inventory block is stored
+     * with the block in the same transaction as the release, quantities up to that sequence were applied before, e.g.
+     * by a flush which died before its checkpoint, and are skipped.
+     *
+     * @param inventoryBlock the {@link InventoryBlockModel} to release
+     * @param journalId      the id of the journal the quantities come from
+     * @param quantities     the quantities to release by journal sequence
+     * @return if the inventory block was updated for every quantity not applied before
+     */
+    boolean release(InventoryBlockModel inventoryBlock, String journalId, NavigableMap<Long, Integer> quantities);
+}
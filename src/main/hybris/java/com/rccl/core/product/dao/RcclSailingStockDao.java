@@ -0,0 +1,30 @@
+package com.rccl.core.product.dao;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.travelservices.model.warehouse.TransportOfferingModel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * DAO for the stock levels of many products on the transport offerings of one sailing
+ */
+public interface RcclSailingStockDao{
+
+    /**
+     * finds the stock levels of all products on the transport offerings with one query per batch of product codes,
+     * instead of one query per product. Stock levels of past transport offerings, departed before now, are left out
+     * unless includePastOfferings. Meant for products stocked per transport offering, service products are resolved
+     * by {@link RcclStockDao#findStockLevelsForProduct}.
+     *
+     * @param productCodes         the codes of the products
+     * @param transportOfferings   the {@link TransportOfferingModel}s of the sailing
+     * @param includePastOfferings if stock levels of past transport offerings are included
+     * @return the {@link StockLevelModel}s by product code, in the order of the transport offerings per product,
+     * products without stock levels are not contained
+     */
+    Map<String, List<StockLevelModel>> findStockLevelsForProducts(Collection<String> productCodes,
+                    List<TransportOfferingModel> transportOfferings, boolean includePastOfferings);
+}
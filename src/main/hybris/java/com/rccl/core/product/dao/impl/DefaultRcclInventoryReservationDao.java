@@ -0,0 +1,178 @@
+package com.rccl.core.product.dao.impl;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.product.dao.RcclInventoryReservationDao;
+import de.hybris.platform.core.model.type.ComposedTypeModel;
+import de.hybris.platform.jalo.ExtensibleItem;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.type.TypeService;
+import de.hybris.platform.tx.Transaction;
+import de.hybris.platform.tx.TransactionBody;
+import de.hybris.platform.util.Utilities;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.Supplier;
+
+
+/**
+ * default implementation for {@link RcclInventoryReservationDao}, releases with a conditional update on the deployment
+ * table of {@link InventoryBlockModel} and invalidates the cached entity afterwards. The update runs in the current
+ * hybris {@link Transaction}, or in one of its own, through the platform {@link JdbcTemplate} whose data source hands
+ * out the connection of that transaction. Only the reserved quantity is written, the update goes around the model
+ * layer, so no interceptors run for it.
+ * <p>
+ * For journaled releases the last applied journal sequence is kept as property of the inventory block item, one per
+ * journal id, written in the same transaction as the release.
+ */
+public class DefaultRcclInventoryReservationDao implements RcclInventoryReservationDao{
+
+    private static final String APPLIED_JOURNAL_SEQUENCE_PROPERTY = "rcclAppliedReleaseJournalSequence.";
+
+    private TypeService typeService;
+    private ModelService modelService;
+    private JdbcTemplate jdbcTemplate;
+    private volatile String releaseStatement;
+
+    @Override
+    public boolean release(final InventoryBlockModel inventoryBlock, final int qtyToBeReleased){
+
+        return inTransaction(() -> update(inventoryBlock, Collections.singletonList(qtyToBeReleased)));
+    }
+
+    @Override
+    public boolean release(final InventoryBlockModel inventoryBlock, final List<Integer> quantities){
+
+        return inTransaction(() -> update(inventoryBlock, quantities));
+    }
+
+    @Override
+    public boolean release(final InventoryBlockModel inventoryBlock, final String journalId,
+                    final NavigableMap<Long, Integer> quantities){
+
+        if (quantities.isEmpty()) {
+            return true;
+        }
+        final String property = APPLIED_JOURNAL_SEQUENCE_PROPERTY + journalId;
+        return inTransaction(() -> {
+            final ExtensibleItem item = getModelService().getSource(inventoryBlock);
+            final Object applied = item.getProperty(property);
+            final long appliedSequence = applied instanceof Number ? ((Number) applied).longValue() : 0L;
+            final List<Integer> unapplied = new ArrayList<>(quantities.tailMap(appliedSequence, false).values());
+            if (unapplied.isEmpty()) {
+                return true;
+            }
+            if (!update(inventoryBlock, unapplied)) {
+                return false;
+            }
+            item.setProperty(property, quantities.lastKey());
+            return true;
+        });
+    }
+
+    private boolean update(final InventoryBlockModel inventoryBlock, final List<Integer> quantities){
+
+        final long pk = inventoryBlock.getPk().getLong();
+        final int[] updated;
+        if (quantities.size() == 1) {
+            final Integer qtyToBeReleased = quantities.get(0);
+            updated = new int[] { getJdbcTemplate().update(getReleaseStatement(), qtyToBeReleased, qtyToBeReleased, qtyToBeReleased, pk) };
+        } else {
+            final List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+            for (final Integer qtyToBeReleased : quantities) {
+                batchArgs.add(new Object[] { qtyToBeReleased, qtyToBeReleased, qtyToBeReleased, pk });
+            }
+            updated = getJdbcTemplate().batchUpdate(getReleaseStatement(), batchArgs);
+        }
+        Utilities.invalidateCache(inventoryBlock.getPk());
+        for (final int count : updated) {
+            if (count == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * runs the updates in the current hybris {@link Transaction}, a transaction of its own is started and committed if
+     * none is running
+     *
+     * @param updates the updates
+     * @return the result of the updates
+     */
+    private boolean inTransaction(final Supplier<Boolean> updates){
+
+        try {
+            return Transaction.current().execute(new TransactionBody(){
+
+                @Override
+                public Boolean execute(){
+
+                    return updates.get();
+                }
+            });
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException("Inventory block release failed", e);
+        }
+    }
+
+    /**
+     * builds the atomic release update from the deployment of {@link InventoryBlockModel}
+     *
+     * @return the release update statement
+     */
+    private String getReleaseStatement(){
+
+        if (releaseStatement == null) {
+            final ComposedTypeModel inventoryBlockType = getTypeService().getComposedTypeForClass(InventoryBlockModel.class);
+            final String reserved = getTypeService().getAttributeDescriptor(inventoryBlockType, InventoryBlockModel.RESERVED)
+                            .getDatabaseColumn();
+            final String pk = getTypeService().getAttributeDescriptor(inventoryBlockType, InventoryBlockModel.PK).getDatabaseColumn();
+            releaseStatement = "UPDATE " + inventoryBlockType.getTable() + " SET " + reserved + " = CASE WHEN " + reserved
+                            + " >= ? THEN " + reserved + " - ? ELSE ? END WHERE " + pk + " = ?";
+        }
+        return releaseStatement;
+    }
+
+    protected JdbcTemplate getJdbcTemplate(){
+
+        return jdbcTemplate;
+    }
+
+    /**
+     * @param jdbcTemplate the platform {@link JdbcTemplate} on the tenant data source, bean {@code jdbcTemplate}
+     */
+    @Required
+    public void setJdbcTemplate(final JdbcTemplate jdbcTemplate){
+
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    protected ModelService getModelService(){
+
+        return modelService;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService){
+
+        this.modelService = modelService;
+    }
+
+    protected TypeService getTypeService(){
+
+        return typeService;
+    }
+
+    @Required
+    public void setTypeService(final TypeService typeService){
+
+        this.typeService = typeService;
+    }
+}
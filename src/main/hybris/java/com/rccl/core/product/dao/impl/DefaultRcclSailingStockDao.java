@@ -0,0 +1,97 @@
+package com.rccl.core.product.dao.impl;
+
+import com.google.common.collect.Lists;
+import com.rccl.core.product.dao.RcclSailingStockDao;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.travelservices.model.warehouse.TransportOfferingModel;
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+/**
+ * default implementation for {@link RcclSailingStockDao}
+ */
+public class DefaultRcclSailingStockDao implements RcclSailingStockDao{
+
+    private static final int PRODUCT_CODES_BATCH_SIZE = 1000;
+    private static final String PRODUCT_CODES = "productCodes";
+    private static final String TRANSPORT_OFFERINGS = "transportOfferings";
+    private static final String NOW = "now";
+    private static final String STOCK_LEVELS_FOR_PRODUCTS_QUERY =
+                    "SELECT {sl." + StockLevelModel.PK + "} FROM {" + StockLevelModel._TYPECODE + " AS sl JOIN "
+                                    + TransportOfferingModel._TYPECODE + " AS to ON {sl." + StockLevelModel.WAREHOUSE + "} = {to."
+                                    + TransportOfferingModel.PK + "}} WHERE {sl." + StockLevelModel.PRODUCTCODE + "} IN (?" + PRODUCT_CODES
+                                    + ") AND {sl." + StockLevelModel.WAREHOUSE + "} IN (?" + TRANSPORT_OFFERINGS + ")";
+    private static final String NOT_DEPARTED = " AND {to." + TransportOfferingModel.DEPARTURETIME + "} >= ?" + NOW;
+
+    private FlexibleSearchService flexibleSearchService;
+    private TimeService timeService;
+
+    @Override
+    public Map<String, List<StockLevelModel>> findStockLevelsForProducts(final Collection<String> productCodes,
+                    final List<TransportOfferingModel> transportOfferings, final boolean includePastOfferings){
+
+        final Map<String, List<StockLevelModel>> stockLevelsByProduct = new LinkedHashMap<>();
+        if (CollectionUtils.isEmpty(productCodes) || CollectionUtils.isEmpty(transportOfferings)) {
+            return stockLevelsByProduct;
+        }
+        final String query = includePastOfferings ? STOCK_LEVELS_FOR_PRODUCTS_QUERY : STOCK_LEVELS_FOR_PRODUCTS_QUERY + NOT_DEPARTED;
+        final List<String> distinctProductCodes = productCodes.stream().distinct().collect(Collectors.toList());
+        final List<StockLevelModel> stockLevels = new ArrayList<>();
+        for (final List<String> batch : Lists.partition(distinctProductCodes, PRODUCT_CODES_BATCH_SIZE)) {
+            final Map<String, Object> params = new HashMap<>();
+            params.put(PRODUCT_CODES, batch);
+            params.put(TRANSPORT_OFFERINGS, transportOfferings);
+            if (!includePastOfferings) {
+                params.put(NOW, getTimeService().getCurrentTime());
+            }
+            stockLevels.addAll(getFlexibleSearchService().<StockLevelModel>search(new FlexibleSearchQuery(query, params)).getResult());
+        }
+        final Map<PK, Integer> transportOfferingOrder = new HashMap<>();
+        for (int i = 0; i < transportOfferings.size(); i++) {
+            transportOfferingOrder.putIfAbsent(transportOfferings.get(i).getPk(), i);
+        }
+        stockLevels.sort(Comparator.comparing((StockLevelModel stockLevel) -> transportOfferingOrder
+                        .getOrDefault(stockLevel.getWarehouse() != null ? stockLevel.getWarehouse().getPk() : null, Integer.MAX_VALUE))
+                        .thenComparing(stockLevel -> stockLevel.getPk().getLong()));
+        for (final StockLevelModel stockLevel : stockLevels) {
+            stockLevelsByProduct.computeIfAbsent(stockLevel.getProductCode(), code -> new ArrayList<>()).add(stockLevel);
+        }
+        return stockLevelsByProduct;
+    }
+
+    protected FlexibleSearchService getFlexibleSearchService(){
+
+        return flexibleSearchService;
+    }
+
+    @Required
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService){
+
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    protected TimeService getTimeService(){
+
+        return timeService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService){
+
+        this.timeService = timeService;
+    }
+}
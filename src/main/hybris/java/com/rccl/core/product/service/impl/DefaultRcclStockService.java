@@ -0,0 +1,2352 @@
+package com.rccl.core.product.service.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.model.OfferingModel;
+import com.rccl.core.product.dao.RcclInventoryReservationDao;
+import com.rccl.core.product.dao.RcclSailingStockDao;
+import com.rccl.core.product.dao.RcclStockDao;
+import com.rccl.core.product.service.RcclStockService;
+import com.rccl.core.stock.audit.ReleaseAuditLog;
+import com.rccl.core.stock.availability.AvailabilityIndex;
+import com.rccl.core.stock.cache.SingleFlightMemo;
+import com.rccl.core.stock.cache.StockLookupCache;
+import com.rccl.core.stock.data.BlockTypeStrategyParam;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.metrics.StockMetrics;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.stock.dto.InventorySnapshot;
+import com.rccl.core.stock.dto.VersionedInventories;
+import com.rccl.core.stock.journal.ReleaseJournal;
+import com.rccl.core.stock.index.TimeOrderedIndex;
+import com.rccl.core.stock.invalidation.InvalidationBroadcaster;
+import com.rccl.core.stock.service.RcclBlockTypeListBeanPostProcessor;
+import com.rccl.core.stock.session.TenantSessions;
+import com.rccl.core.stock.warmup.WarmStartSnapshot;
+import com.rccl.core.stock.service.RcclInventoryBlockService;
+import com.rccl.core.strategy.RcclCommerceAvailabilityCalculationStrategy;
+import com.rccl.core.strategy.RcclStockLevelStatusStrategy;
+import com.rccl.core.util.RcclUtils;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordercancel.OrderCancelEntry;
+import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
+import de.hybris.platform.jalo.JaloSession;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.internal.dao.GenericDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.store.BaseStoreModel;
+import de.hybris.platform.travelservices.model.user.TravellerModel;
+import de.hybris.platform.travelservices.model.warehouse.TransportOfferingModel;
+import de.hybris.platform.travelservices.stock.impl.DefaultTravelCommerceStockService;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.ListUtils;
+import org.apache.commons.lang.BooleanUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static de.hybris.platform.servicelayer.util.ServicesUtil.validateParameterNotNull;
+
+
+/**
+ * default implementation for {@link RcclStockService}
+ *
+ * @see #getStockLevelByItemCode(String)
+ * @see #getStockLevelsByItemCodes(Collection)
+ * @see #getStockLevelsByIds(Collection)
+ * @see #calculateInventories(BlockTypeStrategyParam, ProductModel, List)
+ * @see #calculateInventory(BlockTypeStrategyParam, StockLevelModel)
+ * @see #calculateInventorySnapshot(BlockTypeStrategyParam, ProductModel, List)
+ * @see #calculateInventoriesForSailing(InventoryCriteria, String, String)
+ * @see #calculateInventoriesForProducts(InventoryCriteria, Collection, List)
+ * @see #calculateVersionedInventoriesForSailing(InventoryCriteria, String, String, Predicate)
+ * @see #getInventoryVersion(String, String)
+ * @see #warmUp(InventoryCriteria, String, String)
+ * @see #getStocklevels(String, String)
+ * @see #checkStatus(InventoryBlockModel)
+ * @see #calculateAvailability(InventoryBlockModel)
+ * @see #getStockLevelForItemCode(String)
+ * @see #getOfferingByStartDate(String, Date, String)
+ * @see #getInventory(BlockTypeStrategyParam, ProductModel, List)
+ * @see #getInventory(BlockTypeStrategyParam, StockLevelModel)
+ * @see #getInventory(BlockTypeStrategyParam, List)
+ * @see #getStockLevelsForProduct(ProductModel, List, boolean)
+ * @see #streamStockLevelsForProduct(ProductModel, List, boolean, int)
+ * @see #streamInventories(BlockTypeStrategyParam, ProductModel, List, int)
+ * @see #getOfferingByCode(String)
+ * @see #isValidOffering(OfferingModel)
+ * @see #isValidOffering(OfferingModel, Date)
+ * @see #getOfferingsBetween(String, String, Date, Date, boolean)
+ * @see #getNearestOffering(String, String, Date)
+ * @see #createInventoryFetchKey(TravellerModel, ProductModel, StockLevelModel)
+ * @see #fetchInventory(TravellerModel, StockLevelModel, BaseStoreModel)
+ * @see #releaseInventoryBatch(List)
+ * @see #flushReleaseJournal()
+ * @see #saveWarmStartSnapshot()
+ * @see #loadWarmStartSnapshot()
+ */
+public class DefaultRcclStockService extends DefaultTravelCommerceStockService implements RcclStockService{
+
+    private static final Logger LOG = Logger.getLogger(DefaultRcclStockService.class);
+    private static final String NOT_BLANK_ERR_MSG = "itemCode can't be blank";
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
+    private static final String IN_QUERY_VALUES = "values";
+    private static final String STOCK_LEVELS_BY_ATTRIBUTE_QUERY =
+                    "SELECT {" + StockLevelModel.PK + "} FROM {" + StockLevelModel._TYPECODE + "} WHERE {%s} IN (?" + IN_QUERY_VALUES
+                                    + ")";
+    private static final String STOCK_LEVEL_BY_ITEM_CODE_REGION = "stockLevelByItemCode";
+    private static final String OFFERING_BY_CODE_REGION = "offeringByCode";
+    private static final String OFFERING_BY_ID_REGION = "offeringById";
+    private static final String OFFERINGS_BY_SAILING_REGION = "offeringsBySailing";
+    private static final String OFFERING_TIME_INDEX_REGION = "offeringTimeIndex";
+    private static final String AVAILABILITY_REGION = "availability";
+    private static final long DEFAULT_RELEASE_JOURNAL_FLUSH_MILLIS = 1000L;
+    private static final long DEFAULT_WARM_START_SNAPSHOT_MILLIS = 300000L;
+    private static final char KEY_SEPARATOR = '|';
+    private static final int DEFAULT_PARALLEL_INVENTORY_THRESHOLD = 50;
+    private static final List<String> WARM_START_REGIONS = Arrays.asList(STOCK_LEVEL_BY_ITEM_CODE_REGION, OFFERING_BY_CODE_REGION,
+                    OFFERINGS_BY_SAILING_REGION);
+    private static final Set<String> PRODUCT_SCOPED_REGIONS = ImmutableSet.of(OFFERINGS_BY_SAILING_REGION, OFFERING_TIME_INDEX_REGION);
+    private static final StockLevelStatus[] INDEXED_STATUSES = { StockLevelStatus.INSTOCK, StockLevelStatus.LOWSTOCK,
+                    StockLevelStatus.OUTOFSTOCK };
+    private static final String INVENTORY_BLOCKS_BY_CODE_QUERY =
+                    "SELECT {" + InventoryBlockModel.PK + "} FROM {" + InventoryBlockModel._TYPECODE + "} WHERE {"
+                                    + InventoryBlockModel.CODE + "} IN (?" + IN_QUERY_VALUES + ")";
+    private static final String INVENTORY_BLOCKS_BY_STOCK_LEVEL_QUERY =
+                    "SELECT {" + InventoryBlockModel.PK + "} FROM {" + InventoryBlockModel._TYPECODE + "} WHERE {"
+                                    + InventoryBlockModel.STOCKLEVEL + "} IN (?" + IN_QUERY_VALUES + ") ORDER BY {" + InventoryBlockModel.PK
+                                    + "}";
+
+    private RcclStockDao rcclStockDao;
+    private RcclBlockTypeListBeanPostProcessor blockTypeListBeanPostProcessor;
+    private RcclCommerceAvailabilityCalculationStrategy availableStrategy;
+    private RcclStockLevelStatusStrategy statusStrategy;
+    private GenericDao<StockLevelModel> stockLevelGenericDao;
+    private TimeService timeService;
+    private RcclInventoryBlockService rcclInventoryBlockService;
+    private SessionService sessionService;
+    private FlexibleSearchService flexibleSearchService;
+    private StockLookupCache stockLookupCache;
+    private long inventoryFetchMemoMillis;
+    private final AtomicLong inventoryGeneration = new AtomicLong();
+    private final AtomicReference<SingleFlightMemo<InventoryDto>> inventoryFetchMemo = new AtomicReference<>();
+    private RcclInventoryReservationDao inventoryReservationDao;
+    private RcclSailingStockDao sailingStockDao;
+    private ExecutorService inventoryExecutor;
+    private int parallelInventoryThreshold = DEFAULT_PARALLEL_INVENTORY_THRESHOLD;
+    private int inventoryParallelism = Runtime.getRuntime().availableProcessors();
+    private StockMetrics stockMetrics = StockMetrics.getDefault();
+    private AvailabilityIndex availabilityIndex;
+    private String warmStartSnapshotFile;
+    private long warmStartSnapshotMillis = DEFAULT_WARM_START_SNAPSHOT_MILLIS;
+    private ScheduledExecutorService warmStartSnapshotWriter;
+    private ReleaseJournal releaseJournal;
+    private long releaseJournalFlushMillis = DEFAULT_RELEASE_JOURNAL_FLUSH_MILLIS;
+    private ScheduledExecutorService releaseJournalFlusher;
+    private final Object releaseJournalFlushLock = new Object();
+    private InvalidationBroadcaster invalidationBroadcaster;
+    private ReleaseAuditLog releaseAuditLog;
+
+    /**
+     * find the {@link StockLevelModel} by {@link StockLevelModel#ITEMCODE}
+     *
+     * @param itemCode the itemCode of stockLevel
+     * @return the {@link StockLevelModel}
+     */
+    @Override
+    public StockLevelModel getStockLevelByItemCode(final String itemCode){
+
+        if (StringUtils.isBlank(itemCode)) {
+            throw new IllegalArgumentException(NOT_BLANK_ERR_MSG);
+        }
+        return timed("service.getStockLevelByItemCode", () -> lookupModel(STOCK_LEVEL_BY_ITEM_CODE_REGION, itemCode, () -> {
+            final Map<String, ? super Object> params = new HashMap<>();
+            params.put(StockLevelModel.ITEMCODE, itemCode);
+            final List<StockLevelModel> stockLevels = timedResult("dao.stockLevelGenericDao.find",
+                            () -> getStockLevelGenericDao().find(params));
+            if (CollectionUtils.isNotEmpty(stockLevels)) {
+                return stockLevels.get(0);
+            }
+            return null;
+        }));
+    }
+    
+    @Override
+    public StockLevelModel getStockLevelById(final String id){
+
+        if (StringUtils.isBlank(id)) {
+            throw new IllegalArgumentException(NOT_BLANK_ERR_MSG);
+        }
+        return timed("service.getStockLevelById", () -> {
+            final Map<String, ? super Object> params = new HashMap<>();
+            params.put(StockLevelModel.ID, id);
+            final List<StockLevelModel> stockLevels = timedResult("dao.stockLevelGenericDao.find",
+                            () -> getStockLevelGenericDao().find(params));
+            if (CollectionUtils.isNotEmpty(stockLevels)) {
+                return stockLevels.get(0);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * find the {@link StockLevelModel}s for all given {@link StockLevelModel#ITEMCODE}s with one IN-query per
+     * {@value #IN_QUERY_BATCH_SIZE} codes instead of one query per code.
+     *
+     * @param itemCodes the itemCodes of the stockLevels
+     * @return the {@link StockLevelModel}s keyed by itemCode, unknown codes are not contained
+     */
+    public Map<String, StockLevelModel> getStockLevelsByItemCodes(final Collection<String> itemCodes){
+
+        return timed("service.getStockLevelsByItemCodes",
+                        () -> findStockLevelsByAttribute(StockLevelModel.ITEMCODE, itemCodes, StockLevelModel::getItemCode));
+    }
+
+    /**
+     * find the {@link StockLevelModel}s for all given {@link StockLevelModel#ID}s with one IN-query per
+     * {@value #IN_QUERY_BATCH_SIZE} ids instead of one query per id.
+     *
+     * @param ids the ids of the stockLevels
+     * @return the {@link StockLevelModel}s keyed by id, unknown ids are not contained
+     */
+    public Map<String, StockLevelModel> getStockLevelsByIds(final Collection<String> ids){
+
+        return timed("service.getStockLevelsByIds", () -> findStockLevelsByAttribute(StockLevelModel.ID, ids, StockLevelModel::getId));
+    }
+
+    /**
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam}
+     * @param productModel           the {@link ProductModel}
+     * @param transportOfferings     the {@link List} of {@link TransportOfferingModel}
+     * @return the {@link List} of {@link InventoryDto}
+     */
+
+    @Override
+    public List<InventoryDto> calculateInventories(final BlockTypeStrategyParam blockTypeStrategyParam, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings){
+
+        return calculateInventories(InventoryCriteria.from(blockTypeStrategyParam), productModel, transportOfferings);
+    }
+
+    /**
+     * typed variant of {@link #calculateInventories(BlockTypeStrategyParam, ProductModel, List)}
+     *
+     * @param criteria           the {@link InventoryCriteria}
+     * @param productModel       the {@link ProductModel}
+     * @param transportOfferings the {@link List} of {@link TransportOfferingModel}
+     * @return the {@link List} of {@link InventoryDto}
+     */
+    public List<InventoryDto> calculateInventories(final InventoryCriteria criteria, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings){
+
+        return timedResult("service.calculateInventories",
+                        () -> getInventoryDtos(criteria, getInventory(criteria, productModel, transportOfferings)));
+    }
+
+    /**
+     * calculates the inventories of all stock levels of the product on the sailing, the inventory blocks of all stock
+     * levels are loaded at once.
+     *
+     * @param criteria    the {@link InventoryCriteria}
+     * @param productCode the product code
+     * @param sailingCode the sailing code
+     * @return the {@link List} of {@link InventoryDto}
+     */
+    public List<InventoryDto> calculateInventoriesForSailing(final InventoryCriteria criteria, final String productCode,
+                    final String sailingCode){
+
+        return timedResult("service.calculateInventoriesForSailing", () -> {
+            final List<StockLevelModel> stockLevels = getStocklevels(productCode, sailingCode);
+            if (CollectionUtils.isEmpty(stockLevels)) {
+                return ListUtils.EMPTY_LIST;
+            }
+            return getInventoryDtos(criteria, getInventory(criteria, stockLevels));
+        });
+    }
+
+    /**
+     * @see #calculateInventoriesForSailing(InventoryCriteria, String, String)
+     */
+    public List<InventoryDto> calculateInventoriesForSailing(final BlockTypeStrategyParam blockTypeStrategyParam, final String productCode,
+                    final String sailingCode){
+
+        return calculateInventoriesForSailing(InventoryCriteria.from(blockTypeStrategyParam), productCode, sailingCode);
+    }
+
+    /**
+     * bulk variant of {@link #calculateInventories(InventoryCriteria, ProductModel, List)} for all products of a
+     * catalog page on the same sailing. The stock levels of all products are loaded with one query per batch of
+     * products, the inventory blocks of all stock levels are prefetched at once and all inventories are calculated in
+     * one evaluation run.
+     *
+     * @param criteria           the {@link InventoryCriteria}
+     * @param products           the {@link ProductModel}s
+     * @param transportOfferings the {@link TransportOfferingModel}s of the sailing
+     * @return the {@link InventoryDto}s by product code, in the order of the products
+     */
+    public Map<String, List<InventoryDto>> calculateInventoriesForProducts(final InventoryCriteria criteria,
+                    final Collection<ProductModel> products, final List<TransportOfferingModel> transportOfferings){
+
+        return timed("service.calculateInventoriesForProducts", () -> {
+            final Map<String, List<InventoryDto>> inventoriesByProduct = new LinkedHashMap<>();
+            if (CollectionUtils.isEmpty(products) || CollectionUtils.isEmpty(transportOfferings)) {
+                return inventoriesByProduct;
+            }
+            final Map<String, List<StockLevelModel>> stockLevelsByProduct = getStockLevelsForProducts(products, transportOfferings,
+                            criteria.isIncludePastOfferings());
+            final List<StockLevelModel> stockLevels = stockLevelsByProduct.values().stream().flatMap(List::stream)
+                            .collect(Collectors.toList());
+            final List<InventoryDto> inventories = getInventoryDtos(criteria, getInventory(criteria, stockLevels));
+            int from = 0;
+            for (final Map.Entry<String, List<StockLevelModel>> entry : stockLevelsByProduct.entrySet()) {
+                final int to = from + entry.getValue().size();
+                inventoriesByProduct.put(entry.getKey(), new ArrayList<>(inventories.subList(from, to)));
+                from = to;
+            }
+            return inventoriesByProduct;
+        });
+    }
+
+    /**
+     * @see #calculateInventoriesForProducts(InventoryCriteria, Collection, List)
+     */
+    public Map<String, List<InventoryDto>> calculateInventoriesForProducts(final BlockTypeStrategyParam blockTypeStrategyParam,
+                    final Collection<ProductModel> products, final List<TransportOfferingModel> transportOfferings){
+
+        return calculateInventoriesForProducts(InventoryCriteria.from(blockTypeStrategyParam), products, transportOfferings);
+    }
+
+    /**
+     * loads the stock levels of the products on the transport offerings with one query per batch of products through
+     * the {@link RcclSailingStockDao}. Service products are resolved by their own branch of the DAO, through
+     * {@link #getStockLevelsForProduct(ProductModel, List, boolean)}.
+     *
+     * @return the {@link StockLevelModel}s grouped by product code, in the order of the products
+     */
+    private Map<String, List<StockLevelModel>> getStockLevelsForProducts(final Collection<ProductModel> products,
+                    final List<TransportOfferingModel> transportOfferings, final boolean includePastOfferings){
+
+        final Map<String, List<StockLevelModel>> stockLevelsByProduct = new LinkedHashMap<>();
+        final List<String> productCodes = new ArrayList<>(products.size());
+        for (final ProductModel productModel : products) {
+            if (stockLevelsByProduct.containsKey(productModel.getCode())) {
+                continue;
+            }
+            if (RcclUtils.isServiceProduct(productModel)) {
+                final List<StockLevelModel> stockLevels = getStockLevelsForProduct(productModel, transportOfferings, includePastOfferings);
+                stockLevelsByProduct.put(productModel.getCode(), stockLevels != null ? new ArrayList<>(stockLevels) : new ArrayList<>());
+            } else {
+                stockLevelsByProduct.put(productModel.getCode(), new ArrayList<>());
+                productCodes.add(productModel.getCode());
+            }
+        }
+        if (!productCodes.isEmpty()) {
+            final Map<String, List<StockLevelModel>> found = timed("dao.findStockLevelsForProducts",
+                            () -> getSailingStockDao().findStockLevelsForProducts(productCodes, transportOfferings, includePastOfferings));
+            found.forEach((productCode, stockLevels) -> {
+                final List<StockLevelModel> productStockLevels = stockLevelsByProduct.get(productCode);
+                if (productStockLevels != null) {
+                    productStockLevels.addAll(stockLevels);
+                }
+            });
+        }
+        return stockLevelsByProduct;
+    }
+
+    /**
+     * preloads everything the inventory of the product on the sailing is calculated from: the stock levels by item code
+     * and the offerings of the sailing in the {@link StockLookupCache}, the inventory blocks into the model cache and
+     * the availability of each inventory block into the {@link AvailabilityIndex}.
+     *
+     * @param criteria    the {@link InventoryCriteria} the availability is calculated for
+     * @param productCode the product code
+     * @param sailingCode the sailing code
+     * @return the number of warmed inventories
+     */
+    public int warmUp(final InventoryCriteria criteria, final String productCode, final String sailingCode){
+
+        return timed("service.warmUp", () -> {
+            final List<StockLevelModel> stockLevels = getStocklevels(productCode, sailingCode);
+            if (CollectionUtils.isEmpty(stockLevels)) {
+                return 0;
+            }
+            final StockLookupCache cache = getStockLookupCache();
+            if (cache != null) {
+                for (final StockLevelModel stockLevelModel : stockLevels) {
+                    if (stockLevelModel.getItemCode() != null) {
+                        cache.get(STOCK_LEVEL_BY_ITEM_CODE_REGION, stockLevelModel.getItemCode(), stockLevelModel::getPk);
+                    }
+                }
+            }
+            getOfferingBySailingAndProductCode(productCode, sailingCode);
+            return getInventoryDtos(criteria, getInventory(criteria, stockLevels)).size();
+        });
+    }
+
+    /**
+     * calculates the inventories of the product on the sailing together with their version. The stock levels and
+     * inventory blocks are loaded once and serve both, the inventories are only evaluated if the caller doesn't hold
+     * the version already.
+     *
+     * @param criteria         the {@link InventoryCriteria}
+     * @param productCode      the product code
+     * @param sailingCode      the sailing code
+     * @param isCurrentVersion tells if the caller holds the given version already
+     * @return the {@link VersionedInventories}, without inventories if the caller holds the version
+     * @see #getInventoryVersion(String, String)
+     */
+    public VersionedInventories calculateVersionedInventoriesForSailing(final InventoryCriteria criteria, final String productCode,
+                    final String sailingCode, final Predicate<String> isCurrentVersion){
+
+        return timed("service.calculateVersionedInventoriesForSailing", () -> {
+            final List<StockLevelModel> stockLevels = getStocklevels(productCode, sailingCode);
+            if (CollectionUtils.isEmpty(stockLevels)) {
+                final String version = getInventoryVersion(Collections.emptyList(), Collections.emptyMap());
+                return new VersionedInventories(version, isCurrentVersion.test(version) ? null : new ArrayList<>());
+            }
+            final Map<PK, List<InventoryBlockModel>> inventoryBlocksByStockLevel = prefetchInventoryBlocks(stockLevels);
+            final String version = getInventoryVersion(stockLevels, inventoryBlocksByStockLevel);
+            if (isCurrentVersion.test(version)) {
+                return new VersionedInventories(version, null);
+            }
+            return new VersionedInventories(version,
+                            getInventoryDtos(criteria, getInventory(criteria, stockLevels, inventoryBlocksByStockLevel)));
+        });
+    }
+
+    /**
+     * cheap version stamp of the inventories of the product on the sailing. It is derived from persisted data only,
+     * without evaluating it: the modification times and reserved quantities of the stock levels and inventory blocks,
+     * which every release bumps, and the expiry of the offerings at the current time. So all instances agree on the
+     * version and equal versions mean that
+     * {@link #calculateInventoriesForSailing(InventoryCriteria, String, String)} returns the same inventories, HTTP
+     * clients can revalidate by version.
+     *
+     * @param productCode the product code
+     * @param sailingCode the sailing code
+     * @return the version stamp
+     * @see #calculateVersionedInventoriesForSailing(InventoryCriteria, String, String, Predicate)
+     */
+    public String getInventoryVersion(final String productCode, final String sailingCode){
+
+        return timed("service.getInventoryVersion", () -> {
+            final List<StockLevelModel> stockLevels = getStocklevels(productCode, sailingCode);
+            if (CollectionUtils.isEmpty(stockLevels)) {
+                return getInventoryVersion(Collections.emptyList(), Collections.emptyMap());
+            }
+            return getInventoryVersion(stockLevels, prefetchInventoryBlocks(stockLevels));
+        });
+    }
+
+    private String getInventoryVersion(final List<StockLevelModel> stockLevels,
+                    final Map<PK, List<InventoryBlockModel>> inventoryBlocksByStockLevel){
+
+        final Date now = getTimeService().getCurrentTime();
+        long version = 0L;
+        for (final StockLevelModel stockLevelModel : stockLevels) {
+            version = 31 * version + Objects.hashCode(stockLevelModel.getPk());
+            version = 31 * version + getTime(stockLevelModel.getModifiedtime());
+            version = 31 * version + stockLevelModel.getReserved();
+            version = 31 * version + (stockLevelModel instanceof OfferingModel && isValidOffering((OfferingModel) stockLevelModel, now) ?
+                            1 : 0);
+            for (final InventoryBlockModel inventoryBlock : inventoryBlocksByStockLevel.getOrDefault(stockLevelModel.getPk(),
+                            Collections.emptyList())) {
+                version = 31 * version + Objects.hashCode(inventoryBlock.getPk());
+                version = 31 * version + getTime(inventoryBlock.getModifiedtime());
+                version = 31 * version + Objects.hashCode(inventoryBlock.getReserved());
+            }
+        }
+        return Long.toHexString(version);
+    }
+
+    private static long getTime(final Date date){
+
+        return date != null ? date.getTime() : 0L;
+    }
+
+    private List<InventoryDto> getInventoryDtos(final InventoryCriteria criteria, final List<InventoryBlockModel> inventoryBlocks){
+
+        if (CollectionUtils.isNotEmpty(inventoryBlocks)) {
+            final boolean includeSoldOutOfferings = criteria.isIncludePastOfferings();
+            final Date now = getTimeService().getCurrentTime();
+            return mapInChunks(inventoryBlocks,
+                            chunk -> chunk.stream().map(inventoryBlock -> getInventoryDto(includeSoldOutOfferings, inventoryBlock, now))
+                                            .collect(Collectors.toList()));
+        }
+        return ListUtils.EMPTY_LIST;
+
+    }
+
+
+    /**
+     * same calculation as {@link #calculateInventories(BlockTypeStrategyParam, ProductModel, List)}, but returns the
+     * results as one {@link InventorySnapshot} of primitive columns. The models are not retained by the snapshot, they
+     * are resolved by PK when a caller asks for them.
+     *
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam}
+     * @param productModel           the {@link ProductModel}
+     * @param transportOfferings     the {@link List} of {@link TransportOfferingModel}
+     * @return the {@link InventorySnapshot}
+     */
+    public InventorySnapshot calculateInventorySnapshot(final BlockTypeStrategyParam blockTypeStrategyParam,
+                    final ProductModel productModel, final List<TransportOfferingModel> transportOfferings){
+
+        return calculateInventorySnapshot(InventoryCriteria.from(blockTypeStrategyParam), productModel, transportOfferings);
+    }
+
+    /**
+     * typed variant of {@link #calculateInventorySnapshot(BlockTypeStrategyParam, ProductModel, List)}
+     *
+     * @param criteria           the {@link InventoryCriteria}
+     * @param productModel       the {@link ProductModel}
+     * @param transportOfferings the {@link List} of {@link TransportOfferingModel}
+     * @return the {@link InventorySnapshot}
+     */
+    public InventorySnapshot calculateInventorySnapshot(final InventoryCriteria criteria, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings){
+
+        return timed("service.calculateInventorySnapshot", () -> {
+            final List<InventoryBlockModel> inventoryBlocks = getInventory(criteria, productModel, transportOfferings);
+            final int size = inventoryBlocks != null ? inventoryBlocks.size() : 0;
+            final InventorySnapshot.Builder builder = new InventorySnapshot.Builder(size,
+                            pk -> getModelService().<InventoryBlockModel>get(PK.fromLong(pk)),
+                            pk -> getModelService().<StockLevelModel>get(PK.fromLong(pk)));
+            if (size == 0) {
+                return builder.build();
+            }
+            final boolean includeSoldOutOfferings = criteria.isIncludePastOfferings();
+            final Date now = getTimeService().getCurrentTime();
+            final List<InventoryEvaluation> evaluations = mapInChunks(inventoryBlocks,
+                            chunk -> chunk.stream().map(inventoryBlock -> evaluateInventory(includeSoldOutOfferings, inventoryBlock, now))
+                                            .collect(Collectors.toList()));
+            for (int i = 0; i < size; i++) {
+                final InventoryBlockModel inventoryBlock = inventoryBlocks.get(i);
+                final InventoryEvaluation evaluation = evaluations.get(i);
+                builder.add(evaluation.getCode(), inventoryBlock.getPk() != null ? inventoryBlock.getPk().getLongValue() : null,
+                                evaluation.getStockLevel().getPk().getLongValue(), evaluation.getStatus(), evaluation.getAvailableQty(),
+                                evaluation.isExpired(), evaluation.isForceInStock(), evaluation.isInventoryAvailable());
+            }
+            return builder.build();
+        });
+    }
+
+    /**
+     * Executes {@link #getInventory(BlockTypeStrategyParam, StockLevelModel)} and
+     * gets {@link InventoryBlockModel}. Then converts {@link InventoryBlockModel}
+     * to {@link InventoryDto} and sets availableQty, stockStatus,
+     * inventoryAvailable
+     *
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam}
+     * @param stockLevelModel        the {@link StockLevelModel}
+     * @return the {@link InventoryDto}
+     */
+    @Override
+    public InventoryDto calculateInventory(final BlockTypeStrategyParam blockTypeStrategyParam, final StockLevelModel stockLevelModel){
+
+        return calculateInventory(InventoryCriteria.from(blockTypeStrategyParam), stockLevelModel);
+    }
+
+    /**
+     * typed variant of {@link #calculateInventory(BlockTypeStrategyParam, StockLevelModel)}
+     *
+     * @param criteria        the {@link InventoryCriteria}
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @return the {@link InventoryDto}
+     */
+    public InventoryDto calculateInventory(final InventoryCriteria criteria, final StockLevelModel stockLevelModel){
+
+        return timed("service.calculateInventory", () -> getInventoryDto(criteria.isIncludePastOfferings(),
+                        getInventory(criteria, stockLevelModel), getTimeService().getCurrentTime()));
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.rccl.core.product.service.RCCLStockService#getStocklevel(java.lang.
+     * String, java.lang.String)
+     */
+    @Override
+    public List<StockLevelModel> getStocklevels(final String productCode, final String sailingCode){
+
+        return timedResult("service.getStocklevels",
+                        () -> timedResult("dao.getStocklevels", () -> getRcclStockDao().getStocklevels(productCode, sailingCode)));
+    }
+
+    /**
+     * Gets the offering by start date.
+     *
+     * @param productCode           the product code
+     * @param offeringTime          the start date time
+     * @param transportofferingcode the transportofferingcode
+     * @return the offering by start date
+     */
+    @Override
+    public List<OfferingModel> getOfferingByStartDate(final String productCode, final Date offeringTime,
+                    final String transportofferingcode){
+
+        return timedResult("service.getOfferingByStartDate", () -> timedResult("dao.getOfferingByStartDate",
+                        () -> getRcclStockDao().getOfferingByStartDate(productCode, offeringTime, transportofferingcode)));
+    }
+
+    /**
+     * This method returns all the stock or offerings for a product and a list of
+     * transportoffeings. includePastOfferings if true, returns the past offerings.
+     * if false, return offering from current time.
+     */
+    @Override
+    public List<StockLevelModel> getStockLevelsForProduct(final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings, final boolean includePastOfferings){
+
+        if (CollectionUtils.isNotEmpty(transportOfferings)) {
+            return timedResult("service.getStockLevelsForProduct", () -> timedResult("dao.findStockLevelsForProduct",
+                            () -> getRcclStockDao().findStockLevelsForProduct(productModel.getCode(), transportOfferings,
+                                            RcclUtils.isServiceProduct(productModel), includePastOfferings)));
+        }
+        return null;
+    }
+
+    /**
+     * streaming variant of {@link #getStockLevelsForProduct(ProductModel, List, boolean)}. The stock levels are loaded
+     * page by page of pageSize transport offerings while the stream is consumed, so only one page is held at a time.
+     *
+     * @param productModel         the {@link ProductModel}
+     * @param transportOfferings   the {@link List} of {@link TransportOfferingModel}
+     * @param includePastOfferings if past offerings are included
+     * @param pageSize             the number of transport offerings loaded per page
+     * @return the {@link Stream} of {@link StockLevelModel}
+     */
+    public Stream<StockLevelModel> streamStockLevelsForProduct(final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings, final boolean includePastOfferings, final int pageSize){
+
+        return pagesOf(transportOfferings, pageSize).flatMap(page -> {
+            final List<StockLevelModel> stockLevels = getStockLevelsForProduct(productModel, page, includePastOfferings);
+            return stockLevels != null ? stockLevels.stream() : Stream.empty();
+        });
+    }
+
+    /**
+     * streaming variant of {@link #calculateInventories(BlockTypeStrategyParam, ProductModel, List)}. Stock levels,
+     * inventory blocks and {@link InventoryDto}s are loaded and converted page by page of pageSize transport offerings
+     * while the stream is consumed, so peak memory is bounded by the page size rather than by the result size.
+     *
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam}
+     * @param productModel           the {@link ProductModel}
+     * @param transportOfferings     the {@link List} of {@link TransportOfferingModel}
+     * @param pageSize               the number of transport offerings loaded per page
+     * @return the {@link Stream} of {@link InventoryDto}
+     */
+    public Stream<InventoryDto> streamInventories(final BlockTypeStrategyParam blockTypeStrategyParam, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings, final int pageSize){
+
+        final InventoryCriteria criteria = InventoryCriteria.from(blockTypeStrategyParam);
+        return pagesOf(transportOfferings, pageSize).flatMap(page -> calculateInventories(criteria, productModel, page).stream());
+    }
+
+    private static <T> Stream<List<T>> pagesOf(final List<T> items, final int pageSize){
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than zero");
+        }
+        if (CollectionUtils.isEmpty(items)) {
+            return Stream.empty();
+        }
+        return Lists.partition(items, pageSize).stream();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.rccl.core.product.service.RcclStockService#getInventory(com.rccl.core
+     * .stock.data.BlockTypeStrategyParam,
+     * de.hybris.platform.core.model.product.ProductModel, java.util.List)
+     *
+     * mapParam holds all the prerequisites needed for filtering. Like Base store,
+     * includePastOfferings from request.
+     *
+     * @return List<InventoryBlockModel> for a specified product and sailing.
+     */
+
+    @Override
+    public List<InventoryBlockModel> getInventory(final BlockTypeStrategyParam mapParam, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings){
+
+        return getInventory(InventoryCriteria.from(mapParam), productModel, transportOfferings);
+    }
+
+    /**
+     * typed variant of {@link #getInventory(BlockTypeStrategyParam, ProductModel, List)}
+     *
+     * @param criteria           the {@link InventoryCriteria}
+     * @param productModel       the {@link ProductModel}
+     * @param transportOfferings the {@link List} of {@link TransportOfferingModel}
+     * @return the {@link List} of {@link InventoryBlockModel}
+     */
+    public List<InventoryBlockModel> getInventory(final InventoryCriteria criteria, final ProductModel productModel,
+                    final List<TransportOfferingModel> transportOfferings){
+
+        return timedResult("service.getInventoryForProduct", () -> getInventory(criteria,
+                        getStockLevelsForProduct(productModel, transportOfferings, criteria.isIncludePastOfferings())));
+    }
+
+    /**
+     * set based variant of {@link #getInventory(BlockTypeStrategyParam, StockLevelModel)}. The inventory blocks of all
+     * stock levels are prefetched with one query per {@value #IN_QUERY_BATCH_SIZE} stock levels instead of lazily
+     * loading {@link StockLevelModel#getInventoryBlocks()} per stock level, then the block type selection runs over the
+     * preloaded blocks.
+     *
+     * @param mapParam    the {@link BlockTypeStrategyParam}
+     * @param stockLevels the {@link List} of {@link StockLevelModel}
+     * @return the {@link List} of {@link InventoryBlockModel} in the order of the stockLevels
+     */
+    public List<InventoryBlockModel> getInventory(final BlockTypeStrategyParam mapParam, final List<StockLevelModel> stockLevels){
+
+        return getInventory(InventoryCriteria.from(mapParam), stockLevels);
+    }
+
+    /**
+     * typed variant of {@link #getInventory(BlockTypeStrategyParam, List)}, the criteria are shared by all parallel
+     * workers.
+     *
+     * @param criteria    the {@link InventoryCriteria}
+     * @param stockLevels the {@link List} of {@link StockLevelModel}
+     * @return the {@link List} of {@link InventoryBlockModel} in the order of the stockLevels
+     */
+    public List<InventoryBlockModel> getInventory(final InventoryCriteria criteria, final List<StockLevelModel> stockLevels){
+
+        if (CollectionUtils.isEmpty(stockLevels)) {
+            return new ArrayList<>();
+        }
+        return getInventory(criteria, stockLevels, prefetchInventoryBlocks(stockLevels));
+    }
+
+    private List<InventoryBlockModel> getInventory(final InventoryCriteria criteria, final List<StockLevelModel> stockLevels,
+                    final Map<PK, List<InventoryBlockModel>> inventoryBlocksByStockLevel){
+
+        return mapInChunks(stockLevels, chunk -> {
+            final BlockTypeStrategyParam blockTypeStrategyParam = criteria.toBlockTypeStrategyParam();
+            final List<InventoryBlockModel> inventoryBlocks = new ArrayList<>(chunk.size());
+            for (final StockLevelModel stockLevelModel : chunk) {
+                if (isInventoryBlockManaged(stockLevelModel)) {
+                    inventoryBlocks.add(selectInventoryBlock(blockTypeStrategyParam,
+                                    inventoryBlocksByStockLevel.getOrDefault(stockLevelModel.getPk(), Collections.emptyList())));
+                } else {
+                    inventoryBlocks.add(createStockLevelInventoryBlock(stockLevelModel));
+                }
+            }
+            return inventoryBlocks;
+        });
+    }
+
+    /**
+     * maps the items chunk by chunk. With an {@link #setInventoryExecutor(ExecutorService) inventoryExecutor}
+     * configured and at least {@link #setParallelInventoryThreshold(int) parallelInventoryThreshold} items, the chunks
+     * run in parallel on at most {@link #setInventoryParallelism(int) inventoryParallelism} workers, each working in
+     * the tenant and session of the caller. Local views are bound to the thread that opened them, so each worker maps
+     * its chunk in a local view of its own with the session context attributes the caller sees, e.g. the parameters
+     * of an enclosing {@link SessionService#executeInLocalViewWithParams}. Each worker gets its own tenant and session
+     * back afterwards, so the executor may run chunks on the calling thread. Otherwise all items are mapped as one
+     * chunk on the calling thread.
+     *
+     * @param items       the items to map
+     * @param chunkMapper maps one chunk, must not share mutable state with other chunks
+     * @return the mapped items in the order of the items
+     */
+    private <T, R> List<R> mapInChunks(final List<T> items, final Function<List<T>, List<R>> chunkMapper){
+
+        final ExecutorService executor = getInventoryExecutor();
+        if (executor == null || items.size() < Math.max(2, getParallelInventoryThreshold())) {
+            return chunkMapper.apply(items);
+        }
+        final int parallelism = Math.max(1, getInventoryParallelism());
+        final int chunkSize = Math.max(getParallelInventoryThreshold(), (items.size() + parallelism - 1) / parallelism);
+        final Tenant tenant = Registry.getCurrentTenant();
+        final JaloSession session = JaloSession.getCurrentSession();
+        final Map<String, Object> sessionAttributes = new HashMap<>(session.getSessionContext().getAttributes());
+        final List<Callable<List<R>>> tasks = new ArrayList<>();
+        for (final List<T> chunk : Lists.partition(items, chunkSize)) {
+            tasks.add(() -> {
+                final Tenant previousTenant = Registry.hasCurrentTenant() ? Registry.getCurrentTenant() : null;
+                final JaloSession previousSession = JaloSession.hasCurrentSession() ? JaloSession.getCurrentSession() : null;
+                Registry.setCurrentTenant(tenant);
+                session.activate();
+                try {
+                    return getSessionService().executeInLocalViewWithParams(sessionAttributes, new SessionExecutionBody(){
+
+                        @Override
+                        public Object execute(){
+
+                            return chunkMapper.apply(chunk);
+                        }
+                    });
+                } finally {
+                    TenantSessions.restore(previousTenant, previousSession);
+                }
+            });
+        }
+        try {
+            final List<R> results = new ArrayList<>(items.size());
+            for (final Future<List<R>> chunkResult : executor.invokeAll(tasks)) {
+                results.addAll(chunkResult.get());
+            }
+            return results;
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Parallel inventory calculation failed", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during parallel inventory calculation", e);
+        }
+    }
+
+    /*
+     * Gets the offering by offering code
+     *
+     * @see
+     * com.rccl.core.product.service.RcclStockService#getOfferingByCode(java.lang.
+     * String)
+     */
+    @Override
+    public OfferingModel getOfferingByCode(final String offeringCode){
+        return timed("service.getOfferingByCode", () -> lookupModel(OFFERING_BY_CODE_REGION, offeringCode,
+                        () -> timed("dao.getOfferingByCode", () -> getRcclStockDao().getOfferingByCode(offeringCode))));
+    }
+    
+    @Override
+    public OfferingModel getOfferingById(final String offeringId){
+        return timed("service.getOfferingById", () -> lookupModel(OFFERING_BY_ID_REGION, offeringId,
+                        () -> timed("dao.getOfferingById", () -> getRcclStockDao().getOfferingById(offeringId))));
+    }
+
+    /**
+     * validates the Offering is valid at current time ot not
+     *
+     * @param offeringModel the {@link OfferingModel}
+     * @return tru or false
+     */
+    @Override
+    public boolean isValidOffering(final OfferingModel offeringModel){
+
+        return timed("service.isValidOffering", () -> isValidOffering(offeringModel, getTimeService().getCurrentTime()));
+    }
+
+    /**
+     * validates the Offering is valid at the given time or not. Callers checking many offerings read the current time
+     * once and pass it here, so all offerings of one request expire against the same time.
+     *
+     * @param offeringModel the {@link OfferingModel}
+     * @param now           the time to validate against
+     * @return true or false
+     */
+    public boolean isValidOffering(final OfferingModel offeringModel, final Date now){
+
+        return offeringModel != null && offeringModel.isActive() && offeringModel.getOfferingTime() != null && now
+                        .before(offeringModel.getOfferingTime());
+    }
+
+    /**
+     * find the offerings of a product and sailing starting in the given range, answered from an index ordered by
+     * {@link OfferingModel#getOfferingTime()} which is built once per product and sailing.
+     *
+     * @param productCode the product code
+     * @param sailing     the sailing code
+     * @param from        the start of the range, inclusive
+     * @param to          the end of the range, exclusive
+     * @param validOnly   if true, only offerings valid at the current time are returned
+     * @return the offerings ordered by offeringTime
+     */
+    public List<OfferingModel> getOfferingsBetween(final String productCode, final String sailing, final Date from, final Date to,
+                    final boolean validOnly){
+
+        validateParameterNotNull(from, "from can't be null");
+        validateParameterNotNull(to, "to can't be null");
+        return timedResult("service.getOfferingsBetween", () -> {
+            final List<OfferingModel> offerings = resolveModels(getOfferingTimeIndex(productCode, sailing).between(from, to));
+            if (!validOnly) {
+                return new ArrayList<>(offerings);
+            }
+            final Date now = getTimeService().getCurrentTime();
+            return offerings.stream().filter(offering -> isValidOffering(offering, now)).collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * find the offering of a product and sailing starting closest to the given time.
+     *
+     * @param productCode the product code
+     * @param sailing     the sailing code
+     * @param time        the time
+     * @return the nearest {@link OfferingModel}, null if the product has no offering on the sailing
+     */
+    public OfferingModel getNearestOffering(final String productCode, final String sailing, final Date time){
+
+        validateParameterNotNull(time, "time can't be null");
+        return timed("service.getNearestOffering", () -> {
+            final PK pk = getOfferingTimeIndex(productCode, sailing).nearest(time);
+            return pk != null ? getModelService().<OfferingModel>get(pk) : null;
+        });
+    }
+
+    /**
+     * the index holds the {@link PK}s of the offerings only, their times are read once when it is built
+     */
+    private TimeOrderedIndex<PK> getOfferingTimeIndex(final String productCode, final String sailing){
+
+        final Supplier<TimeOrderedIndex<PK>> loader = () -> {
+            final List<OfferingModel> offerings = getOfferingBySailingAndProductCode(productCode, sailing);
+            final Map<PK, Date> offeringTimes = new LinkedHashMap<>();
+            if (offerings != null) {
+                offerings.forEach(offering -> offeringTimes.put(offering.getPk(), offering.getOfferingTime()));
+            }
+            return new TimeOrderedIndex<>(offeringTimes.keySet(), offeringTimes::get);
+        };
+        return lookup(OFFERING_TIME_INDEX_REGION, productCode + KEY_SEPARATOR + sailing, loader);
+    }
+
+    @Override
+    public InventoryBlockModel getInventory(final BlockTypeStrategyParam blockTypeStrategyParam, final StockLevelModel stockLevelModel){
+
+        return getInventory(InventoryCriteria.from(blockTypeStrategyParam), stockLevelModel);
+    }
+
+    /**
+     * typed variant of {@link #getInventory(BlockTypeStrategyParam, StockLevelModel)}
+     *
+     * @param criteria        the {@link InventoryCriteria}
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @return the selected {@link InventoryBlockModel}
+     */
+    public InventoryBlockModel getInventory(final InventoryCriteria criteria, final StockLevelModel stockLevelModel){
+
+        return timed("service.getInventory", () -> {
+            if (isInventoryBlockManaged(stockLevelModel) && stockLevelModel.getInventoryBlocks() != null) {
+                return selectInventoryBlock(criteria.toBlockTypeStrategyParam(), stockLevelModel.getInventoryBlocks());
+            } else {
+                return createStockLevelInventoryBlock(stockLevelModel);
+            }
+        });
+    }
+
+    /**
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @return if the stock of the stockLevel is kept in {@link InventoryBlockModel}s
+     */
+    private boolean isInventoryBlockManaged(final StockLevelModel stockLevelModel){
+
+        return InStockStatus.NOTSPECIFIED.equals(stockLevelModel.getInStockStatus());
+    }
+
+    /**
+     * runs the block type selection of {@link RcclBlockTypeListBeanPostProcessor} over the inventoryBlocks. The param
+     * comes from {@link InventoryCriteria#toBlockTypeStrategyParam()} once per calculation or chunk, only its
+     * {@link BlockTypeStrategyParam#INVENTROY_BLOCKS} are replaced per selection, so it must not be shared by threads.
+     *
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam} of the criteria
+     * @param inventoryBlocks        the candidate {@link InventoryBlockModel}s of one stock level
+     * @return the selected {@link InventoryBlockModel}
+     */
+    private InventoryBlockModel selectInventoryBlock(final BlockTypeStrategyParam blockTypeStrategyParam,
+                    final Collection<InventoryBlockModel> inventoryBlocks){
+
+        blockTypeStrategyParam.putValue(BlockTypeStrategyParam.INVENTROY_BLOCKS, inventoryBlocks);
+        return timed("blockType.getInventoryBlock", () -> getBlockTypeListBeanPostProcessor().getInventoryBlock(blockTypeStrategyParam));
+    }
+
+    /**
+     * @param stockLevelModel the {@link StockLevelModel} not managed by inventory blocks
+     * @return a transient {@link InventoryBlockModel} standing for the whole stockLevel
+     */
+    private InventoryBlockModel createStockLevelInventoryBlock(final StockLevelModel stockLevelModel){
+
+        final InventoryBlockModel inventoryBlock = new InventoryBlockModel();
+        //inventoryBlock.setCode(stockLevelModel.getItemCode());
+        inventoryBlock.setCode(stockLevelModel.getId());
+        inventoryBlock.setStocklevel(stockLevelModel);
+        return inventoryBlock;
+    }
+
+    /**
+     * loads the {@link InventoryBlockModel}s of all stock levels managed by inventory blocks in one pass.
+     *
+     * @param stockLevels the {@link StockLevelModel}s
+     * @return the {@link InventoryBlockModel}s grouped by the {@link PK} of their stock level
+     */
+    private Map<PK, List<InventoryBlockModel>> prefetchInventoryBlocks(final List<StockLevelModel> stockLevels){
+
+        final List<StockLevelModel> managedStockLevels = stockLevels.stream().filter(this::isInventoryBlockManaged).distinct()
+                        .collect(Collectors.toList());
+        if (managedStockLevels.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final List<InventoryBlockModel> inventoryBlocks = searchInBatches(INVENTORY_BLOCKS_BY_STOCK_LEVEL_QUERY, managedStockLevels);
+        return inventoryBlocks.stream().collect(Collectors.groupingBy(inventoryBlock -> inventoryBlock.getStocklevel().getPk(),
+                        LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * creates the inventory fetch key according to the inventory retrival critaria.
+     * Helps avoiding redundant retrieval execution for same critarias.
+     *
+     * @param travellerModel  the {@link TravellerModel}
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @param productModel    the {@link ProductModel}, required without stockLevelModel
+     * @return the Key
+     */
+    @Override
+    public String createInventoryFetchKey(final TravellerModel travellerModel, final @Nonnull ProductModel productModel,
+                    final StockLevelModel stockLevelModel){
+
+        /*
+         * TODO : to be enhanced after the complete implementation of
+         * inventoryBlockStrategy
+         */
+        if (stockLevelModel != null) {
+            return getInventoryFetchKey(stockLevelModel);
+        } else {
+            return productModel.getCode();
+        }
+    }
+
+
+    /**
+     * calculates Inventory. Uses
+     * {@link RcclStockService#getInventory(BlockTypeStrategyParam, StockLevelModel)}
+     * If {@link #setInventoryFetchMemoMillis(long) inventoryFetchMemoMillis} is set, the result is memoized by this
+     * service for that long per fetch key and base store, concurrent fetches for the same key are calculated once. The
+     * memo is shared by all sessions and never stored in one. Every caller gets its own copy of the memoized
+     * {@link InventoryDto}.
+     *
+     * @param travellerModel  the {@link TravellerModel}
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @param baseStore       the {@link BaseStoreModel} current BaseStore
+     * @return the {@link InventoryDto}
+     */
+    @Override
+    public InventoryDto fetchInventory(final TravellerModel travellerModel, final StockLevelModel stockLevelModel,
+                    final BaseStoreModel baseStore){
+
+        return timed("service.fetchInventory", () -> {
+            final SingleFlightMemo<InventoryDto> inventoryFetchMemo = getInventoryFetchMemo();
+            if (inventoryFetchMemo == null || stockLevelModel == null) {
+                return calculateInventory(travellerModel, stockLevelModel, baseStore);
+            }
+            return copyInventoryDto(inventoryFetchMemo.get(createInventoryMemoKey(stockLevelModel, baseStore),
+                            () -> calculateInventory(travellerModel, stockLevelModel, baseStore)));
+        });
+    }
+
+    private InventoryDto calculateInventory(final TravellerModel travellerModel, final StockLevelModel stockLevelModel,
+                    final BaseStoreModel baseStore){
+
+        return calculateInventory(InventoryCriteria.of(baseStore, travellerModel, false), stockLevelModel);
+    }
+
+    /**
+     * @return the {@link SingleFlightMemo} of this service, a new one once a reservation was released or the memo
+     * expired. {@code null} if memoization is switched off.
+     */
+    private SingleFlightMemo<InventoryDto> getInventoryFetchMemo(){
+
+        if (getInventoryFetchMemoMillis() <= 0) {
+            return null;
+        }
+        final long generation = inventoryGeneration.get();
+        return inventoryFetchMemo.updateAndGet(memo -> memo != null && memo.isValid(generation, getInventoryFetchMemoMillis())
+                        ? memo : new SingleFlightMemo<>(generation));
+    }
+
+    /**
+     * @param stockLevelModel the {@link StockLevelModel}
+     * @return the inventory fetch key of the stockLevel
+     * @see #createInventoryFetchKey(TravellerModel, ProductModel, StockLevelModel)
+     */
+    private static String getInventoryFetchKey(final StockLevelModel stockLevelModel){
+
+        return stockLevelModel.getItemCode();
+    }
+
+    /**
+     * extends the inventory fetch key of the stockLevel by the base store the inventory is fetched for.
+     */
+    private static String createInventoryMemoKey(final StockLevelModel stockLevelModel, final BaseStoreModel baseStore){
+
+        return getInventoryFetchKey(stockLevelModel) + KEY_SEPARATOR + (baseStore != null ? baseStore.getPk() : null);
+    }
+
+    private static InventoryDto copyInventoryDto(final InventoryDto inventoryDto){
+
+        if (inventoryDto == null) {
+            return null;
+        }
+        final InventoryDto copy = new InventoryDto();
+        copy.setForceInStock(inventoryDto.isForceInStock());
+        copy.setInventoryBlock(inventoryDto.getInventoryBlock());
+        copy.setStockLevel(inventoryDto.getStockLevel());
+        copy.setStockLevelStatus(inventoryDto.getStockLevelStatus());
+        copy.setExpired(inventoryDto.isExpired());
+        copy.setAvailableQty(inventoryDto.getAvailableQty());
+        copy.setInventoryAvailable(inventoryDto.isInventoryAvailable());
+        return copy;
+    }
+
+    /**
+     * convert the {@link InventoryBlockModel} to {@link InventoryDto} calculate
+     * availableQty, stockStatus, inventoryAvailable and set in {@link InventoryDto}
+     *
+     * @param includeSoldOutOfferings the boolean
+     * @param inventoryBlock          the {@link InventoryBlockModel}
+     * @param now                     the time the offering expiry is evaluated against
+     * @return the {@link InventoryDto}
+     */
+    private InventoryDto getInventoryDto(final boolean includeSoldOutOfferings, final InventoryBlockModel inventoryBlock,
+                    final Date now){
+
+        final InventoryEvaluation evaluation = evaluateInventory(includeSoldOutOfferings, inventoryBlock, now);
+        final InventoryDto inventoryDto = new InventoryDto();
+        inventoryDto.setForceInStock(evaluation.isForceInStock());
+        inventoryDto.setInventoryBlock(inventoryBlock);
+        inventoryDto.setStockLevel(evaluation.getStockLevel());
+        inventoryDto.setStockLevelStatus(evaluation.getStatus());
+        inventoryDto.setExpired(evaluation.isExpired());
+        inventoryDto.setAvailableQty(evaluation.getAvailableQty());
+        if (includeSoldOutOfferings) {
+            inventoryDto.setInventoryAvailable(evaluation.isInventoryAvailable());
+        }
+        return inventoryDto;
+    }
+
+    /**
+     * evaluates status, availableQty, expired and inventoryAvailable of the inventory block in one pass. Every
+     * attribute of the block and its stock level is read once through the model layer, status and available quantity
+     * come from the {@link AvailabilityIndex} or one call of each strategy.
+     *
+     * @param includeSoldOutOfferings if inventoryAvailable is evaluated
+     * @param inventoryBlock          the {@link InventoryBlockModel}
+     * @param now                     the time the offering expiry is evaluated against
+     * @return the {@link InventoryEvaluation}
+     */
+    private InventoryEvaluation evaluateInventory(final boolean includeSoldOutOfferings, final InventoryBlockModel inventoryBlock,
+                    final Date now){
+
+        final StockLevelModel stockLevelModel = inventoryBlock.getStocklevel();
+        final boolean forceInStock = InStockStatus.FORCEINSTOCK.equals(stockLevelModel.getInStockStatus());
+        final boolean active = stockLevelModel.isActive();
+        final Date offeringTime = stockLevelModel instanceof OfferingModel ? ((OfferingModel) stockLevelModel).getOfferingTime() : null;
+        final boolean expired =
+                        !active || (stockLevelModel instanceof OfferingModel && (offeringTime == null || !now.before(offeringTime)));
+        final String code = inventoryBlock.getCode();
+        final long version = getAvailabilityVersion(inventoryBlock, stockLevelModel);
+        final BlockAvailability availability = getBlockAvailability(inventoryBlock, code, version);
+        final StockLevelStatus status = availability.getStatus();
+        final Long availableQty = availability.getAvailableQty();
+        final boolean inventoryAvailable = includeSoldOutOfferings && (StockLevelStatus.INSTOCK.equals(status) || (availableQty != null
+                        && availableQty > 0));
+        return new InventoryEvaluation(code, stockLevelModel, status, availableQty, expired, forceInStock, inventoryAvailable);
+    }
+
+    /**
+     * serves status and available quantity of persisted inventory blocks from the {@link AvailabilityIndex} as long as
+     * the block and its stock level are unchanged, otherwise calculates them through {@link #checkStatus} and
+     * {@link #calculateAvailability} and indexes the result.
+     *
+     * @param inventoryBlock the {@link InventoryBlockModel}
+     * @param code           the code of the inventory block
+     * @param version        the availability version of the inventory block
+     * @return the {@link BlockAvailability}
+     */
+    private BlockAvailability getBlockAvailability(final InventoryBlockModel inventoryBlock, final String code, final long version){
+
+        final AvailabilityIndex index = getAvailabilityIndex();
+        if (index == null || inventoryBlock.getPk() == null) {
+            return calculateBlockAvailability(inventoryBlock);
+        }
+        final AvailabilityIndex.Availability indexed = new AvailabilityIndex.Availability();
+        if (index.get(code, version, indexed)) {
+            return new BlockAvailability(indexed.getStatus() == AvailabilityIndex.NO_STATUS ? null : INDEXED_STATUSES[indexed.getStatus()],
+                            indexed.hasAvailableQty() ? Long.valueOf(indexed.getAvailableQty()) : null);
+        }
+        final BlockAvailability availability = calculateBlockAvailability(inventoryBlock);
+        indexAvailability(index, inventoryBlock, version, availability);
+        return availability;
+    }
+
+    private BlockAvailability calculateBlockAvailability(final InventoryBlockModel inventoryBlock){
+
+        return new BlockAvailability(checkStatus(inventoryBlock), calculateAvailability(inventoryBlock));
+    }
+
+    /**
+     * recalculates the indexed availability of the inventory block after its reservation changed
+     *
+     * @param inventoryBlock the refreshed {@link InventoryBlockModel}
+     */
+    private void reindexAvailability(final InventoryBlockModel inventoryBlock){
+
+        final AvailabilityIndex index = getAvailabilityIndex();
+        if (index != null) {
+            indexAvailability(index, inventoryBlock, getAvailabilityVersion(inventoryBlock), calculateBlockAvailability(inventoryBlock));
+        }
+    }
+
+    private void indexAvailability(final AvailabilityIndex index, final InventoryBlockModel inventoryBlock, final long version,
+                    final BlockAvailability availability){
+
+        final int status = availability.getStatus() == null ? AvailabilityIndex.NO_STATUS :
+                        Arrays.asList(INDEXED_STATUSES).indexOf(availability.getStatus());
+        if (status == -1 && availability.getStatus() != null) {
+            index.invalidate(inventoryBlock.getCode());
+            return;
+        }
+        final Long availableQty = availability.getAvailableQty();
+        index.put(inventoryBlock.getCode(), version, (byte) status, availableQty != null, availableQty != null ? availableQty : 0L);
+    }
+
+    /**
+     * @param inventoryBlock the {@link InventoryBlockModel}
+     * @return the version of the data the availability of the inventory block is calculated from
+     */
+    private static long getAvailabilityVersion(final InventoryBlockModel inventoryBlock){
+
+        return getAvailabilityVersion(inventoryBlock, inventoryBlock.getStocklevel());
+    }
+
+    /**
+     * the version hashes the reserved quantities and the available quantity along with the modification times, like
+     * {@link #getInventoryVersion(String, String)}. Releases only update the reserved quantity, and modification times
+     * have a precision of one second, so two changes within the same second still change the version.
+     *
+     * @param inventoryBlock  the {@link InventoryBlockModel}
+     * @param stockLevelModel the {@link StockLevelModel} of the inventory block, may be {@code null}
+     * @return the version of the data the availability of the inventory block is calculated from
+     */
+    private static long getAvailabilityVersion(final InventoryBlockModel inventoryBlock, final StockLevelModel stockLevelModel){
+
+        long version = getTime(inventoryBlock.getModifiedtime());
+        version = 31 * version + Objects.hashCode(inventoryBlock.getReserved());
+        if (stockLevelModel != null) {
+            version = 31 * version + getTime(stockLevelModel.getModifiedtime());
+            version = 31 * version + stockLevelModel.getReserved();
+            version = 31 * version + stockLevelModel.getAvailable();
+        }
+        return version;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.rccl.core.product.service.RcclStockService#checkStatus(com.rccl.core.
+     * model.InventoryBlockModel)
+     */
+    @Override
+    public StockLevelStatus checkStatus(final InventoryBlockModel inventoryBlockModel){
+
+        // YTODO Auto-generated method stub
+        return timed("strategy.checkStatus", () -> getStatusStrategy().checkStatus(inventoryBlockModel));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.rccl.core.product.service.RcclStockService#calculateAvailability(com.
+     * rccl.core.model.InventoryBlockModel)
+     */
+    @Override
+    public Long calculateAvailability(final InventoryBlockModel inventoryBlockModel){
+
+        // YTODO Auto-generated method stub
+        return timed("strategy.calculateAvailability", () -> getAvailableStrategy().calculateAvailability(inventoryBlockModel));
+    }
+
+    /**
+     * Gets the stock level for item code.
+     *
+     * @param itemCode the item code
+     * @return the stock level for item code
+     */
+
+    @Override
+    public StockLevelModel getStockLevelForItemCode(final String itemCode){
+
+        return timed("service.getStockLevelForItemCode", () -> {
+            final List<StockLevelModel> stockLevelModel =
+                            timedResult("dao.getStockLevelByItemcode", () -> getRcclStockDao().getStockLevelByItemcode(itemCode));
+            return CollectionUtils.isNotEmpty(stockLevelModel) ? stockLevelModel.get(0) : null;
+        });
+    }
+    
+    public StockLevelModel getStockLevelForID(final String id){
+        return timed("service.getStockLevelForID", () -> {
+            final List<StockLevelModel> stockLevelModel =
+                            timedResult("dao.getStockLevelByID", () -> getRcclStockDao().getStockLevelByID(id));
+            return CollectionUtils.isNotEmpty(stockLevelModel) ? stockLevelModel.get(0) : null;
+        });
+    }    
+
+    /**
+     * looks up the {@link StockLevelModel}s whose attribute matches one of the values. Like
+     * {@link #getStockLevelByItemCode(String)} the first match wins if a value is not unique.
+     *
+     * @param attribute    the {@link StockLevelModel} attribute to match
+     * @param values       the values to look up, blank values are ignored
+     * @param keyExtractor reads the attribute back from a found {@link StockLevelModel}
+     * @return the {@link StockLevelModel}s keyed by attribute value
+     */
+    private Map<String, StockLevelModel> findStockLevelsByAttribute(final String attribute, final Collection<String> values,
+                    final Function<StockLevelModel, String> keyExtractor){
+
+        validateParameterNotNull(values, "values cannot be null");
+        final List<String> distinctValues = values.stream().filter(StringUtils::isNotBlank).distinct().collect(Collectors.toList());
+        final Map<String, StockLevelModel> stockLevels = new HashMap<>();
+        final List<StockLevelModel> results = searchInBatches(String.format(STOCK_LEVELS_BY_ATTRIBUTE_QUERY, attribute), distinctValues);
+        results.forEach(stockLevel -> stockLevels.putIfAbsent(keyExtractor.apply(stockLevel), stockLevel));
+        return stockLevels;
+    }
+
+    /**
+     * runs the IN-query once per {@value #IN_QUERY_BATCH_SIZE} values to stay below the database limits for IN-lists.
+     *
+     * @param query  the flexible search query, with the {@value #IN_QUERY_VALUES} parameter as IN-list
+     * @param values the values for the IN-list
+     * @return the results of all batches
+     */
+    private <T> List<T> searchInBatches(final String query, final List<?> values){
+
+        final List<T> results = new ArrayList<>(values.size());
+        for (final List<?> batch : Lists.partition(values, IN_QUERY_BATCH_SIZE)) {
+            final FlexibleSearchQuery searchQuery = new FlexibleSearchQuery(query, Collections.singletonMap(IN_QUERY_VALUES, batch));
+            results.addAll(timedResult("dao.flexibleSearch", () -> getFlexibleSearchService().<T>search(searchQuery).getResult()));
+        }
+        return results;
+    }
+
+    /**
+     * This method is used to release the order entries from the respective inventory blocks
+     * Based on the quantity of order.
+     *
+     * @param orderEntries
+     * @see #releaseInventoryBatch(List)
+     */
+    @Override
+    public void releaseInventory(final List<OrderCancelEntry> orderEntries){
+
+        timed("service.releaseInventory", () -> releaseInventoryBatch(orderEntries));
+    }
+
+    /**
+     * Releases the order entries grouped by inventory block. The cancelled quantities
+     * of the entries of a block are released in entry order with one batch of atomic updates per block, so the result
+     * is the same as releasing the entries one by one.
+     * <p>
+     * With a {@link #setReleaseJournal(ReleaseJournal) releaseJournal} configured the release is write-behind: the
+     * quantities are appended to the journal and acknowledged once they are on disk, the database is updated by
+     * {@link #flushReleaseJournal()}. If the journal is full, the entries are released synchronously.
+     * <p>
+     * Every entry is recorded with its cancel reason, notes and outcome in the {@link #setReleaseAuditLog(ReleaseAuditLog)
+     * releaseAuditLog}, if one is configured.
+     *
+     * @param orderEntries the {@link OrderCancelEntry}s to release
+     * @return per inventory block code if the reservation was released or journaled
+     * @see #releaseInternal(InventoryBlockModel, List)
+     */
+    public Map<String, Boolean> releaseInventoryBatch(final List<OrderCancelEntry> orderEntries){
+
+        validateParameterNotNull(orderEntries, "orderEntries cannot be null");
+        final Map<String, List<Integer>> qtyByInventoryBlock = new LinkedHashMap<>();
+        final List<OrderCancelEntry> releasedEntries = new ArrayList<>(orderEntries.size());
+        orderEntries.stream().forEach(orderCancelEntry ->{
+            final AbstractOrderEntryModel orderEntry = orderCancelEntry.getOrderEntry();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(String.format("Cancelling %s Order Entry in Order %s", orderEntry.getEntryNumber(),
+                                orderEntry.getOrder().getCode()));
+            }
+            final int qtyToBeReleased = (int) orderCancelEntry.getCancelQuantity();
+            if (qtyToBeReleased <= 0) {
+                LOG.error("Quantity to be released must be greater than zero.");
+                auditRelease(orderCancelEntry, ReleaseAuditLog.Outcome.REJECTED);
+            } else if (orderEntry.getInventoryBlock() != null) {
+                qtyByInventoryBlock.computeIfAbsent(orderEntry.getInventoryBlock(), code -> new ArrayList<>()).add(qtyToBeReleased);
+                releasedEntries.add(orderCancelEntry);
+            }
+        });
+        if (qtyByInventoryBlock.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        final ReleaseJournal journal = getReleaseJournal();
+        if (journal != null) {
+            try {
+                timed("journal.append", () -> {
+                    try {
+                        return journal.append(qtyByInventoryBlock);
+                    } catch (final IOException e) {
+                        throw new IllegalStateException("Release journal could not be written", e);
+                    }
+                });
+                final Map<String, Boolean> journaled = new LinkedHashMap<>();
+                qtyByInventoryBlock.keySet().forEach(inventoryBlockId -> journaled.put(inventoryBlockId, Boolean.TRUE));
+                releasedEntries.forEach(orderCancelEntry -> auditRelease(orderCancelEntry, ReleaseAuditLog.Outcome.JOURNALED));
+                return journaled;
+            } catch (final IllegalStateException e) {
+                LOG.warn(String.format("Releasing %s inventory blocks synchronously: %s", qtyByInventoryBlock.size(), e.getMessage()));
+            }
+        }
+        final Map<String, Boolean> released = new LinkedHashMap<>();
+        try {
+            releaseByInventoryBlock(qtyByInventoryBlock, released,
+                            (inventoryBlock, qtyToBeReleased) -> getInventoryReservationDao().release(inventoryBlock, qtyToBeReleased));
+        } finally {
+            releasedEntries.forEach(orderCancelEntry -> auditRelease(orderCancelEntry,
+                            BooleanUtils.isTrue(released.get(orderCancelEntry.getOrderEntry().getInventoryBlock())) ?
+                                            ReleaseAuditLog.Outcome.RELEASED : ReleaseAuditLog.Outcome.FAILED));
+        }
+        return released;
+    }
+
+    /**
+     * records the release of the order entry in the {@link #setReleaseAuditLog(ReleaseAuditLog) releaseAuditLog}. Only
+     * references are handed over, the event is formatted and written by the audit writer.
+     *
+     * @param orderCancelEntry the {@link OrderCancelEntry}
+     * @param outcome          the {@link ReleaseAuditLog.Outcome}
+     */
+    private void auditRelease(final OrderCancelEntry orderCancelEntry, final ReleaseAuditLog.Outcome outcome){
+
+        final ReleaseAuditLog auditLog = getReleaseAuditLog();
+        if (auditLog == null) {
+            return;
+        }
+        final AbstractOrderEntryModel orderEntry = orderCancelEntry.getOrderEntry();
+        final Integer entryNumber = orderEntry.getEntryNumber();
+        auditLog.record(System.currentTimeMillis(), orderEntry.getInventoryBlock(),
+                        orderEntry.getOrder() != null ? orderEntry.getOrder().getCode() : null, entryNumber != null ? entryNumber : -1,
+                        (int) orderCancelEntry.getCancelQuantity(),
+                        orderCancelEntry.getCancelReason() != null ? orderCancelEntry.getCancelReason().getCode() : null,
+                        orderCancelEntry.getNotes(), outcome);
+    }
+
+    /**
+     * applies the released quantities of the {@link #setReleaseJournal(ReleaseJournal) releaseJournal} to the database
+     * in one batch per flush and checkpoints them. Runs every releaseJournalFlushMillis once
+     * {@link #startReleaseJournal()} was called, the deltas replayed from the journal after a restart are applied by
+     * the first flush. Releases of unknown inventory blocks are logged and dropped as in synchronous mode.
+     * <p>
+     * The deltas are released with {@link RcclInventoryReservationDao#release(InventoryBlockModel, String, NavigableMap)},
+     * which records the last applied journal sequence per block in the transaction of the release. A flush which failed
+     * or died after some blocks were released is not checkpointed, the next flush or the replay after a restart skips
+     * the deltas already applied, so no delta is released twice.
+     * <p>
+     * Flushes are mutually exclusive, a flush never takes a batch another flush is still applying.
+     */
+    public void flushReleaseJournal(){
+
+        final ReleaseJournal journal = getReleaseJournal();
+        if (journal == null) {
+            return;
+        }
+        synchronized (releaseJournalFlushLock) {
+            flushReleaseJournal(journal);
+        }
+    }
+
+    private void flushReleaseJournal(final ReleaseJournal journal){
+
+        final ReleaseJournal.Batch batch = journal.pending();
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Map<String, Boolean> released = new LinkedHashMap<>();
+        final String journalId = journal.getId();
+        timed("journal.flush", () -> {
+            releaseByInventoryBlock(batch.getQuantitiesBySequence(), released,
+                            (inventoryBlock, quantities) -> getInventoryReservationDao().release(inventoryBlock, journalId, quantities));
+            return released;
+        });
+        final ReleaseAuditLog auditLog = getReleaseAuditLog();
+        final long now = System.currentTimeMillis();
+        released.forEach((inventoryBlockId, applied) -> {
+            if (!applied) {
+                LOG.error(String.format("Journaled release of inventory block %s could not be applied", inventoryBlockId));
+            }
+            if (auditLog != null) {
+                auditLog.record(now, inventoryBlockId, null, -1,
+                                batch.getQuantitiesBySequence().get(inventoryBlockId).values().stream().mapToInt(Integer::intValue).sum(),
+                                null, null,
+                                applied ? ReleaseAuditLog.Outcome.RELEASED : ReleaseAuditLog.Outcome.FAILED);
+            }
+        });
+        journal.checkpoint(batch.getLastSequence());
+    }
+
+    /**
+     * starts flushing the {@link #setReleaseJournal(ReleaseJournal) releaseJournal} in the background, meant to be
+     * the init method of the bean. Each flush runs in the tenant of the caller within a session of its own.
+     */
+    public void startReleaseJournal(){
+
+        if (getReleaseJournal() == null || releaseJournalFlusher != null) {
+            return;
+        }
+        final Tenant tenant = Registry.getCurrentTenant();
+        releaseJournalFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "rccl-release-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        releaseJournalFlusher.scheduleWithFixedDelay(() -> {
+            try {
+                TenantSessions.execute(tenant, () -> flushReleaseJournal());
+            } catch (final RuntimeException e) {
+                LOG.error("Release journal could not be flushed, retrying", e);
+            }
+        }, 0L, getReleaseJournalFlushMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stops the background flusher, waits for a running flush to finish, flushes what is left and closes the journal,
+     * meant to be the destroy method of the bean
+     */
+    public void stopReleaseJournal(){
+
+        final ReleaseJournal journal = getReleaseJournal();
+        if (journal == null) {
+            return;
+        }
+        if (releaseJournalFlusher != null) {
+            releaseJournalFlusher.shutdown();
+            try {
+                while (!releaseJournalFlusher.awaitTermination(getReleaseJournalFlushMillis(), TimeUnit.MILLISECONDS)) {
+                    LOG.info("Waiting for the running release journal flush to finish");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            releaseJournalFlusher = null;
+        }
+        try {
+            flushReleaseJournal();
+        } catch (final RuntimeException e) {
+            LOG.error("Release journal could not be flushed on shutdown, it is replayed on the next start", e);
+        }
+        try {
+            journal.close();
+        } catch (final IOException e) {
+            LOG.error("Release journal could not be closed", e);
+        }
+    }
+
+    /**
+     * releases the quantities per inventory block code in order, with one batch of atomic updates per block. The updates
+     * go around the model layer, so there are no interceptors to disable.
+     *
+     * @param qtyByInventoryBlock the quantities to release by inventory block code, in order
+     * @param released            receives per inventory block code if the reservation was released, as soon as it is
+     * @param release             releases the quantities of one inventory block through the
+     *                            {@link RcclInventoryReservationDao}
+     */
+    private <Q> void releaseByInventoryBlock(final Map<String, Q> qtyByInventoryBlock, final Map<String, Boolean> released,
+                    final BiPredicate<InventoryBlockModel, Q> release){
+
+        final Map<String, InventoryBlockModel> inventoryBlocks = new HashMap<>();
+        final List<InventoryBlockModel> foundInventoryBlocks =
+                        searchInBatches(INVENTORY_BLOCKS_BY_CODE_QUERY, new ArrayList<>(qtyByInventoryBlock.keySet()));
+        foundInventoryBlocks.forEach(inventoryBlock -> inventoryBlocks.putIfAbsent(inventoryBlock.getCode(), inventoryBlock));
+
+        qtyByInventoryBlock.forEach((inventoryBlockId, qtyToBeReleased) -> {
+            final InventoryBlockModel inventoryBlock = inventoryBlocks.get(inventoryBlockId);
+            released.put(inventoryBlockId, inventoryBlock != null && releaseInternal(inventoryBlock,
+                            () -> release.test(inventoryBlock, qtyToBeReleased)));
+        });
+    }
+
+    /**
+     * This method is used to release the orders from Inventory Block based on qtyToBeReleased. The reserved quantity
+     * is decremented atomically per quantity by the {@link RcclInventoryReservationDao}.
+     *
+     * @param inventoryBlock the {@link InventoryBlockModel} to release
+     * @param release        releases the quantities of the inventory block through the {@link RcclInventoryReservationDao}
+     * @return if the inventory block was updated
+     */
+    private boolean releaseInternal(final InventoryBlockModel inventoryBlock, final BooleanSupplier release){
+
+        if (!timed("dao.release", release::getAsBoolean)) {
+            LOG.error(String.format("Inventory block %s could not be released", inventoryBlock.getCode()));
+            return false;
+        }
+        getModelService().refresh(inventoryBlock);
+        reindexAvailability(inventoryBlock);
+        publishInvalidation(AVAILABILITY_REGION, inventoryBlock.getCode());
+        inventoryGeneration.incrementAndGet();
+        final StockLevelModel stockLevelModel = inventoryBlock.getStocklevel();
+        evictStockLookups(stockLevelModel);
+        return true;
+    }
+
+    /**
+     * measures the latency of the call in the {@link StockMetrics}
+     *
+     * @param name the name of the call
+     * @param call the call
+     * @return the result of the call
+     */
+    private <T> T timed(final String name, final Supplier<T> call){
+
+        final long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            getStockMetrics().recordLatency(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * measures the latency and the result size of the call in the {@link StockMetrics}
+     *
+     * @param name the name of the call
+     * @param call the call
+     * @return the result of the call
+     */
+    private <T extends Collection<?>> T timedResult(final String name, final Supplier<T> call){
+
+        final T result = timed(name, call);
+        getStockMetrics().recordResultSize(name, result != null ? result.size() : 0);
+        return result;
+    }
+
+    /**
+     * serves the lookup from the {@link StockLookupCache} if one is configured, otherwise loads it directly. The value
+     * is shared by all sessions and threads, models are looked up with {@link #lookupModel(String, String, Supplier)}.
+     *
+     * @param region the lookup region
+     * @param key    the lookup key
+     * @param loader loads the value on a cache miss
+     * @return the value, may be {@code null}
+     */
+    private <T> T lookup(final String region, final String key, final Supplier<T> loader){
+
+        final StockLookupCache cache = getStockLookupCache();
+        if (cache == null || key == null) {
+            return loader.get();
+        }
+        return cache.get(region, key, loader);
+    }
+
+    /**
+     * like {@link #lookup(String, String, Supplier)} for a model. Only the {@link PK} of the model is cached, it is
+     * resolved through the {@link de.hybris.platform.servicelayer.model.ModelService} on every lookup, so the model
+     * comes from the entity cache in the context of the caller and is never shared between sessions.
+     *
+     * @param region the lookup region
+     * @param key    the lookup key
+     * @param loader loads the model on a cache miss
+     * @return the model, may be {@code null}
+     */
+    private <T extends ItemModel> T lookupModel(final String region, final String key, final Supplier<T> loader){
+
+        if (getStockLookupCache() == null || key == null) {
+            return loader.get();
+        }
+        final PK pk = lookup(region, key, () -> {
+            final T model = loader.get();
+            return model != null ? model.getPk() : null;
+        });
+        if (pk == null) {
+            return null;
+        }
+        try {
+            return getModelService().get(pk);
+        } catch (final ModelLoadingException e) {
+            invalidateStockLookup(region, key);
+            return loader.get();
+        }
+    }
+
+    /**
+     * like {@link #lookupModel(String, String, Supplier)} for a list of models
+     */
+    private <T extends ItemModel> List<T> lookupModels(final String region, final String key, final Supplier<List<T>> loader){
+
+        if (getStockLookupCache() == null || key == null) {
+            return loader.get();
+        }
+        final List<PK> pks = lookup(region, key, () -> {
+            final List<T> models = loader.get();
+            return models != null ? models.stream().map(ItemModel::getPk).collect(Collectors.toList()) : null;
+        });
+        if (pks == null) {
+            return null;
+        }
+        try {
+            return resolveModels(pks);
+        } catch (final ModelLoadingException e) {
+            invalidateStockLookup(region, key);
+            return loader.get();
+        }
+    }
+
+    private <T extends ItemModel> List<T> resolveModels(final List<PK> pks){
+
+        final List<T> models = new ArrayList<>(pks.size());
+        for (final PK pk : pks) {
+            models.add(getModelService().get(pk));
+        }
+        return models;
+    }
+
+    /**
+     * evicts the cached lookups which may hold the stockLevel, so availability read after a release is never stale: the
+     * lookups by its item code and id and the offerings of its product on all sailings. The evictions are published to
+     * the other nodes by the {@link InvalidationBroadcaster} if one is configured.
+     *
+     * @param stockLevelModel the {@link StockLevelModel} whose reservation changed
+     */
+    private void evictStockLookups(final StockLevelModel stockLevelModel){
+
+        if (stockLevelModel == null) {
+            return;
+        }
+        for (final String key : Arrays.asList(stockLevelModel.getItemCode(), stockLevelModel.getId())) {
+            if (key != null) {
+                evictStockLookup(STOCK_LEVEL_BY_ITEM_CODE_REGION, key);
+                evictStockLookup(OFFERING_BY_CODE_REGION, key);
+                evictStockLookup(OFFERING_BY_ID_REGION, key);
+            }
+        }
+        for (final String region : PRODUCT_SCOPED_REGIONS) {
+            evictStockLookup(region, stockLevelModel.getProductCode());
+        }
+    }
+
+    private void evictStockLookup(final String region, final String key){
+
+        invalidateStockLookup(region, key);
+        publishInvalidation(region, key);
+    }
+
+    private void invalidateStockLookup(final String region, final String key){
+
+        final StockLookupCache cache = getStockLookupCache();
+        if (cache == null) {
+            return;
+        }
+        if (key == null) {
+            cache.invalidateRegion(region);
+        } else if (PRODUCT_SCOPED_REGIONS.contains(region)) {
+            cache.invalidatePrefix(region, key + KEY_SEPARATOR);
+        } else {
+            cache.invalidate(region, key);
+        }
+    }
+
+    private void publishInvalidation(final String region, final String key){
+
+        final InvalidationBroadcaster broadcaster = getInvalidationBroadcaster();
+        if (broadcaster != null) {
+            broadcaster.publish(region, key);
+        }
+    }
+
+    /**
+     * applies an invalidation published by another node: evicts the cached lookups or the indexed availability of an
+     * inventory block. Remote invalidations are never published again.
+     *
+     * @param region the region of the invalidation
+     * @param key    the key within the region, {@code null} for the whole region
+     */
+    private void applyRemoteInvalidation(final String region, final String key){
+
+        if (AVAILABILITY_REGION.equals(region)) {
+            final AvailabilityIndex index = getAvailabilityIndex();
+            if (index != null) {
+                if (key != null) {
+                    index.invalidate(key);
+                } else {
+                    index.clear();
+                }
+            }
+        } else {
+            invalidateStockLookup(region, key);
+        }
+        inventoryGeneration.incrementAndGet();
+    }
+
+    /**
+     * stops the periodic snapshots and dumps the hot data of this instance a last time, meant to be the destroy method
+     * of the bean.
+     *
+     * @see #writeWarmStartSnapshot()
+     */
+    public void saveWarmStartSnapshot(){
+
+        if (StringUtils.isBlank(getWarmStartSnapshotFile())) {
+            return;
+        }
+        if (warmStartSnapshotWriter != null) {
+            warmStartSnapshotWriter.shutdown();
+            try {
+                warmStartSnapshotWriter.awaitTermination(getWarmStartSnapshotMillis(), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            warmStartSnapshotWriter = null;
+        }
+        writeWarmStartSnapshot();
+    }
+
+    /**
+     * dumps the hot data of this instance to the {@link #setWarmStartSnapshotFile(String) warmStartSnapshotFile}: the
+     * entries of the {@link AvailabilityIndex} and the keys of the cached stock level and offering lookups.
+     */
+    private void writeWarmStartSnapshot(){
+
+        final Map<String, Set<String>> keys = new LinkedHashMap<>();
+        final StockLookupCache cache = getStockLookupCache();
+        if (cache != null) {
+            for (final String region : WARM_START_REGIONS) {
+                keys.put(region, cache.keys(region));
+            }
+        }
+        final Path file = Paths.get(getWarmStartSnapshotFile());
+        try {
+            WarmStartSnapshot.write(file, getAvailabilityIndex(), keys);
+            LOG.info(String.format("Wrote warm start snapshot %s", file));
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn(String.format("Warm start snapshot %s could not be written", file), e);
+        }
+    }
+
+    /**
+     * loads the {@link #saveWarmStartSnapshot() dumped} hot data at startup, meant to be the init method of the bean.
+     * The availability entries are mapped into the {@link AvailabilityIndex} right away with the time they were
+     * computed, they are only served while the modification times of their inventory block and stock level are
+     * unchanged. The dumped stock level and offering lookups are loaded again in the background, on the
+     * inventoryExecutor if one is configured. From then on the hot data is dumped every
+     * {@link #setWarmStartSnapshotMillis(long) warmStartSnapshotMillis}, so an instance that is killed without
+     * shutdown leaves a recent snapshot behind.
+     */
+    public void loadWarmStartSnapshot(){
+
+        if (StringUtils.isBlank(getWarmStartSnapshotFile())) {
+            return;
+        }
+        startWarmStartSnapshots();
+        final Path file = Paths.get(getWarmStartSnapshotFile());
+        final WarmStartSnapshot snapshot;
+        try {
+            snapshot = WarmStartSnapshot.read(file, getAvailabilityIndex());
+        } catch (final NoSuchFileException e) {
+            LOG.info(String.format("No warm start snapshot %s, starting cold", file));
+            return;
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn(String.format("Warm start snapshot %s could not be read, starting cold", file), e);
+            return;
+        }
+        LOG.info(String.format("Loaded %s availability entries from warm start snapshot %s", snapshot.getAvailabilityEntries(),
+                        file));
+        if (getStockLookupCache() == null) {
+            return;
+        }
+        final Tenant tenant = Registry.getCurrentTenant();
+        final Runnable refresh = () -> {
+            try {
+                TenantSessions.execute(tenant, () -> refreshWarmStartLookups(snapshot));
+            } catch (final RuntimeException e) {
+                LOG.warn("Warm start lookups could not be refreshed", e);
+            }
+        };
+        if (getInventoryExecutor() != null) {
+            getInventoryExecutor().execute(refresh);
+        } else {
+            final Thread thread = new Thread(refresh, "rccl-stock-warm-start");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void startWarmStartSnapshots(){
+
+        if (warmStartSnapshotWriter != null || getWarmStartSnapshotMillis() <= 0) {
+            return;
+        }
+        warmStartSnapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "rccl-stock-warm-start-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        warmStartSnapshotWriter.scheduleWithFixedDelay(this::writeWarmStartSnapshot, getWarmStartSnapshotMillis(),
+                        getWarmStartSnapshotMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * loads the dumped lookups into the {@link StockLookupCache}, the stock levels with batched IN-queries
+     *
+     * @param snapshot the {@link WarmStartSnapshot}
+     */
+    private void refreshWarmStartLookups(final WarmStartSnapshot snapshot){
+
+        final StockLookupCache cache = getStockLookupCache();
+        getStockLevelsByItemCodes(snapshot.getKeys(STOCK_LEVEL_BY_ITEM_CODE_REGION))
+                        .forEach((itemCode, stockLevel) -> cache.get(STOCK_LEVEL_BY_ITEM_CODE_REGION, itemCode, stockLevel::getPk));
+        for (final String offeringCode : snapshot.getKeys(OFFERING_BY_CODE_REGION)) {
+            getOfferingByCode(offeringCode);
+        }
+        for (final String key : snapshot.getKeys(OFFERINGS_BY_SAILING_REGION)) {
+            final int separator = key.indexOf(KEY_SEPARATOR);
+            if (separator >= 0) {
+                getOfferingBySailingAndProductCode(key.substring(0, separator), key.substring(separator + 1));
+            }
+        }
+    }
+
+    /**
+     * @return the availableStrategy
+     */
+
+    public RcclCommerceAvailabilityCalculationStrategy getAvailableStrategy(){
+
+        return availableStrategy;
+    }
+
+    /**
+     * @param availableStrategy the availableStrategy to set
+     */
+    @Required
+    public void setAvailableStrategy(final RcclCommerceAvailabilityCalculationStrategy availableStrategy){
+
+        this.availableStrategy = availableStrategy;
+    }
+
+    /**
+     * @return the statusStrategy
+     */
+    public RcclStockLevelStatusStrategy getStatusStrategy(){
+
+        return statusStrategy;
+    }
+
+    /**
+     * @param statusStrategy the statusStrategy to set
+     */
+    @Required
+    public void setStatusStrategy(final RcclStockLevelStatusStrategy statusStrategy){
+
+        this.statusStrategy = statusStrategy;
+    }
+
+    public GenericDao<StockLevelModel> getStockLevelGenericDao(){
+
+        return stockLevelGenericDao;
+    }
+
+    @Required
+    public void setStockLevelGenericDao(final GenericDao<StockLevelModel> stockLevelGenericDao){
+
+        this.stockLevelGenericDao = stockLevelGenericDao;
+    }
+
+    protected TimeService getTimeService(){
+
+        return timeService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService){
+
+        this.timeService = timeService;
+    }
+
+    public RcclStockDao getRcclStockDao(){
+
+        return rcclStockDao;
+    }
+
+    @Required
+    public void setRcclStockDao(final RcclStockDao rcclStockDao){
+
+        this.rcclStockDao = rcclStockDao;
+    }
+
+    public RcclBlockTypeListBeanPostProcessor getBlockTypeListBeanPostProcessor(){
+
+        return blockTypeListBeanPostProcessor;
+    }
+
+
+    @Required
+    public void setBlockTypeListBeanPostProcessor(final RcclBlockTypeListBeanPostProcessor blockTypeListBeanPostProcessor){
+
+        this.blockTypeListBeanPostProcessor = blockTypeListBeanPostProcessor;
+    }
+
+    public RcclInventoryBlockService getRcclInventoryBlockService(){
+
+        return rcclInventoryBlockService;
+    }
+
+    public void setRcclInventoryBlockService(RcclInventoryBlockService rcclInventoryBlockService){
+
+        this.rcclInventoryBlockService = rcclInventoryBlockService;
+    }
+
+    public SessionService getSessionService(){
+
+        return sessionService;
+    }
+
+    @Required
+    public void setSessionService(SessionService sessionService){
+
+        this.sessionService = sessionService;
+    }
+    
+    public RcclInventoryReservationDao getInventoryReservationDao(){
+
+        return inventoryReservationDao;
+    }
+
+    @Required
+    public void setInventoryReservationDao(final RcclInventoryReservationDao inventoryReservationDao){
+
+        this.inventoryReservationDao = inventoryReservationDao;
+    }
+
+    public RcclSailingStockDao getSailingStockDao(){
+
+        return sailingStockDao;
+    }
+
+    @Required
+    public void setSailingStockDao(final RcclSailingStockDao sailingStockDao){
+
+        this.sailingStockDao = sailingStockDao;
+    }
+
+    public FlexibleSearchService getFlexibleSearchService(){
+
+        return flexibleSearchService;
+    }
+
+    @Required
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService){
+
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    public StockLookupCache getStockLookupCache(){
+
+        return stockLookupCache;
+    }
+
+    /**
+     * @param stockLookupCache the optional {@link StockLookupCache}, lookups go to the database when not set
+     */
+    public void setStockLookupCache(final StockLookupCache stockLookupCache){
+
+        this.stockLookupCache = stockLookupCache;
+    }
+
+    public ExecutorService getInventoryExecutor(){
+
+        return inventoryExecutor;
+    }
+
+    /**
+     * @param inventoryExecutor the bounded executor for parallel inventory calculation, e.g. a fixed thread pool or
+     *                          on Java 21 a virtual thread executor. Calculation stays sequential when not set.
+     */
+    public void setInventoryExecutor(final ExecutorService inventoryExecutor){
+
+        this.inventoryExecutor = inventoryExecutor;
+    }
+
+    public int getParallelInventoryThreshold(){
+
+        return parallelInventoryThreshold;
+    }
+
+    /**
+     * @param parallelInventoryThreshold the minimum number of stock levels or blocks per parallel chunk
+     */
+    public void setParallelInventoryThreshold(final int parallelInventoryThreshold){
+
+        this.parallelInventoryThreshold = parallelInventoryThreshold;
+    }
+
+    public int getInventoryParallelism(){
+
+        return inventoryParallelism;
+    }
+
+    /**
+     * @param inventoryParallelism the maximum number of parallel chunks per calculation
+     */
+    public void setInventoryParallelism(final int inventoryParallelism){
+
+        this.inventoryParallelism = inventoryParallelism;
+    }
+
+    public AvailabilityIndex getAvailabilityIndex(){
+
+        return availabilityIndex;
+    }
+
+    /**
+     * @param availabilityIndex the optional {@link AvailabilityIndex}, availability is always calculated when not set
+     */
+    public void setAvailabilityIndex(final AvailabilityIndex availabilityIndex){
+
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    public String getWarmStartSnapshotFile(){
+
+        return warmStartSnapshotFile;
+    }
+
+    /**
+     * @param warmStartSnapshotFile the optional path of the warm start snapshot, nothing is dumped or loaded when not set
+     */
+    public void setWarmStartSnapshotFile(final String warmStartSnapshotFile){
+
+        this.warmStartSnapshotFile = warmStartSnapshotFile;
+    }
+
+    public long getWarmStartSnapshotMillis(){
+
+        return warmStartSnapshotMillis;
+    }
+
+    /**
+     * @param warmStartSnapshotMillis the interval of the periodic warm start snapshots, only dumped on shutdown when not
+     *                                positive
+     */
+    public void setWarmStartSnapshotMillis(final long warmStartSnapshotMillis){
+
+        this.warmStartSnapshotMillis = warmStartSnapshotMillis;
+    }
+
+    public ReleaseJournal getReleaseJournal(){
+
+        return releaseJournal;
+    }
+
+    /**
+     * @param releaseJournal the optional {@link ReleaseJournal}, releases are synchronous when not set
+     */
+    public void setReleaseJournal(final ReleaseJournal releaseJournal){
+
+        this.releaseJournal = releaseJournal;
+    }
+
+    public long getReleaseJournalFlushMillis(){
+
+        return releaseJournalFlushMillis;
+    }
+
+    /**
+     * @param releaseJournalFlushMillis the delay between two flushes of the releaseJournal
+     */
+    public void setReleaseJournalFlushMillis(final long releaseJournalFlushMillis){
+
+        this.releaseJournalFlushMillis = releaseJournalFlushMillis;
+    }
+
+    public InvalidationBroadcaster getInvalidationBroadcaster(){
+
+        return invalidationBroadcaster;
+    }
+
+    /**
+     * @param invalidationBroadcaster the optional {@link InvalidationBroadcaster}, which publishes the cache evictions of
+     *                                this node and applies the ones of the other nodes
+     */
+    public void setInvalidationBroadcaster(final InvalidationBroadcaster invalidationBroadcaster){
+
+        this.invalidationBroadcaster = invalidationBroadcaster;
+        if (invalidationBroadcaster != null) {
+            invalidationBroadcaster.addListener(this::applyRemoteInvalidation);
+        }
+    }
+
+    public ReleaseAuditLog getReleaseAuditLog(){
+
+        return releaseAuditLog;
+    }
+
+    /**
+     * @param releaseAuditLog the optional {@link ReleaseAuditLog} every release is recorded in with its reason
+     */
+    public void setReleaseAuditLog(final ReleaseAuditLog releaseAuditLog){
+
+        this.releaseAuditLog = releaseAuditLog;
+    }
+
+    public StockMetrics getStockMetrics(){
+
+        return stockMetrics;
+    }
+
+    /**
+     * @param stockMetrics the {@link StockMetrics} the calls are measured in, the shared default when not set
+     */
+    public void setStockMetrics(final StockMetrics stockMetrics){
+
+        this.stockMetrics = stockMetrics;
+    }
+
+    public long getInventoryFetchMemoMillis(){
+
+        return inventoryFetchMemoMillis;
+    }
+
+    /**
+     * @param inventoryFetchMemoMillis how long fetched inventories are reused, 0 switches it off (default)
+     */
+    public void setInventoryFetchMemoMillis(final long inventoryFetchMemoMillis){
+
+        this.inventoryFetchMemoMillis = inventoryFetchMemoMillis;
+    }
+
+    /**
+     * Gets the offering by sailing and product code.
+     *
+     * @param productCode the product code
+     * @param sailing the start date time
+     * @return the offering by product code and sailing
+     */
+    @Override
+    public List<OfferingModel> getOfferingBySailingAndProductCode(final String productCode, final String sailing){
+
+    	final List<OfferingModel> offerings = timedResult("service.getOfferingBySailingAndProductCode",
+    					() -> lookupModels(OFFERINGS_BY_SAILING_REGION, productCode + KEY_SEPARATOR + sailing,
+    									() -> timedResult("dao.getOfferingBySailingAndProductCode",
+    													() -> getRcclStockDao().getOfferingBySailingAndProductCode(productCode, sailing))));
+    	return offerings != null ? new ArrayList<>(offerings) : null;
+    }
+
+    /**
+     * result of the one pass evaluation of one inventory block
+     */
+    private static final class InventoryEvaluation{
+
+        private final String code;
+        private final StockLevelModel stockLevel;
+        private final StockLevelStatus status;
+        private final Long availableQty;
+        private final boolean expired;
+        private final boolean forceInStock;
+        private final boolean inventoryAvailable;
+
+        private InventoryEvaluation(final String code, final StockLevelModel stockLevel, final StockLevelStatus status,
+                        final Long availableQty, final boolean expired, final boolean forceInStock, final boolean inventoryAvailable){
+
+            this.code = code;
+            this.stockLevel = stockLevel;
+            this.status = status;
+            this.availableQty = availableQty;
+            this.expired = expired;
+            this.forceInStock = forceInStock;
+            this.inventoryAvailable = inventoryAvailable;
+        }
+
+        private String getCode(){
+
+            return code;
+        }
+
+        private StockLevelModel getStockLevel(){
+
+            return stockLevel;
+        }
+
+        private StockLevelStatus getStatus(){
+
+            return status;
+        }
+
+        private Long getAvailableQty(){
+
+            return availableQty;
+        }
+
+        private boolean isExpired(){
+
+            return expired;
+        }
+
+        private boolean isForceInStock(){
+
+            return forceInStock;
+        }
+
+        private boolean isInventoryAvailable(){
+
+            return inventoryAvailable;
+        }
+    }
+
+    /**
+     * status and available quantity of one inventory block
+     */
+    private static final class BlockAvailability{
+
+        private final StockLevelStatus status;
+        private final Long availableQty;
+
+        private BlockAvailability(final StockLevelStatus status, final Long availableQty){
+
+            this.status = status;
+            this.availableQty = availableQty;
+        }
+
+        private StockLevelStatus getStatus(){
+
+            return status;
+        }
+
+        private Long getAvailableQty(){
+
+            return availableQty;
+        }
+    }
+}
\ No newline at end of file
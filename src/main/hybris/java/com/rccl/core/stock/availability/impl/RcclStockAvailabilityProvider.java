@@ -0,0 +1,134 @@
+package com.rccl.core.stock.availability.impl;
+
+import com.rccl.core.product.service.impl.DefaultRcclStockService;
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.core.stock.availability.OfferingAvailability;
+import com.rccl.core.stock.availability.VersionedAvailability;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.stock.dto.VersionedInventories;
+import com.rccl.core.stock.session.TenantSessions;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.store.services.BaseStoreService;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.web.context.ServletContextAware;
+
+import javax.servlet.ServletContext;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+
+/**
+ * {@link AvailabilityProvider} of the availability endpoint backed by
+ * {@link DefaultRcclStockService#calculateInventoriesForSailing(InventoryCriteria, String, String)}. The provider
+ * registers itself in the servlet context of the web application and is called on the worker threads of the
+ * endpoint, each call runs in the tenant the provider was created in within a session of its own. Versioned requests
+ * are answered by {@link DefaultRcclStockService#calculateVersionedInventoriesForSailing(InventoryCriteria, String, String, Predicate)},
+ * which loads the stock data once for the version and the availability.
+ */
+public class RcclStockAvailabilityProvider implements AvailabilityProvider, ServletContextAware{
+
+    private final Tenant tenant = Registry.getCurrentTenant();
+    private DefaultRcclStockService rcclStockService;
+    private BaseStoreService baseStoreService;
+    private String baseStoreUid;
+    private boolean includeSoldOutOfferings = true;
+
+    @Override
+    public void setServletContext(final ServletContext servletContext){
+
+        servletContext.setAttribute(CONTEXT_ATTRIBUTE, this);
+    }
+
+    @Override
+    public List<OfferingAvailability> getAvailability(final String productCode, final String sailingCode){
+
+        return TenantSessions.execute(tenant, () -> {
+            final List<InventoryDto> inventories = getRcclStockService().calculateInventoriesForSailing(createCriteria(), productCode,
+                            sailingCode);
+            return inventories.stream().map(this::toOfferingAvailability).collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    public VersionedAvailability getAvailability(final String productCode, final String sailingCode,
+                    final Predicate<String> isCurrentVersion){
+
+        return TenantSessions.execute(tenant, () -> {
+            final VersionedInventories inventories = getRcclStockService().calculateVersionedInventoriesForSailing(createCriteria(),
+                            productCode, sailingCode, isCurrentVersion);
+            return new VersionedAvailability(inventories.getVersion(), inventories.getInventories() != null ?
+                            inventories.getInventories().stream().map(this::toOfferingAvailability).collect(Collectors.toList()) : null);
+        });
+    }
+
+    @Override
+    public String getVersion(final String productCode, final String sailingCode){
+
+        return TenantSessions.execute(tenant, () -> getRcclStockService().getInventoryVersion(productCode, sailingCode));
+    }
+
+    private InventoryCriteria createCriteria(){
+
+        return InventoryCriteria.of(getBaseStoreService().getBaseStoreForUid(getBaseStoreUid()), null, isIncludeSoldOutOfferings());
+    }
+
+    private OfferingAvailability toOfferingAvailability(final InventoryDto inventoryDto){
+
+        return new OfferingAvailability(inventoryDto.getInventoryBlock().getCode(),
+                        inventoryDto.getStockLevelStatus() != null ? inventoryDto.getStockLevelStatus().getCode() : null,
+                        inventoryDto.getAvailableQty(), inventoryDto.isExpired(), inventoryDto.isForceInStock(),
+                        inventoryDto.isInventoryAvailable());
+    }
+
+    public DefaultRcclStockService getRcclStockService(){
+
+        return rcclStockService;
+    }
+
+    @Required
+    public void setRcclStockService(final DefaultRcclStockService rcclStockService){
+
+        this.rcclStockService = rcclStockService;
+    }
+
+    public BaseStoreService getBaseStoreService(){
+
+        return baseStoreService;
+    }
+
+    @Required
+    public void setBaseStoreService(final BaseStoreService baseStoreService){
+
+        this.baseStoreService = baseStoreService;
+    }
+
+    public String getBaseStoreUid(){
+
+        return baseStoreUid;
+    }
+
+    /**
+     * @param baseStoreUid the uid of the base store the availability is calculated for
+     */
+    @Required
+    public void setBaseStoreUid(final String baseStoreUid){
+
+        this.baseStoreUid = baseStoreUid;
+    }
+
+    public boolean isIncludeSoldOutOfferings(){
+
+        return includeSoldOutOfferings;
+    }
+
+    /**
+     * @param includeSoldOutOfferings if inventoryAvailable is evaluated, true by default
+     */
+    public void setIncludeSoldOutOfferings(final boolean includeSoldOutOfferings){
+
+        this.includeSoldOutOfferings = includeSoldOutOfferings;
+    }
+}
@@ -0,0 +1,153 @@
+package com.rccl.core.stock.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+
+/**
+ * default {@link StockLookupCache} on top of a guava {@link Cache}, bounded by maximumSize and timeToLiveSeconds.
+ * Negative lookups are kept as empty {@link Optional}s.
+ * <p>
+ * Every load in flight is tracked per cache key. A value whose load overlapped an invalidation of its own key, prefix,
+ * region or the whole cache is returned to its caller but not kept, it may have been read before the invalidated
+ * change. Loads of other keys are not affected.
+ */
+public class DefaultStockLookupCache implements StockLookupCache{
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private final Cache<String, Optional<Object>> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<String, AtomicBoolean> staleLoads = new ConcurrentHashMap<>();
+
+    /**
+     * @param maximumSize       the maximum number of entries over all regions
+     * @param timeToLiveSeconds the seconds an entry is kept after it was loaded
+     */
+    public DefaultStockLookupCache(final long maximumSize, final long timeToLiveSeconds){
+
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                        .recordStats().build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String region, final String key, final Supplier<T> loader){
+
+        final String cacheKey = createKey(region, key);
+        final AtomicBoolean[] stale = new AtomicBoolean[1];
+        try {
+            final Optional<Object> value = cache.get(cacheKey, () -> {
+                stale[0] = new AtomicBoolean();
+                staleLoads.put(cacheKey, stale[0]);
+                return Optional.ofNullable(loader.get());
+            });
+            if (stale[0] != null && stale[0].get()) {
+                cache.asMap().remove(cacheKey, value);
+            }
+            return (T) value.orElse(null);
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Stock lookup failed for " + region + " " + key, e.getCause());
+        } finally {
+            if (stale[0] != null) {
+                staleLoads.remove(cacheKey, stale[0]);
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(final String region, final String key){
+
+        final String cacheKey = createKey(region, key);
+        final AtomicBoolean stale = staleLoads.get(cacheKey);
+        if (stale != null) {
+            stale.set(true);
+        }
+        if (cache.getIfPresent(cacheKey) != null) {
+            cache.invalidate(cacheKey);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void invalidateRegion(final String region){
+
+        invalidateCacheKeys(region + KEY_SEPARATOR);
+    }
+
+    @Override
+    public void invalidatePrefix(final String region, final String keyPrefix){
+
+        invalidateCacheKeys(createKey(region, keyPrefix));
+    }
+
+    private void invalidateCacheKeys(final String prefix){
+
+        staleLoads.forEach((cacheKey, stale) -> {
+            if (cacheKey.startsWith(prefix)) {
+                stale.set(true);
+            }
+        });
+        cache.asMap().keySet().removeIf(cacheKey -> {
+            if (cacheKey.startsWith(prefix)) {
+                invalidations.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void invalidateAll(){
+
+        staleLoads.values().forEach(stale -> stale.set(true));
+        invalidations.addAndGet(cache.size());
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Set<String> keys(final String region){
+
+        final String prefix = region + KEY_SEPARATOR;
+        return cache.asMap().keySet().stream().filter(cacheKey -> cacheKey.startsWith(prefix))
+                        .map(cacheKey -> cacheKey.substring(prefix.length())).collect(Collectors.toSet());
+    }
+
+    @Override
+    public long getHitCount(){
+
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount(){
+
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount(){
+
+        return cache.stats().evictionCount() + invalidations.get();
+    }
+
+    private static String createKey(final String region, final String key){
+
+        return region + KEY_SEPARATOR + key;
+    }
+}
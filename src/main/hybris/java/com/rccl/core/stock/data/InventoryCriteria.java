@@ -0,0 +1,134 @@
+package com.rccl.core.stock.data;
+
+import com.rccl.core.constants.RcclcoreConstants;
+import de.hybris.platform.store.BaseStoreModel;
+import de.hybris.platform.travelservices.model.user.TravellerModel;
+import org.apache.commons.lang.BooleanUtils;
+
+import java.util.Objects;
+
+
+/**
+ * immutable, typed criteria of an inventory calculation: the base store, the traveller and if past offerings are
+ * included. Unlike {@link BlockTypeStrategyParam} the criteria are read without map lookups or unboxing and one
+ * instance can be shared by any number of threads, e.g. the parallel workers of one calculation.
+ * <p>
+ * {@link #toBlockTypeStrategyParam()} adapts the criteria for the block type selection, which still takes a
+ * {@link BlockTypeStrategyParam}. Criteria read {@link #from(BlockTypeStrategyParam) from} a param keep it, every
+ * value the caller put into it stays visible to the block type selection. The param itself is never changed.
+ */
+public final class InventoryCriteria{
+
+    private final BaseStoreModel baseStore;
+    private final TravellerModel traveller;
+    private final boolean includePastOfferings;
+    private final BlockTypeStrategyParam source;
+
+    private InventoryCriteria(final BaseStoreModel baseStore, final TravellerModel traveller, final boolean includePastOfferings,
+                    final BlockTypeStrategyParam source){
+
+        this.baseStore = baseStore;
+        this.traveller = traveller;
+        this.includePastOfferings = includePastOfferings;
+        this.source = source;
+    }
+
+    /**
+     * @param baseStore            the {@link BaseStoreModel}, may be {@code null}
+     * @param traveller            the {@link TravellerModel}, may be {@code null}
+     * @param includePastOfferings if past offerings are included
+     * @return the {@link InventoryCriteria}
+     */
+    public static InventoryCriteria of(final BaseStoreModel baseStore, final TravellerModel traveller,
+                    final boolean includePastOfferings){
+
+        return new InventoryCriteria(baseStore, traveller, includePastOfferings, null);
+    }
+
+    /**
+     * reads the criteria of a {@link BlockTypeStrategyParam} once, the param is kept for its other values and must not
+     * be changed afterwards
+     *
+     * @param blockTypeStrategyParam the {@link BlockTypeStrategyParam}
+     * @return the {@link InventoryCriteria}
+     */
+    public static InventoryCriteria from(final BlockTypeStrategyParam blockTypeStrategyParam){
+
+        return new InventoryCriteria(blockTypeStrategyParam.getValue(BlockTypeStrategyParam.BASESTORE),
+                        blockTypeStrategyParam.getValue(BlockTypeStrategyParam.TRAVELLER),
+                        BooleanUtils.isTrue(blockTypeStrategyParam.getValue(RcclcoreConstants.INCLUDE_PAST_OFFERINGS)),
+                        blockTypeStrategyParam);
+    }
+
+    /**
+     * a new {@link BlockTypeStrategyParam} with the criteria, meant to be built once per calculation or per worker and
+     * reused for every selection, which only replaces {@link BlockTypeStrategyParam#INVENTROY_BLOCKS}. Any other value
+     * of the param the criteria were read from is looked up in that param.
+     *
+     * @return the {@link BlockTypeStrategyParam}
+     */
+    public BlockTypeStrategyParam toBlockTypeStrategyParam(){
+
+        final BlockTypeStrategyParam blockTypeStrategyParam = source != null ? new SourcedBlockTypeStrategyParam(source) :
+                        new BlockTypeStrategyParam();
+        blockTypeStrategyParam.putValue(BlockTypeStrategyParam.BASESTORE, baseStore);
+        blockTypeStrategyParam.putValue(BlockTypeStrategyParam.TRAVELLER, traveller);
+        blockTypeStrategyParam.putValue(RcclcoreConstants.INCLUDE_PAST_OFFERINGS, includePastOfferings ? Boolean.TRUE : Boolean.FALSE);
+        return blockTypeStrategyParam;
+    }
+
+    public BaseStoreModel getBaseStore(){
+
+        return baseStore;
+    }
+
+    public TravellerModel getTraveller(){
+
+        return traveller;
+    }
+
+    public boolean isIncludePastOfferings(){
+
+        return includePastOfferings;
+    }
+
+    @Override
+    public boolean equals(final Object o){
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InventoryCriteria)) {
+            return false;
+        }
+        final InventoryCriteria that = (InventoryCriteria) o;
+        return includePastOfferings == that.includePastOfferings && Objects.equals(baseStore, that.baseStore)
+                        && Objects.equals(traveller, that.traveller) && source == that.source;
+    }
+
+    @Override
+    public int hashCode(){
+
+        return Objects.hash(baseStore, traveller, includePastOfferings, System.identityHashCode(source));
+    }
+
+    /**
+     * {@link BlockTypeStrategyParam} looking up the values it doesn't hold itself in the param of the caller
+     */
+    private static final class SourcedBlockTypeStrategyParam extends BlockTypeStrategyParam{
+
+        private final BlockTypeStrategyParam source;
+
+        private SourcedBlockTypeStrategyParam(final BlockTypeStrategyParam source){
+
+            this.source = source;
+        }
+
+        @Override
+        public <T> T getValue(final String key){
+
+            final T value = super.getValue(key);
+            return value != null ? value : source.getValue(key);
+        }
+    }
+}
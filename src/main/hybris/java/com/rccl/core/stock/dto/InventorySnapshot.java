@@ -0,0 +1,307 @@
+package com.rccl.core.stock.dto;
+
+import com.rccl.core.model.InventoryBlockModel;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.LongFunction;
+
+
+/**
+ * compact bulk result of an inventory calculation. Codes, available quantities and status ordinals are kept in
+ * parallel arrays and the boolean results in bitsets, so a snapshot over thousands of offerings retains a few
+ * primitive arrays instead of one {@link InventoryDto} with its model graph per offering.
+ * <p>
+ * Only the PKs of the models are kept, the {@link InventoryBlockModel} and {@link StockLevelModel} of an entry are
+ * resolved on request through the given resolvers. Entries without a persisted inventory block get an unsaved block
+ * for their stock level, as the inventory calculation creates it.
+ */
+public class InventorySnapshot{
+
+    private static final byte NO_STATUS = -1;
+    private static final long NO_PK = 0L;
+
+    private final int size;
+    private final String[] codes;
+    private final long[] inventoryBlockPks;
+    private final long[] stockLevelPks;
+    private final long[] availableQuantities;
+    private final byte[] statusOrdinals;
+    private final StockLevelStatus[] statuses;
+    private final BitSet availableQtyFlags;
+    private final BitSet expiredFlags;
+    private final BitSet forceInStockFlags;
+    private final BitSet inventoryAvailableFlags;
+    private final LongFunction<InventoryBlockModel> inventoryBlockResolver;
+    private final LongFunction<StockLevelModel> stockLevelResolver;
+
+    private InventorySnapshot(final Builder builder){
+
+        this.size = builder.size;
+        this.codes = Arrays.copyOf(builder.codes, size);
+        this.inventoryBlockPks = Arrays.copyOf(builder.inventoryBlockPks, size);
+        this.stockLevelPks = Arrays.copyOf(builder.stockLevelPks, size);
+        this.availableQuantities = Arrays.copyOf(builder.availableQuantities, size);
+        this.statusOrdinals = Arrays.copyOf(builder.statusOrdinals, size);
+        this.statuses = builder.statuses.toArray(new StockLevelStatus[builder.statuses.size()]);
+        this.availableQtyFlags = builder.availableQtyFlags.get(0, size);
+        this.expiredFlags = builder.expiredFlags.get(0, size);
+        this.forceInStockFlags = builder.forceInStockFlags.get(0, size);
+        this.inventoryAvailableFlags = builder.inventoryAvailableFlags.get(0, size);
+        this.inventoryBlockResolver = builder.inventoryBlockResolver;
+        this.stockLevelResolver = builder.stockLevelResolver;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size(){
+
+        return size;
+    }
+
+    /**
+     * @param index the entry index
+     * @return the code of the inventory block
+     */
+    public String getCode(final int index){
+
+        checkIndex(index);
+        return codes[index];
+    }
+
+    /**
+     * @param index the entry index
+     * @return the available quantity, null if none was calculated
+     */
+    public Long getAvailableQty(final int index){
+
+        checkIndex(index);
+        return availableQtyFlags.get(index) ? Long.valueOf(availableQuantities[index]) : null;
+    }
+
+    /**
+     * @param index the entry index
+     * @return if an available quantity was calculated
+     */
+    public boolean hasAvailableQty(final int index){
+
+        checkIndex(index);
+        return availableQtyFlags.get(index);
+    }
+
+    /**
+     * @param index the entry index
+     * @return the available quantity without boxing, 0 if none was calculated
+     */
+    public long getAvailableQtyAsLong(final int index){
+
+        checkIndex(index);
+        return availableQuantities[index];
+    }
+
+    /**
+     * @param index the entry index
+     * @return the stock level status, null if none was calculated
+     */
+    public StockLevelStatus getStockLevelStatus(final int index){
+
+        checkIndex(index);
+        return statusOrdinals[index] == NO_STATUS ? null : statuses[statusOrdinals[index]];
+    }
+
+    /**
+     * @param index the entry index
+     * @return if the stock level is expired
+     */
+    public boolean isExpired(final int index){
+
+        checkIndex(index);
+        return expiredFlags.get(index);
+    }
+
+    /**
+     * @param index the entry index
+     * @return if the stock level is forced in stock
+     */
+    public boolean isForceInStock(final int index){
+
+        checkIndex(index);
+        return forceInStockFlags.get(index);
+    }
+
+    /**
+     * @param index the entry index
+     * @return if the inventory is available, only evaluated when sold out offerings are included
+     */
+    public boolean isInventoryAvailable(final int index){
+
+        checkIndex(index);
+        return inventoryAvailableFlags.get(index);
+    }
+
+    /**
+     * resolves the stock level of the entry through the model layer
+     *
+     * @param index the entry index
+     * @return the {@link StockLevelModel}
+     */
+    public StockLevelModel getStockLevel(final int index){
+
+        checkIndex(index);
+        return stockLevelResolver.apply(stockLevelPks[index]);
+    }
+
+    /**
+     * resolves the inventory block of the entry through the model layer
+     *
+     * @param index the entry index
+     * @return the {@link InventoryBlockModel}, an unsaved one if the entry has no persisted inventory block
+     */
+    public InventoryBlockModel getInventoryBlock(final int index){
+
+        checkIndex(index);
+        if (inventoryBlockPks[index] != NO_PK) {
+            return inventoryBlockResolver.apply(inventoryBlockPks[index]);
+        }
+        final InventoryBlockModel inventoryBlock = new InventoryBlockModel();
+        inventoryBlock.setCode(codes[index]);
+        inventoryBlock.setStocklevel(getStockLevel(index));
+        return inventoryBlock;
+    }
+
+    /**
+     * converts the entry to an {@link InventoryDto}, resolving its models
+     *
+     * @param index the entry index
+     * @return the {@link InventoryDto}
+     */
+    public InventoryDto toInventoryDto(final int index){
+
+        final InventoryBlockModel inventoryBlock = getInventoryBlock(index);
+        final InventoryDto inventoryDto = new InventoryDto();
+        inventoryDto.setForceInStock(isForceInStock(index));
+        inventoryDto.setInventoryBlock(inventoryBlock);
+        inventoryDto.setStockLevel(inventoryBlock.getStocklevel());
+        inventoryDto.setStockLevelStatus(getStockLevelStatus(index));
+        inventoryDto.setExpired(isExpired(index));
+        inventoryDto.setAvailableQty(getAvailableQty(index));
+        inventoryDto.setInventoryAvailable(isInventoryAvailable(index));
+        return inventoryDto;
+    }
+
+    private void checkIndex(final int index){
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * appends the entries of an {@link InventorySnapshot} in calculation order
+     */
+    public static class Builder{
+
+        private final List<StockLevelStatus> statuses = new ArrayList<>();
+        private final BitSet availableQtyFlags = new BitSet();
+        private final BitSet expiredFlags = new BitSet();
+        private final BitSet forceInStockFlags = new BitSet();
+        private final BitSet inventoryAvailableFlags = new BitSet();
+        private final LongFunction<InventoryBlockModel> inventoryBlockResolver;
+        private final LongFunction<StockLevelModel> stockLevelResolver;
+        private String[] codes;
+        private long[] inventoryBlockPks;
+        private long[] stockLevelPks;
+        private long[] availableQuantities;
+        private byte[] statusOrdinals;
+        private int size;
+
+        /**
+         * @param expectedSize           the expected number of entries
+         * @param inventoryBlockResolver resolves an inventory block by its PK
+         * @param stockLevelResolver     resolves a stock level by its PK
+         */
+        public Builder(final int expectedSize, final LongFunction<InventoryBlockModel> inventoryBlockResolver,
+                        final LongFunction<StockLevelModel> stockLevelResolver){
+
+            final int capacity = Math.max(expectedSize, 1);
+            this.codes = new String[capacity];
+            this.inventoryBlockPks = new long[capacity];
+            this.stockLevelPks = new long[capacity];
+            this.availableQuantities = new long[capacity];
+            this.statusOrdinals = new byte[capacity];
+            this.inventoryBlockResolver = inventoryBlockResolver;
+            this.stockLevelResolver = stockLevelResolver;
+        }
+
+        /**
+         * @param code               the code of the inventory block
+         * @param inventoryBlockPk   the PK of the inventory block, null if it is not persisted
+         * @param stockLevelPk       the PK of the stock level
+         * @param status             the stock level status
+         * @param availableQty       the available quantity
+         * @param expired            if the stock level is expired
+         * @param forceInStock       if the stock level is forced in stock
+         * @param inventoryAvailable if the inventory is available
+         * @return this builder
+         */
+        public Builder add(final String code, final Long inventoryBlockPk, final long stockLevelPk, final StockLevelStatus status,
+                        final Long availableQty, final boolean expired, final boolean forceInStock, final boolean inventoryAvailable){
+
+            if (size == codes.length) {
+                grow();
+            }
+            codes[size] = code;
+            inventoryBlockPks[size] = inventoryBlockPk != null ? inventoryBlockPk : NO_PK;
+            stockLevelPks[size] = stockLevelPk;
+            statusOrdinals[size] = ordinalOf(status);
+            if (availableQty != null) {
+                availableQuantities[size] = availableQty;
+                availableQtyFlags.set(size);
+            }
+            expiredFlags.set(size, expired);
+            forceInStockFlags.set(size, forceInStock);
+            inventoryAvailableFlags.set(size, inventoryAvailable);
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the {@link InventorySnapshot}
+         */
+        public InventorySnapshot build(){
+
+            return new InventorySnapshot(this);
+        }
+
+        private byte ordinalOf(final StockLevelStatus status){
+
+            if (status == null) {
+                return NO_STATUS;
+            }
+            int ordinal = statuses.indexOf(status);
+            if (ordinal < 0) {
+                if (statuses.size() == Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct stock level statuses");
+                }
+                statuses.add(status);
+                ordinal = statuses.size() - 1;
+            }
+            return (byte) ordinal;
+        }
+
+        private void grow(){
+
+            final int capacity = codes.length * 2;
+            codes = Arrays.copyOf(codes, capacity);
+            inventoryBlockPks = Arrays.copyOf(inventoryBlockPks, capacity);
+            stockLevelPks = Arrays.copyOf(stockLevelPks, capacity);
+            availableQuantities = Arrays.copyOf(availableQuantities, capacity);
+            statusOrdinals = Arrays.copyOf(statusOrdinals, capacity);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.rccl.core.stock.dto;
+
+import java.util.List;
+
+
+/**
+ * inventories of a product on a sailing together with their version, calculated from one load of the stock levels and
+ * inventory blocks. The inventories are left out if the caller holds the version already.
+ */
+public class VersionedInventories{
+
+    private final String version;
+    private final List<InventoryDto> inventories;
+
+    /**
+     * @param version     the version of the inventories
+     * @param inventories the inventories, {@code null} if they were not calculated
+     */
+    public VersionedInventories(final String version, final List<InventoryDto> inventories){
+
+        this.version = version;
+        this.inventories = inventories;
+    }
+
+    public String getVersion(){
+
+        return version;
+    }
+
+    /**
+     * @return the inventories, {@code null} if the caller held the version already
+     */
+    public List<InventoryDto> getInventories(){
+
+        return inventories;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rccl.core.stock.session;
+
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.jalo.JaloSession;
+
+import java.util.function.Supplier;
+
+
+/**
+ * runs calls of the stock service on threads without a request of their own, e.g. background or worker threads. A call
+ * runs in the given tenant within a session created for it, the session is closed afterwards and the thread gets the
+ * tenant and session back it had before.
+ */
+public final class TenantSessions{
+
+    private TenantSessions(){
+
+    }
+
+    /**
+     * @param tenant the tenant to run the call in
+     * @param call   the call
+     * @return the result of the call
+     */
+    public static <T> T execute(final Tenant tenant, final Supplier<T> call){
+
+        final Tenant previousTenant = Registry.hasCurrentTenant() ? Registry.getCurrentTenant() : null;
+        final JaloSession previousSession = JaloSession.hasCurrentSession() ? JaloSession.getCurrentSession() : null;
+        Registry.setCurrentTenant(tenant);
+        JaloSession.deactivate();
+        final JaloSession session = JaloSession.getCurrentSession();
+        try {
+            return call.get();
+        } finally {
+            session.close();
+            restore(previousTenant, previousSession);
+        }
+    }
+
+    /**
+     * @param tenant the tenant to run the call in
+     * @param call   the call
+     */
+    public static void execute(final Tenant tenant, final Runnable call){
+
+        execute(tenant, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * gives the thread its tenant and session back after it ran in another one
+     *
+     * @param tenant  the tenant of the thread before, {@code null} if it had none
+     * @param session the session of the thread before, {@code null} if it had none
+     */
+    public static void restore(final Tenant tenant, final JaloSession session){
+
+        if (tenant == null) {
+            JaloSession.deactivate();
+            Registry.unsetCurrentTenant();
+            return;
+        }
+        Registry.setCurrentTenant(tenant);
+        if (session != null) {
+            session.activate();
+        } else {
+            JaloSession.deactivate();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.rccl.core.stock.warmup.impl;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.rccl.core.product.service.impl.DefaultRcclStockService;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.session.TenantSessions;
+import com.rccl.core.stock.warmup.ReadinessGate;
+import com.rccl.core.stock.warmup.UpcomingSailingSource;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.store.services.BaseStoreService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.web.context.ServletContextAware;
+
+import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * pre-warms the stock caches for the sailings departing within {@link #setWindowHours(long) windowHours}, so the
+ * traffic peak after sailings open for booking hits warm caches. Every {@link #setIntervalMillis(long) intervalMillis}
+ * the sailings of the window are taken from the {@link UpcomingSailingSource} and each product on them is warmed by
+ * {@link DefaultRcclStockService#warmUp(InventoryCriteria, String, String)}, on at most
+ * {@link #setMaxConcurrency(int) maxConcurrency} threads and at most {@link #setMaxLoadsPerSecond(double)
+ * maxLoadsPerSecond} products per second to bound the database load.
+ * <p>
+ * The warmer requires the condition {@value #READINESS_CONDITION} of its {@link ReadinessGate}, registered in the
+ * servlet context, until the first pass is done, failed products included. {@link #start()} is meant to be the init
+ * method of the bean and {@link #stop()} its destroy method.
+ */
+public class StockCacheWarmer implements ServletContextAware{
+
+    /**
+     * the readiness condition completed after the first warm-up pass
+     */
+    public static final String READINESS_CONDITION = "stockCacheWarmUp";
+
+    private static final Logger LOG = Logger.getLogger(StockCacheWarmer.class);
+    private static final long DEFAULT_WINDOW_HOURS = 72L;
+    private static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final double DEFAULT_MAX_LOADS_PER_SECOND = 20d;
+
+    private final Tenant tenant = Registry.getCurrentTenant();
+    private ReadinessGate readinessGate = new ReadinessGate();
+    private DefaultRcclStockService rcclStockService;
+    private UpcomingSailingSource upcomingSailingSource;
+    private BaseStoreService baseStoreService;
+    private TimeService timeService;
+    private String baseStoreUid;
+    private boolean includeSoldOutOfferings = true;
+    private long windowHours = DEFAULT_WINDOW_HOURS;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private double maxLoadsPerSecond = DEFAULT_MAX_LOADS_PER_SECOND;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService loaders;
+
+    @Override
+    public void setServletContext(final ServletContext servletContext){
+
+        servletContext.setAttribute(ReadinessGate.CONTEXT_ATTRIBUTE, getReadinessGate());
+    }
+
+    /**
+     * requires the readiness condition and schedules the warm-up passes, the first one right away
+     */
+    public void start(){
+
+        getReadinessGate().require(READINESS_CONDITION);
+        loaders = Executors.newFixedThreadPool(Math.max(1, getMaxConcurrency()), daemonThreads("rccl-stock-warmer-loader"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("rccl-stock-warmer"));
+        scheduler.scheduleWithFixedDelay(this::runWarmUp, 0L, getIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop(){
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (loaders != null) {
+            loaders.shutdownNow();
+        }
+    }
+
+    /**
+     * warms the caches for all products on the sailings departing within the window. Each product is loaded in the
+     * tenant the warmer was created in, within a session of its own which is closed afterwards.
+     *
+     * @return the number of warmed products
+     */
+    public int warmUp(){
+
+        if (loaders == null) {
+            throw new IllegalStateException("StockCacheWarmer is not started");
+        }
+        final Date from = getTimeService().getCurrentTime();
+        final Date to = new Date(from.getTime() + TimeUnit.HOURS.toMillis(getWindowHours()));
+        final Map<String, Set<String>> productCodesBySailing = getUpcomingSailingSource().getProductCodesBySailing(from, to);
+        final InventoryCriteria criteria = InventoryCriteria.of(getBaseStoreService().getBaseStoreForUid(getBaseStoreUid()), null,
+                        isIncludeSoldOutOfferings());
+        final RateLimiter rateLimiter = RateLimiter.create(getMaxLoadsPerSecond());
+        final AtomicInteger inventories = new AtomicInteger();
+        final List<Callable<Boolean>> loads = new ArrayList<>();
+        productCodesBySailing.forEach((sailingCode, productCodes) -> {
+            for (final String productCode : productCodes) {
+                loads.add(() -> {
+                    rateLimiter.acquire();
+                    return TenantSessions.execute(tenant, () -> {
+                        try {
+                            inventories.addAndGet(getRcclStockService().warmUp(criteria, productCode, sailingCode));
+                            return Boolean.TRUE;
+                        } catch (final RuntimeException e) {
+                            LOG.warn(String.format("Stock caches could not be warmed for product %s on sailing %s", productCode,
+                                            sailingCode), e);
+                            return Boolean.FALSE;
+                        }
+                    });
+                });
+            }
+        });
+        final long start = System.nanoTime();
+        int warmed = 0;
+        try {
+            for (final Future<Boolean> load : loaders.invokeAll(loads)) {
+                if (Boolean.TRUE.equals(load.get())) {
+                    warmed++;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return warmed;
+        } catch (final ExecutionException e) {
+            LOG.warn("Stock cache warm-up failed", e.getCause());
+        }
+        LOG.info(String.format("Warmed %s of %s products on %s sailings with %s inventories in %s ms", warmed, loads.size(),
+                        productCodesBySailing.size(), inventories.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return warmed;
+    }
+
+    private void runWarmUp(){
+
+        try {
+            TenantSessions.execute(tenant, this::warmUp);
+        } catch (final RuntimeException e) {
+            LOG.warn("Stock cache warm-up failed", e);
+        } finally {
+            getReadinessGate().complete(READINESS_CONDITION);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String name){
+
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public ReadinessGate getReadinessGate(){
+
+        return readinessGate;
+    }
+
+    /**
+     * @param readinessGate the {@link ReadinessGate} to share with other components, a new one by default
+     */
+    public void setReadinessGate(final ReadinessGate readinessGate){
+
+        this.readinessGate = readinessGate;
+    }
+
+    public DefaultRcclStockService getRcclStockService(){
+
+        return rcclStockService;
+    }
+
+    @Required
+    public void setRcclStockService(final DefaultRcclStockService rcclStockService){
+
+        this.rcclStockService = rcclStockService;
+    }
+
+    public UpcomingSailingSource getUpcomingSailingSource(){
+
+        return upcomingSailingSource;
+    }
+
+    @Required
+    public void setUpcomingSailingSource(final UpcomingSailingSource upcomingSailingSource){
+
+        this.upcomingSailingSource = upcomingSailingSource;
+    }
+
+    public BaseStoreService getBaseStoreService(){
+
+        return baseStoreService;
+    }
+
+    @Required
+    public void setBaseStoreService(final BaseStoreService baseStoreService){
+
+        this.baseStoreService = baseStoreService;
+    }
+
+    public TimeService getTimeService(){
+
+        return timeService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService){
+
+        this.timeService = timeService;
+    }
+
+    public String getBaseStoreUid(){
+
+        return baseStoreUid;
+    }
+
+    /**
+     * @param baseStoreUid the uid of the base store the availability is warmed for
+     */
+    @Required
+    public void setBaseStoreUid(final String baseStoreUid){
+
+        this.baseStoreUid = baseStoreUid;
+    }
+
+    public boolean isIncludeSoldOutOfferings(){
+
+        return includeSoldOutOfferings;
+    }
+
+    /**
+     * @param includeSoldOutOfferings if inventoryAvailable is warmed, true by default
+     */
+    public void setIncludeSoldOutOfferings(final boolean includeSoldOutOfferings){
+
+        this.includeSoldOutOfferings = includeSoldOutOfferings;
+    }
+
+    public long getWindowHours(){
+
+        return windowHours;
+    }
+
+    /**
+     * @param windowHours the sailings departing within this many hours are warmed, {@value #DEFAULT_WINDOW_HOURS} by
+     *                    default
+     */
+    public void setWindowHours(final long windowHours){
+
+        this.windowHours = windowHours;
+    }
+
+    public long getIntervalMillis(){
+
+        return intervalMillis;
+    }
+
+    /**
+     * @param intervalMillis the delay between two warm-up passes, 15 minutes by default
+     */
+    public void setIntervalMillis(final long intervalMillis){
+
+        this.intervalMillis = intervalMillis;
+    }
+
+    public int getMaxConcurrency(){
+
+        return maxConcurrency;
+    }
+
+    /**
+     * @param maxConcurrency the number of products warmed at the same time, {@value #DEFAULT_MAX_CONCURRENCY} by default
+     */
+    public void setMaxConcurrency(final int maxConcurrency){
+
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public double getMaxLoadsPerSecond(){
+
+        return maxLoadsPerSecond;
+    }
+
+    /**
+     * @param maxLoadsPerSecond the number of products warmed per second at most, {@value #DEFAULT_MAX_LOADS_PER_SECOND}
+     *                          by default
+     */
+    public void setMaxLoadsPerSecond(final double maxLoadsPerSecond){
+
+        this.maxLoadsPerSecond = maxLoadsPerSecond;
+    }
+}
@@ -0,0 +1,315 @@
+package com.rccl.core.stock.audit;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * asynchronous audit trail of reservation releases. {@link #record} copies the fields of an event into a preallocated
+ * slot of a ring buffer and returns, there is no formatting, allocation, lock or I/O on the releasing thread. One
+ * background thread takes the recorded events in order, formats them as JSON lines and appends them in batches of up
+ * to batchSize events to the audit file, which is rolled over to {@code <file>.1} ... {@code <file>.<maxFiles>} once it
+ * exceeds maxFileBytes.
+ * <p>
+ * If the writer falls behind by the whole capacity of the ring, new events are dropped and counted rather than
+ * blocking the release. If the audit file can't be rolled over, the writer keeps appending to it, if it can't be
+ * reopened, the batch is lost and the next batch opens it again.
+ */
+public class ReleaseAuditLog implements Closeable{
+
+    private static final Logger LOG = Logger.getLogger(ReleaseAuditLog.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int batchSize;
+    private final int mask;
+    private final long[] timestamps;
+    private final String[] inventoryBlocks;
+    private final String[] orderCodes;
+    private final int[] entryNumbers;
+    private final int[] quantities;
+    private final String[] reasons;
+    private final String[] notes;
+    private final Outcome[] outcomes;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    private final Thread writer;
+    private volatile long consumed;
+    private volatile boolean running = true;
+    private OutputStream out;
+    private long fileBytes;
+
+    /**
+     * opens the audit file for appending and starts the writer
+     *
+     * @param file         the audit file
+     * @param capacity     the number of events buffered at most, rounded up to a power of two
+     * @param batchSize    the number of events written at once at most
+     * @param maxFileBytes the size of the audit file it is rolled over at
+     * @param maxFiles     the number of rolled over files kept
+     * @throws IOException if the audit file can't be opened
+     */
+    public ReleaseAuditLog(final Path file, final int capacity, final int batchSize, final long maxFileBytes, final int maxFiles)
+                    throws IOException{
+
+        this.file = file;
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.inventoryBlocks = new String[size];
+        this.orderCodes = new String[size];
+        this.entryNumbers = new int[size];
+        this.quantities = new int[size];
+        this.reasons = new String[size];
+        this.notes = new String[size];
+        this.outcomes = new Outcome[size];
+        this.published = new AtomicLongArray(size);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        open();
+        this.writer = new Thread(this::writeLoop, "release-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * records one release event
+     *
+     * @param timeMillis     the time of the release
+     * @param inventoryBlock the code of the inventory block
+     * @param orderCode      the code of the cancelled order, {@code null} if not known
+     * @param entryNumber    the number of the cancelled order entry, -1 if not known
+     * @param quantity       the released quantity
+     * @param reason         the cancel reason, {@code null} if none
+     * @param note           the notes of the cancellation, {@code null} if none
+     * @param outcome        the {@link Outcome}
+     * @return false if the event was dropped because the writer fell behind
+     */
+    public boolean record(final long timeMillis, final String inventoryBlock, final String orderCode, final int entryNumber,
+                    final int quantity, final String reason, final String note, final Outcome outcome){
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        final int slot = (int) sequence & mask;
+        timestamps[slot] = timeMillis;
+        inventoryBlocks[slot] = inventoryBlock;
+        orderCodes[slot] = orderCode;
+        entryNumbers[slot] = entryNumber;
+        quantities[slot] = quantity;
+        reasons[slot] = reason;
+        notes[slot] = note;
+        outcomes[slot] = outcome;
+        published.set(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because the writer fell behind
+     */
+    public long getDroppedCount(){
+
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of events written to the audit file
+     */
+    public long getWrittenCount(){
+
+        return written.sum();
+    }
+
+    /**
+     * writes all recorded events and closes the audit file
+     */
+    @Override
+    public void close() throws IOException{
+
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private void writeLoop(){
+
+        final StringBuilder batch = new StringBuilder(batchSize * 128);
+        while (true) {
+            long sequence = consumed;
+            int events = 0;
+            while (events < batchSize && published.get((int) sequence & mask) == sequence + 1) {
+                appendEvent(batch, (int) sequence & mask);
+                sequence++;
+                events++;
+            }
+            if (events > 0) {
+                consumed = sequence;
+                write(batch, events);
+                batch.setLength(0);
+            } else if (!running && sequence == claimed.get()) {
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void appendEvent(final StringBuilder batch, final int slot){
+
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(timestamps[slot])).append("\",\"outcome\":\"")
+                        .append(outcomes[slot]).append('"');
+        appendString(line, "inventoryBlock", inventoryBlocks[slot]);
+        line.append(",\"quantity\":").append(quantities[slot]);
+        appendString(line, "order", orderCodes[slot]);
+        if (entryNumbers[slot] >= 0) {
+            line.append(",\"entry\":").append(entryNumbers[slot]);
+        }
+        appendString(line, "reason", reasons[slot]);
+        appendString(line, "notes", notes[slot]);
+        batch.append(line).append("}\n");
+        inventoryBlocks[slot] = null;
+        orderCodes[slot] = null;
+        reasons[slot] = null;
+        notes[slot] = null;
+        outcomes[slot] = null;
+    }
+
+    private static void appendString(final StringBuilder builder, final String name, final String value){
+
+        if (value == null) {
+            return;
+        }
+        builder.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    private void write(final CharSequence batch, final int events){
+
+        final byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null) {
+                open();
+            }
+            if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                roll();
+            }
+            out.write(bytes);
+            out.flush();
+            fileBytes += bytes.length;
+            written.add(events);
+        } catch (final IOException e) {
+            LOG.warn(String.format("%s release audit events could not be written to %s", events, file), e);
+        }
+    }
+
+    /**
+     * rolls the audit file over and opens a new one. If the files can't be moved, the audit file is opened again and
+     * grows beyond maxFileBytes until the next roll over succeeds.
+     */
+    private void roll() throws IOException{
+
+        final OutputStream current = out;
+        out = null;
+        current.close();
+        try {
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                final Path rolled = rolledFile(i);
+                if (Files.exists(rolled)) {
+                    Files.move(rolled, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (maxFiles > 0) {
+                Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(file);
+            }
+        } catch (final IOException e) {
+            LOG.warn(String.format("Release audit file %s could not be rolled over, appending to it", file), e);
+        }
+        open();
+    }
+
+    private void open() throws IOException{
+
+        final OutputStream opened = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+        out = opened;
+    }
+
+    private Path rolledFile(final int index){
+
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * outcome of a release
+     */
+    public enum Outcome{
+
+        /**
+         * the reservation was released in the database
+         */
+        RELEASED,
+
+        /**
+         * the release was journaled and is applied to the database later
+         */
+        JOURNALED,
+
+        /**
+         * the reservation could not be released
+         */
+        FAILED,
+
+        /**
+         * the cancelled quantity was not positive, nothing was released
+         */
+        REJECTED
+    }
+}
@@ -0,0 +1,300 @@
+package com.rccl.core.stock.availability;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+
+/**
+ * in-memory index of the precomputed availability per inventory block code. Entries live in parallel primitive arrays
+ * of an open addressing table, so neither quantities nor statuses are boxed. Every entry carries the version of the
+ * data it was computed from, a lookup only hits if the caller still sees the same version and the entry is not older
+ * than maxAgeMillis.
+ * <p>
+ * Reads are optimistic and lock free as long as no write happens concurrently, writes are serialized.
+ */
+public class AvailabilityIndex{
+
+    /**
+     * status of an entry without stock level status
+     */
+    public static final byte NO_STATUS = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    /**
+     * @param maxEntries   the maximum number of entries, the index is cleared once it would grow beyond
+     * @param maxAgeMillis the maximum age of an entry
+     */
+    public AvailabilityIndex(final int maxEntries, final long maxAgeMillis){
+
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * @param code    the inventory block code
+     * @param version the version of the inventory block the caller sees
+     * @param target  receives the availability on a hit
+     * @return if the index holds a current entry for the code and version
+     */
+    public boolean get(final String code, final long version, final Availability target){
+
+        final long now = System.currentTimeMillis();
+        long stamp = lock.tryOptimisticRead();
+        boolean found = read(table, code, version, now, target);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = read(table, code, version, now, target);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * adds or replaces the entry of the code
+     *
+     * @param code            the inventory block code
+     * @param version         the version of the inventory block the availability is computed from
+     * @param status          the status ordinal, {@link #NO_STATUS} if none
+     * @param hasAvailableQty if an available quantity was computed
+     * @param availableQty    the available quantity
+     */
+    public void put(final String code, final long version, final byte status, final boolean hasAvailableQty, final long availableQty){
+
+        put(code, version, status, hasAvailableQty, availableQty, System.currentTimeMillis());
+    }
+
+    /**
+     * adds or replaces the entry of the code with the time it was computed, so a restored entry keeps its age
+     *
+     * @param code            the inventory block code
+     * @param version         the version of the inventory block the availability is computed from
+     * @param status          the status ordinal, {@link #NO_STATUS} if none
+     * @param hasAvailableQty if an available quantity was computed
+     * @param availableQty    the available quantity
+     * @param updatedAt       the time the availability was computed in milliseconds
+     */
+    public void put(final String code, final long version, final byte status, final boolean hasAvailableQty, final long availableQty,
+                    final long updatedAt){
+
+        final long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = current.find(code);
+            if (slot < 0) {
+                if (current.size >= maxEntries) {
+                    current = new Table(INITIAL_CAPACITY);
+                    table = current;
+                } else if ((current.size + 1) * 2 > current.keys.length) {
+                    current = current.resize();
+                    table = current;
+                }
+                slot = current.insert(code);
+            }
+            current.versions[slot] = version;
+            current.statuses[slot] = status;
+            current.hasQuantities[slot] = hasAvailableQty;
+            current.quantities[slot] = availableQty;
+            current.updatedAt[slot] = updatedAt;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * marks the entry of the code as outdated
+     *
+     * @param code the inventory block code
+     */
+    public void invalidate(final String code){
+
+        final long stamp = lock.writeLock();
+        try {
+            final int slot = table.find(code);
+            if (slot >= 0) {
+                table.updatedAt[slot] = Long.MIN_VALUE;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * removes all entries
+     */
+    public void clear(){
+
+        final long stamp = lock.writeLock();
+        try {
+            table = new Table(INITIAL_CAPACITY);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * visits all current entries, invalidated entries are skipped
+     *
+     * @param visitor receives the entries
+     */
+    public void forEach(final EntryVisitor visitor){
+
+        final long stamp = lock.readLock();
+        try {
+            final Table current = table;
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                if (current.keys[slot] != null && current.updatedAt[slot] != Long.MIN_VALUE) {
+                    visitor.visit(current.keys[slot], current.versions[slot], current.statuses[slot], current.hasQuantities[slot],
+                                    current.quantities[slot], current.updatedAt[slot]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size(){
+
+        return table.size;
+    }
+
+    private boolean read(final Table current, final String code, final long version, final long now, final Availability target){
+
+        final int slot = current.find(code);
+        if (slot < 0 || current.versions[slot] != version || current.updatedAt[slot] == Long.MIN_VALUE
+                        || now - current.updatedAt[slot] > maxAgeMillis) {
+            return false;
+        }
+        target.status = current.statuses[slot];
+        target.hasAvailableQty = current.hasQuantities[slot];
+        target.availableQty = current.quantities[slot];
+        return true;
+    }
+
+    /**
+     * receives the entries of {@link #forEach(EntryVisitor)}
+     */
+    public interface EntryVisitor{
+
+        /**
+         * @param code            the inventory block code
+         * @param version         the version of the inventory block the availability is computed from
+         * @param status          the status ordinal, {@link #NO_STATUS} if none
+         * @param hasAvailableQty if an available quantity was computed
+         * @param availableQty    the available quantity
+         * @param updatedAt       the time the availability was computed in milliseconds
+         */
+        void visit(String code, long version, byte status, boolean hasAvailableQty, long availableQty, long updatedAt);
+    }
+
+    /**
+     * mutable holder of one availability, reusable across lookups
+     */
+    public static final class Availability{
+
+        private byte status = NO_STATUS;
+        private boolean hasAvailableQty;
+        private long availableQty;
+
+        public byte getStatus(){
+
+            return status;
+        }
+
+        public boolean hasAvailableQty(){
+
+            return hasAvailableQty;
+        }
+
+        public long getAvailableQty(){
+
+            return availableQty;
+        }
+    }
+
+    /**
+     * linear probing table, the capacity is a power of two and at most half used
+     */
+    private static final class Table{
+
+        private final String[] keys;
+        private final long[] versions;
+        private final byte[] statuses;
+        private final boolean[] hasQuantities;
+        private final long[] quantities;
+        private final long[] updatedAt;
+        private int size;
+
+        private Table(final int capacity){
+
+            keys = new String[capacity];
+            versions = new long[capacity];
+            statuses = new byte[capacity];
+            hasQuantities = new boolean[capacity];
+            quantities = new long[capacity];
+            updatedAt = new long[capacity];
+            Arrays.fill(updatedAt, Long.MIN_VALUE);
+        }
+
+        private int find(final String code){
+
+            final int mask = keys.length - 1;
+            int slot = spread(code.hashCode()) & mask;
+            for (int probes = 0; probes < keys.length; probes++) {
+                final String key = keys[slot];
+                if (key == null) {
+                    return -1;
+                }
+                if (key.equals(code)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(final String code){
+
+            final int mask = keys.length - 1;
+            int slot = spread(code.hashCode()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = code;
+            size++;
+            return slot;
+        }
+
+        private Table resize(){
+
+            final Table resized = new Table(keys.length * 2);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    final int target = resized.insert(keys[slot]);
+                    resized.versions[target] = versions[slot];
+                    resized.statuses[target] = statuses[slot];
+                    resized.hasQuantities[target] = hasQuantities[slot];
+                    resized.quantities[target] = quantities[slot];
+                    resized.updatedAt[target] = updatedAt[slot];
+                }
+            }
+            return resized;
+        }
+
+        private static int spread(final int hash){
+
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
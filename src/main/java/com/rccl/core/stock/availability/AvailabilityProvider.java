@@ -0,0 +1,58 @@
+package com.rccl.core.stock.availability;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+
+/**
+ * source of the availability of the offerings of a product on a sailing, decoupling the availability endpoint from
+ * the stock service it runs on.
+ */
+public interface AvailabilityProvider{
+
+    /**
+     * name of the servlet context attribute a provider is registered under
+     */
+    String CONTEXT_ATTRIBUTE = AvailabilityProvider.class.getName();
+
+    /**
+     * @param productCode the product code
+     * @param sailingCode the sailing code
+     * @return the availability of each offering of the product on the sailing
+     */
+    List<OfferingAvailability> getAvailability(String productCode, String sailingCode);
+
+    /**
+     * cheap version of the availability of the product on the sailing, which changes whenever
+     * {@link #getAvailability(String, String)} would return something else. Providers without versions return
+     * {@code null}, their responses are never revalidated.
+     *
+     * @param productCode the product code
+     * @param sailingCode the sailing code
+     * @return the version, {@code null} if unknown
+     */
+    default String getVersion(final String productCode, final String sailingCode){
+
+        return null;
+    }
+
+    /**
+     * loads the version and, unless the caller holds it already, the availability of the product on the sailing.
+     * Providers backed by a database override it to derive both from one load, by default
+     * {@link #getVersion(String, String)} is checked before {@link #getAvailability(String, String)} is called.
+     *
+     * @param productCode      the product code
+     * @param sailingCode      the sailing code
+     * @param isCurrentVersion tells if the caller holds the given version already
+     * @return the version with the availability, without availability if the caller holds the version
+     */
+    default VersionedAvailability getAvailability(final String productCode, final String sailingCode,
+                    final Predicate<String> isCurrentVersion){
+
+        final String version = getVersion(productCode, sailingCode);
+        if (version != null && isCurrentVersion.test(version)) {
+            return new VersionedAvailability(version, null);
+        }
+        return new VersionedAvailability(version, getAvailability(productCode, sailingCode));
+    }
+}
@@ -0,0 +1,63 @@
+package com.rccl.core.stock.availability;
+
+/**
+ * immutable availability of one offering as served by the availability endpoint
+ */
+public final class OfferingAvailability{
+
+    private final String code;
+    private final String status;
+    private final Long availableQty;
+    private final boolean expired;
+    private final boolean forceInStock;
+    private final boolean inventoryAvailable;
+
+    /**
+     * @param code               the inventory block code
+     * @param status             the stock level status code, may be {@code null}
+     * @param availableQty       the available quantity, may be {@code null}
+     * @param expired            if the offering is expired
+     * @param forceInStock       if the offering is forced in stock
+     * @param inventoryAvailable if the inventory is available
+     */
+    public OfferingAvailability(final String code, final String status, final Long availableQty, final boolean expired,
+                    final boolean forceInStock, final boolean inventoryAvailable){
+
+        this.code = code;
+        this.status = status;
+        this.availableQty = availableQty;
+        this.expired = expired;
+        this.forceInStock = forceInStock;
+        this.inventoryAvailable = inventoryAvailable;
+    }
+
+    public String getCode(){
+
+        return code;
+    }
+
+    public String getStatus(){
+
+        return status;
+    }
+
+    public Long getAvailableQty(){
+
+        return availableQty;
+    }
+
+    public boolean isExpired(){
+
+        return expired;
+    }
+
+    public boolean isForceInStock(){
+
+        return forceInStock;
+    }
+
+    public boolean isInventoryAvailable(){
+
+        return inventoryAvailable;
+    }
+}
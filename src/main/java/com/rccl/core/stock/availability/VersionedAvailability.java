@@ -0,0 +1,40 @@
+package com.rccl.core.stock.availability;
+
+import java.util.List;
+
+
+/**
+ * availability of the offerings of a product on a sailing together with its version. The availability is left out if
+ * the caller holds the version already.
+ */
+public final class VersionedAvailability{
+
+    private final String version;
+    private final List<OfferingAvailability> availability;
+
+    /**
+     * @param version      the version, may be {@code null}
+     * @param availability the availability, {@code null} if it was not loaded
+     */
+    public VersionedAvailability(final String version, final List<OfferingAvailability> availability){
+
+        this.version = version;
+        this.availability = availability;
+    }
+
+    /**
+     * @return the version, {@code null} if unknown
+     */
+    public String getVersion(){
+
+        return version;
+    }
+
+    /**
+     * @return the availability, {@code null} if the caller held the version already
+     */
+    public List<OfferingAvailability> getAvailability(){
+
+        return availability;
+    }
+}
@@ -0,0 +1,78 @@
+package com.rccl.core.stock.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+
+/**
+ * memoizes computed values per key. Concurrent requests for the same key are coalesced, the value is computed by the
+ * first caller and all others wait for its result. Failed computations are not memoized.
+ * <p>
+ * A memo belongs to one generation of the underlying data, it is meant to be dropped and recreated once the generation
+ * changes or it gets older than the acceptable staleness.
+ */
+public class SingleFlightMemo<V>{
+
+    private final ConcurrentMap<String, FutureTask<V>> entries = new ConcurrentHashMap<>();
+    private final long generation;
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * @param generation the generation of the data the memoized values are computed from
+     */
+    public SingleFlightMemo(final long generation){
+
+        this.generation = generation;
+    }
+
+    /**
+     * @param key    the memo key
+     * @param loader computes the value if the key is not memoized yet
+     * @return the memoized or computed value
+     */
+    public V get(final String key, final Supplier<V> loader){
+
+        FutureTask<V> task = entries.get(key);
+        if (task == null) {
+            final FutureTask<V> newTask = new FutureTask<>(loader::get);
+            task = entries.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                newTask.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (final ExecutionException e) {
+            entries.remove(key, task);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Memoized computation failed for " + key, e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        }
+    }
+
+    /**
+     * @param currentGeneration the current generation of the underlying data
+     * @param maxAgeMillis      the maximum age of the memo
+     * @return if the memo may still be used
+     */
+    public boolean isValid(final long currentGeneration, final long maxAgeMillis){
+
+        return generation == currentGeneration && System.currentTimeMillis() - createdAt <= maxAgeMillis;
+    }
+
+    /**
+     * @return the generation of the data the memoized values are computed from
+     */
+    public long getGeneration(){
+
+        return generation;
+    }
+}
@@ -0,0 +1,70 @@
+package com.rccl.core.stock.cache;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+
+/**
+ * read-through cache for stock level and offering lookups of
+ * {@link com.rccl.core.product.service.impl.DefaultRcclStockService}. Lookups are grouped into regions so that an
+ * entry can be evicted per region and key, e.g. after a reservation change. The values are shared by all sessions and
+ * threads, so only immutable values like {@link de.hybris.platform.core.PK}s are cached, never models.
+ *
+ * @see DefaultStockLookupCache
+ */
+public interface StockLookupCache{
+
+    /**
+     * returns the cached value of the key or loads and caches it. A {@code null} result of the loader is cached as
+     * well, so unknown keys are not looked up again until the entry expires.
+     *
+     * @param region the lookup region
+     * @param key    the lookup key within the region
+     * @param loader loads the value on a miss
+     * @return the cached or loaded value, may be {@code null}
+     */
+    <T> T get(String region, String key, Supplier<T> loader);
+
+    /**
+     * @param region the lookup region
+     * @param key    the lookup key within the region
+     */
+    void invalidate(String region, String key);
+
+    /**
+     * @param region the lookup region to clear
+     */
+    void invalidateRegion(String region);
+
+    /**
+     * @param region    the lookup region
+     * @param keyPrefix the prefix of the lookup keys to remove
+     */
+    void invalidatePrefix(String region, String keyPrefix);
+
+    /**
+     * removes all entries
+     */
+    void invalidateAll();
+
+    /**
+     * @param region the lookup region
+     * @return the keys currently cached in the region
+     */
+    Set<String> keys(String region);
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of lookups which had to be loaded
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of entries removed because of size, expiry or invalidation
+     */
+    long getEvictionCount();
+}
@@ -0,0 +1,102 @@
+package com.rccl.core.stock.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * immutable index of values ordered by a point in time. The times are kept in a sorted primitive array, range and
+ * nearest time queries are answered by binary search. Values without time are not indexed.
+ */
+public class TimeOrderedIndex<T>{
+
+    private final long[] times;
+    private final List<T> values;
+
+    /**
+     * @param values the values to index
+     * @param timeOf reads the time of a value
+     */
+    public TimeOrderedIndex(final Collection<T> values, final Function<T, Date> timeOf){
+
+        final List<T> timed = new ArrayList<>(values.size());
+        for (final T value : values) {
+            if (value != null && timeOf.apply(value) != null) {
+                timed.add(value);
+            }
+        }
+        timed.sort(Comparator.comparing(timeOf));
+        this.values = Collections.unmodifiableList(timed);
+        this.times = new long[timed.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = timeOf.apply(timed.get(i)).getTime();
+        }
+    }
+
+    /**
+     * @param from the start, inclusive
+     * @param to   the end, exclusive
+     * @return the values with a time in the range, ordered by time
+     */
+    public List<T> between(final Date from, final Date to){
+
+        final int start = firstIndexAtOrAfter(from.getTime());
+        final int end = firstIndexAtOrAfter(to.getTime());
+        return start < end ? values.subList(start, end) : Collections.emptyList();
+    }
+
+    /**
+     * @param time the time
+     * @return the values at exactly the time
+     */
+    public List<T> at(final Date time){
+
+        return between(time, new Date(time.getTime() + 1));
+    }
+
+    /**
+     * @param time the time
+     * @return the value with the time closest to the given time, the earlier one on a tie, {@code null} if empty
+     */
+    public T nearest(final Date time){
+
+        if (times.length == 0) {
+            return null;
+        }
+        final long target = time.getTime();
+        final int after = firstIndexAtOrAfter(target);
+        if (after == 0) {
+            return values.get(0);
+        }
+        if (after == times.length) {
+            return values.get(times.length - 1);
+        }
+        return target - times[after - 1] <= times[after] - target ? values.get(after - 1) : values.get(after);
+    }
+
+    /**
+     * @return all values ordered by time
+     */
+    public List<T> values(){
+
+        return values;
+    }
+
+    private int firstIndexAtOrAfter(final long time){
+
+        int index = Arrays.binarySearch(times, time);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && times[index - 1] == time) {
+            index--;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,222 @@
+package com.rccl.core.stock.invalidation;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * keeps the caches of several nodes coherent. Local invalidations are {@link #publish(String, String) published} to
+ * the other nodes through an {@link InvalidationTransport}, batched for at most batchMillis or maxBatchSize messages,
+ * with repeated invalidations of the same key within a batch sent once.
+ * <p>
+ * Every message carries the epoch of its broadcaster, drawn at random when it is created, and a version which only
+ * grows within the epoch. A node remembers the last message it applied per origin and key and drops messages of the
+ * same epoch that are not newer: redelivered messages and messages overtaken by a later invalidation of the same key
+ * are not applied again. Versions of different epochs are not compared, a restarted node starts counting from 0 again
+ * and its messages are applied. Own messages delivered back by the transport are dropped as well. The remembered
+ * messages are bounded by maxTrackedKeys, the least recently seen keys are forgotten first.
+ */
+public class InvalidationBroadcaster implements Closeable{
+
+    private static final Logger LOG = Logger.getLogger(InvalidationBroadcaster.class.getName());
+    private static final char KEY_SEPARATOR = '|';
+
+    private final String nodeId;
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final InvalidationTransport transport;
+    private final int maxBatchSize;
+    private final int maxTrackedKeys;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, InvalidationMessage> outbox = new LinkedHashMap<>();
+    private final Map<String, InvalidationMessage> appliedMessages;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param nodeId         the id of this node, unique within the cluster
+     * @param transport      the {@link InvalidationTransport}
+     * @param batchMillis    the maximum time a message waits for others to be sent with
+     * @param maxBatchSize   the number of messages sending a batch right away
+     * @param maxTrackedKeys the number of keys the last applied version is remembered for
+     */
+    public InvalidationBroadcaster(final String nodeId, final InvalidationTransport transport, final long batchMillis,
+                    final int maxBatchSize, final int maxTrackedKeys){
+
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.maxBatchSize = maxBatchSize;
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.appliedMessages = new LinkedHashMap<String, InvalidationMessage>(16, 0.75f, true){
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, InvalidationMessage> eldest){
+
+                return size() > InvalidationBroadcaster.this.maxTrackedKeys;
+            }
+        };
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "invalidation-broadcaster-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+        transport.subscribe(this::receive);
+    }
+
+    /**
+     * @param listener applies the invalidations of other nodes
+     */
+    public void addListener(final InvalidationListener listener){
+
+        listeners.add(listener);
+    }
+
+    /**
+     * sends the invalidation to the other nodes with the next batch
+     *
+     * @param region the cache region
+     * @param key    the key within the region, {@code null} for the whole region
+     */
+    public void publish(final String region, final String key){
+
+        final InvalidationMessage message = new InvalidationMessage(nodeId, epoch, sequence.incrementAndGet(), region, key);
+        final boolean full;
+        synchronized (outbox) {
+            outbox.put(createKey(region, key), message);
+            full = outbox.size() >= maxBatchSize;
+        }
+        published.increment();
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * sends the pending invalidations now
+     */
+    public void flush(){
+
+        final List<InvalidationMessage> batch;
+        synchronized (outbox) {
+            if (outbox.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(outbox.values());
+            outbox.clear();
+        }
+        transport.publish(batch);
+    }
+
+    /**
+     * @return the id of this node
+     */
+    public String getNodeId(){
+
+        return nodeId;
+    }
+
+    /**
+     * @return the epoch of this node, random per broadcaster
+     */
+    public long getEpoch(){
+
+        return epoch;
+    }
+
+    /**
+     * @return the number of invalidations published by this node
+     */
+    public long getPublishedCount(){
+
+        return published.sum();
+    }
+
+    /**
+     * @return the number of invalidations of other nodes applied
+     */
+    public long getAppliedCount(){
+
+        return applied.sum();
+    }
+
+    /**
+     * @return the number of received invalidations dropped as own, duplicate or out of order
+     */
+    public long getDroppedCount(){
+
+        return dropped.sum();
+    }
+
+    /**
+     * sends the pending invalidations and stops batching, the transport is left open
+     */
+    @Override
+    public void close(){
+
+        scheduler.shutdown();
+        flush();
+    }
+
+    private void receive(final List<InvalidationMessage> batch){
+
+        for (final InvalidationMessage message : batch) {
+            if (nodeId.equals(message.getOrigin()) && epoch == message.getEpoch() || !isNewer(message)) {
+                dropped.increment();
+                continue;
+            }
+            for (final InvalidationListener listener : listeners) {
+                try {
+                    listener.invalidate(message.getRegion(), message.getKey());
+                } catch (final RuntimeException e) {
+                    LOG.log(Level.WARNING, "Invalidation " + message + " could not be applied", e);
+                }
+            }
+            applied.increment();
+        }
+    }
+
+    private boolean isNewer(final InvalidationMessage message){
+
+        final String versionKey = message.getOrigin() + KEY_SEPARATOR + createKey(message.getRegion(), message.getKey());
+        synchronized (appliedMessages) {
+            final InvalidationMessage appliedMessage = appliedMessages.get(versionKey);
+            if (appliedMessage != null && appliedMessage.getEpoch() == message.getEpoch()
+                            && appliedMessage.getVersion() >= message.getVersion()) {
+                return false;
+            }
+            appliedMessages.put(versionKey, message);
+            return true;
+        }
+    }
+
+    private void flushQuietly(){
+
+        try {
+            flush();
+        } catch (final RuntimeException e) {
+            LOG.log(Level.WARNING, "Invalidations could not be published", e);
+        }
+    }
+
+    private static String createKey(final String region, final String key){
+
+        return key != null ? region + KEY_SEPARATOR + key : region;
+    }
+}
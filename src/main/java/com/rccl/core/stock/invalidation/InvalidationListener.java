@@ -0,0 +1,13 @@
+package com.rccl.core.stock.invalidation;
+
+/**
+ * applies invalidations received from other nodes to the local caches
+ */
+public interface InvalidationListener{
+
+    /**
+     * @param region the cache region
+     * @param key    the key within the region, {@code null} for the whole region
+     */
+    void invalidate(String region, String key);
+}
@@ -0,0 +1,62 @@
+package com.rccl.core.stock.invalidation;
+
+/**
+ * immutable invalidation of one cached key, or of a whole region if the key is {@code null}. The version is the
+ * sequence number of the message at its origin, it only grows within one epoch of the origin. A node starts a new
+ * epoch each time it starts, so versions of different epochs are not comparable.
+ */
+public final class InvalidationMessage{
+
+    private final String origin;
+    private final long epoch;
+    private final long version;
+    private final String region;
+    private final String key;
+
+    /**
+     * @param origin  the id of the node which sent the message
+     * @param epoch   the epoch of the origin, random per start of the node
+     * @param version the sequence number of the message within the epoch
+     * @param region  the cache region
+     * @param key     the key within the region, {@code null} for the whole region
+     */
+    public InvalidationMessage(final String origin, final long epoch, final long version, final String region, final String key){
+
+        this.origin = origin;
+        this.epoch = epoch;
+        this.version = version;
+        this.region = region;
+        this.key = key;
+    }
+
+    public String getOrigin(){
+
+        return origin;
+    }
+
+    public long getEpoch(){
+
+        return epoch;
+    }
+
+    public long getVersion(){
+
+        return version;
+    }
+
+    public String getRegion(){
+
+        return region;
+    }
+
+    public String getKey(){
+
+        return key;
+    }
+
+    @Override
+    public String toString(){
+
+        return origin + '@' + Long.toHexString(epoch) + '#' + version + ' ' + region + (key != null ? ' ' + key : "");
+    }
+}
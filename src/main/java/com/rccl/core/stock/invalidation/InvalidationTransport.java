@@ -0,0 +1,26 @@
+package com.rccl.core.stock.invalidation;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+/**
+ * carries batches of {@link InvalidationMessage}s between the nodes of a cluster. Transports may deliver batches
+ * more than once, late or out of order, the {@link InvalidationBroadcaster} drops what it has already seen. A batch
+ * published by a node may be delivered back to it.
+ *
+ * @see LoopbackInvalidationTransport
+ */
+public interface InvalidationTransport extends Closeable{
+
+    /**
+     * @param batch the messages to send to all nodes
+     */
+    void publish(List<InvalidationMessage> batch);
+
+    /**
+     * @param receiver receives the batches published by any node
+     */
+    void subscribe(Consumer<List<InvalidationMessage>> receiver);
+}
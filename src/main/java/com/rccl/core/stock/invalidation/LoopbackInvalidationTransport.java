@@ -0,0 +1,54 @@
+package com.rccl.core.stock.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+
+/**
+ * in-process {@link InvalidationTransport}: all broadcasters sharing one instance form a cluster within one JVM. Each
+ * batch is handed to every subscriber through the executor, so an asynchronous or reordering executor simulates the
+ * delivery of a real network.
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport{
+
+    private final List<Consumer<List<InvalidationMessage>>> receivers = new CopyOnWriteArrayList<>();
+    private final Executor executor;
+
+    /**
+     * delivers the batches on the publishing thread
+     */
+    public LoopbackInvalidationTransport(){
+
+        this(Runnable::run);
+    }
+
+    /**
+     * @param executor delivers the batches to each subscriber
+     */
+    public LoopbackInvalidationTransport(final Executor executor){
+
+        this.executor = executor;
+    }
+
+    @Override
+    public void publish(final List<InvalidationMessage> batch){
+
+        for (final Consumer<List<InvalidationMessage>> receiver : receivers) {
+            executor.execute(() -> receiver.accept(batch));
+        }
+    }
+
+    @Override
+    public void subscribe(final Consumer<List<InvalidationMessage>> receiver){
+
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void close(){
+
+        receivers.clear();
+    }
+}
@@ -0,0 +1,465 @@
+package com.rccl.core.stock.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+
+/**
+ * durable append-only journal of reservation release deltas per inventory block code, for releasing in write-behind
+ * mode. The journal is one memory-mapped file: a header with the journal id and the checkpoint, followed by
+ * checksummed records with strictly increasing sequence numbers.
+ * <p>
+ * {@link #append(Map)} returns once its records are on disk. Appenders are group committed, one sync thread forces
+ * the mapping at most every syncIntervalMillis for all records appended meanwhile. Whoever applies the deltas to the
+ * database takes them with {@link #pending()} and confirms them with {@link #checkpoint(long)}. On open, all records
+ * after the checkpoint are replayed into {@link #pending()}, a torn record at the end of the journal was never
+ * acknowledged and ends the replay. Once everything is checkpointed the journal starts over at the beginning of the
+ * file.
+ * <p>
+ * Replay is at least once: deltas applied but not yet checkpointed when the process died are replayed. Together with
+ * the {@link #getId() journal id}, the sequence identifies a delta across restarts, so whoever applies the deltas can
+ * record the last sequence applied per inventory block and skip replayed deltas. The id is created with the file,
+ * sequences only restart in a new file with a new id.
+ * <p>
+ * If a sync fails, all records appended since the last successful sync are rolled back and their appenders fail, so
+ * a caller releasing synchronously instead never has its deltas replayed. The journal refuses appends from then on.
+ */
+public class ReleaseJournal implements Closeable{
+
+    private static final int MAGIC = 0x52434a52;
+    private static final int FORMAT_VERSION = 2;
+    private static final int UNIDENTIFIED_FORMAT_VERSION = 1;
+    private static final int CHECKPOINT_OFFSET = 8;
+    private static final int ID_OFFSET = 16;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_OVERHEAD = 4 + 8 + 4 + 2 + 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long syncIntervalMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final List<Delta> pending = new ArrayList<>();
+    private final Thread syncThread;
+    private final UUID id;
+    private int writePosition = HEADER_SIZE;
+    private int syncedPosition = HEADER_SIZE;
+    private long lastSequence;
+    private long syncedSequence;
+    private long checkpointSequence;
+    private IOException syncFailure;
+    private boolean closed;
+
+    /**
+     * opens or creates the journal and replays the records after the checkpoint. A journal of the previous format
+     * version, which had no id, gets one.
+     *
+     * @param file               the journal file
+     * @param capacity           the size of the journal file in bytes
+     * @param syncIntervalMillis the maximum time appended records wait to be synced together with later ones
+     * @throws IOException if the file can't be mapped or is no release journal
+     */
+    public ReleaseJournal(final Path file, final int capacity, final long syncIntervalMillis) throws IOException{
+
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long existingSize = channel.size();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, existingSize));
+        if (existingSize == 0) {
+            id = UUID.randomUUID();
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(CHECKPOINT_OFFSET, 0L);
+            writeId();
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+        } else {
+            final int version = buffer.getInt(4);
+            if (buffer.getInt(0) != MAGIC || (version != FORMAT_VERSION && version != UNIDENTIFIED_FORMAT_VERSION)) {
+                channel.close();
+                throw new IOException("Not a release journal of version " + FORMAT_VERSION + ": " + file);
+            }
+            if (version == UNIDENTIFIED_FORMAT_VERSION) {
+                id = UUID.randomUUID();
+                writeId();
+                buffer.force();
+            } else {
+                id = new UUID(buffer.getLong(ID_OFFSET), buffer.getLong(ID_OFFSET + 8));
+            }
+            replay();
+        }
+        this.syncedSequence = lastSequence;
+        this.syncedPosition = writePosition;
+        this.syncThread = new Thread(this::syncLoop, "release-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * appends the deltas and waits until they are on disk
+     *
+     * @param deltas the quantities to release by inventory block code, in order
+     * @return the sequence of the last appended record
+     * @throws IOException           if the journal could not be synced, the deltas are not journaled then
+     * @throws IllegalStateException if the journal is closed or has no room for the deltas
+     */
+    public long append(final Map<String, List<Integer>> deltas) throws IOException{
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Release journal is closed");
+            }
+            if (syncFailure != null) {
+                throw new IOException("Release journal could not be synced", syncFailure);
+            }
+            final List<byte[]> codes = new ArrayList<>(deltas.size());
+            int size = 0;
+            for (final Map.Entry<String, List<Integer>> delta : deltas.entrySet()) {
+                final byte[] bytes = delta.getKey().getBytes(StandardCharsets.UTF_8);
+                codes.add(bytes);
+                size += (RECORD_OVERHEAD + bytes.length) * delta.getValue().size();
+            }
+            if (writePosition + size + 4 > buffer.capacity()) {
+                throw new IllegalStateException("Release journal is full");
+            }
+            int index = 0;
+            for (final Map.Entry<String, List<Integer>> delta : deltas.entrySet()) {
+                final byte[] code = codes.get(index++);
+                for (final Integer quantity : delta.getValue()) {
+                    final long sequence = ++lastSequence;
+                    writeRecord(sequence, code, quantity);
+                    pending.add(new Delta(sequence, delta.getKey(), quantity));
+                }
+            }
+            final long target = lastSequence;
+            appended.signalAll();
+            while (syncedSequence < target) {
+                if (syncFailure != null) {
+                    throw new IOException("Release journal could not be synced", syncFailure);
+                }
+                synced.awaitUninterruptibly();
+            }
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the id of the journal, the same for as long as the journal file exists
+     */
+    public String getId(){
+
+        return id.toString();
+    }
+
+    /**
+     * @return the deltas appended but not checkpointed yet, in append order per inventory block code
+     */
+    public Batch pending(){
+
+        lock.lock();
+        try {
+            final Map<String, NavigableMap<Long, Integer>> quantities = new LinkedHashMap<>();
+            long batchSequence = checkpointSequence;
+            for (final Delta delta : pending) {
+                if (delta.sequence <= syncedSequence) {
+                    quantities.computeIfAbsent(delta.code, code -> new TreeMap<>()).put(delta.sequence, delta.quantity);
+                    batchSequence = delta.sequence;
+                }
+            }
+            return new Batch(quantities, batchSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * confirms that all deltas up to the sequence are applied, they are not replayed anymore
+     *
+     * @param sequence the {@link Batch#getLastSequence() last sequence} of the applied batch
+     */
+    public void checkpoint(final long sequence){
+
+        lock.lock();
+        try {
+            if (sequence <= checkpointSequence) {
+                return;
+            }
+            checkpointSequence = sequence;
+            pending.removeIf(delta -> delta.sequence <= sequence);
+            buffer.putLong(CHECKPOINT_OFFSET, sequence);
+            if (pending.isEmpty() && syncedSequence == lastSequence) {
+                writePosition = HEADER_SIZE;
+                syncedPosition = HEADER_SIZE;
+                buffer.putInt(HEADER_SIZE, 0);
+            }
+            buffer.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes used by records
+     */
+    public int getUsedBytes(){
+
+        lock.lock();
+        try {
+            return writePosition - HEADER_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * drops the records appended since the last successful sync from memory and ends the journal on disk before them,
+     * so they are not replayed. Called by the sync thread with the lock held once a sync failed.
+     */
+    private void rollBackUnsynced(){
+
+        if (lastSequence == syncedSequence) {
+            return;
+        }
+        final long sequence = syncedSequence;
+        pending.removeIf(delta -> delta.sequence > sequence);
+        lastSequence = syncedSequence;
+        writePosition = syncedPosition;
+        buffer.putInt(writePosition, 0);
+        try {
+            buffer.force();
+        } catch (final RuntimeException e) {
+            syncFailure.addSuppressed(e);
+        }
+    }
+
+    private void writeId(){
+
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(ID_OFFSET, id.getMostSignificantBits());
+        buffer.putLong(ID_OFFSET + 8, id.getLeastSignificantBits());
+    }
+
+    private void writeRecord(final long sequence, final byte[] code, final int quantity){
+
+        final int start = writePosition;
+        final int length = RECORD_OVERHEAD - 4 + code.length;
+        buffer.putLong(start + 4, sequence);
+        buffer.putInt(start + 12, quantity);
+        buffer.putShort(start + 16, (short) code.length);
+        for (int i = 0; i < code.length; i++) {
+            buffer.put(start + 18 + i, code[i]);
+        }
+        buffer.putInt(start + 18 + code.length, checksum(sequence, quantity, code));
+        buffer.putInt(start + 4 + length, 0);
+        buffer.putInt(start, length);
+        writePosition = start + 4 + length;
+    }
+
+    private void replay(){
+
+        checkpointSequence = buffer.getLong(CHECKPOINT_OFFSET);
+        lastSequence = checkpointSequence;
+        long previous = -1L;
+        int position = HEADER_SIZE;
+        while (position + RECORD_OVERHEAD <= buffer.capacity()) {
+            final int length = buffer.getInt(position);
+            if (length < RECORD_OVERHEAD - 4 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+            final long sequence = buffer.getLong(position + 4);
+            final int quantity = buffer.getInt(position + 12);
+            final int codeLength = buffer.getShort(position + 16) & 0xFFFF;
+            if (codeLength != length - (RECORD_OVERHEAD - 4) || sequence <= previous) {
+                break;
+            }
+            final byte[] code = new byte[codeLength];
+            for (int i = 0; i < codeLength; i++) {
+                code[i] = buffer.get(position + 18 + i);
+            }
+            if (buffer.getInt(position + 18 + codeLength) != checksum(sequence, quantity, code)) {
+                break;
+            }
+            if (sequence > checkpointSequence) {
+                pending.add(new Delta(sequence, new String(code, StandardCharsets.UTF_8), quantity));
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            previous = sequence;
+            position += 4 + length;
+        }
+        writePosition = position;
+    }
+
+    private void syncLoop(){
+
+        while (true) {
+            final long target;
+            final int targetPosition;
+            lock.lock();
+            try {
+                while (!closed && syncedSequence == lastSequence) {
+                    appended.awaitUninterruptibly();
+                }
+                if (closed && syncedSequence == lastSequence) {
+                    synced.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (syncIntervalMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(syncIntervalMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lock.lock();
+            try {
+                target = lastSequence;
+                targetPosition = writePosition;
+            } finally {
+                lock.unlock();
+            }
+            IOException failure = null;
+            try {
+                buffer.force();
+            } catch (final RuntimeException e) {
+                failure = new IOException(e);
+            }
+            lock.lock();
+            try {
+                if (failure != null) {
+                    syncFailure = failure;
+                    rollBackUnsynced();
+                } else {
+                    syncedSequence = target;
+                    syncedPosition = targetPosition;
+                }
+                synced.signalAll();
+                if (failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static int checksum(final long sequence, final int quantity, final byte[] code){
+
+        final CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(quantity >>> shift);
+        }
+        crc.update(code, 0, code.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * one appended delta
+     */
+    private static final class Delta{
+
+        private final long sequence;
+        private final String code;
+        private final int quantity;
+
+        private Delta(final long sequence, final String code, final int quantity){
+
+            this.sequence = sequence;
+            this.code = code;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * deltas to apply together, in append order per inventory block code
+     */
+    public static final class Batch{
+
+        private final Map<String, NavigableMap<Long, Integer>> quantitiesBySequence;
+        private final long lastSequence;
+
+        private Batch(final Map<String, NavigableMap<Long, Integer>> quantitiesBySequence, final long lastSequence){
+
+            this.quantitiesBySequence = Collections.unmodifiableMap(quantitiesBySequence);
+            this.lastSequence = lastSequence;
+        }
+
+        /**
+         * @return the quantities to release by inventory block code, in order
+         */
+        public Map<String, List<Integer>> getQuantities(){
+
+            final Map<String, List<Integer>> quantities = new LinkedHashMap<>();
+            quantitiesBySequence.forEach((code, deltas) -> quantities.put(code, new ArrayList<>(deltas.values())));
+            return quantities;
+        }
+
+        /**
+         * @return the quantities to release by journal sequence, by inventory block code
+         */
+        public Map<String, NavigableMap<Long, Integer>> getQuantitiesBySequence(){
+
+            return quantitiesBySequence;
+        }
+
+        /**
+         * @return the sequence to {@link ReleaseJournal#checkpoint(long) checkpoint} once the batch is applied
+         */
+        public long getLastSequence(){
+
+            return lastSequence;
+        }
+
+        public boolean isEmpty(){
+
+            return quantitiesBySequence.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.rccl.core.stock.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * lock free log-linear histogram in the style of HdrHistogram. Values below 32 get an exact bucket, larger values are
+ * split into 32 linear sub buckets per power of two, so every recorded value is kept with a relative error below 1/32.
+ * Recording is two atomic increments and never allocates.
+ */
+public class LatencyHistogram{
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * @param value the value to record, negative values are recorded as 0
+     */
+    public void record(final long value){
+
+        final long recorded = Math.max(0L, value);
+        buckets.incrementAndGet(bucketIndex(recorded));
+        count.increment();
+        sum.add(recorded);
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount(){
+
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of all recorded values
+     */
+    public long getSum(){
+
+        return sum.sum();
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100
+     * @return the highest value of the bucket the percentile falls into, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile){
+
+        final long total = getCount();
+        if (total == 0) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100d, Math.max(0d, percentile)) / 100d));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += buckets.get(index);
+            if (seen >= rank) {
+                return highestValueOf(index);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * counts the recorded values up to each upper bound in one pass over the buckets, for cumulative histogram buckets
+     * as prometheus expects them. A value counts for a bound if the lowest value of its bucket is not above the bound, so
+     * values equal to a bound are always counted and the counts are exact to the relative error of the buckets.
+     *
+     * @param upperBounds the upper bounds in ascending order
+     * @return the number of values up to each upper bound, followed by the number of all values
+     */
+    public long[] getCumulativeCounts(final long[] upperBounds){
+
+        final long[] counts = new long[upperBounds.length + 1];
+        int bound = 0;
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            final long lowest = lowestValueOf(index);
+            while (bound < upperBounds.length && lowest > upperBounds[bound]) {
+                counts[bound++] = seen;
+            }
+            seen += buckets.get(index);
+        }
+        while (bound < upperBounds.length) {
+            counts[bound++] = seen;
+        }
+        counts[upperBounds.length] = seen;
+        return counts;
+    }
+
+    private static int bucketIndex(final long value){
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    private static long lowestValueOf(final int index){
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        return (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << (index / SUB_BUCKET_COUNT - 1);
+    }
+
+    private static long highestValueOf(final int index){
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        return lowestValueOf(index) + (1L << (index / SUB_BUCKET_COUNT - 1)) - 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.rccl.core.stock.metrics;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * registry of the latency and result size histograms of the stock service, its DAOs and strategies. Latencies are
+ * recorded in nanoseconds.
+ *
+ * @see LatencyHistogram
+ */
+public class StockMetrics{
+
+    private static final StockMetrics DEFAULT = new StockMetrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> resultSizes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the instance shared by the stock service and the metrics endpoint
+     */
+    public static StockMetrics getDefault(){
+
+        return DEFAULT;
+    }
+
+    /**
+     * @param name  the name of the measured call
+     * @param nanos the duration of the call in nanoseconds
+     */
+    public void recordLatency(final String name, final long nanos){
+
+        histogram(latencies, name).record(nanos);
+    }
+
+    /**
+     * @param name the name of the measured call
+     * @param size the number of results of the call
+     */
+    public void recordResultSize(final String name, final long size){
+
+        histogram(resultSizes, name).record(size);
+    }
+
+    /**
+     * @return the latency histograms by call name, sorted by name
+     */
+    public SortedMap<String, LatencyHistogram> getLatencies(){
+
+        return Collections.unmodifiableSortedMap(new TreeMap<>(latencies));
+    }
+
+    /**
+     * @return the result size histograms by call name, sorted by name
+     */
+    public SortedMap<String, LatencyHistogram> getResultSizes(){
+
+        return Collections.unmodifiableSortedMap(new TreeMap<>(resultSizes));
+    }
+
+    private static LatencyHistogram histogram(final ConcurrentMap<String, LatencyHistogram> histograms, final String name){
+
+        final LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+}
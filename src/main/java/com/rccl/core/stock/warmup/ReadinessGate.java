@@ -0,0 +1,50 @@
+package com.rccl.core.stock.warmup;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * readiness of the web application to take traffic. Components which have to finish before traffic is routed to the
+ * instance {@link #require(String) require} a named condition and {@link #complete(String) complete} it once done, the
+ * instance is ready when no condition is pending.
+ */
+public class ReadinessGate{
+
+    /**
+     * name of the servlet context attribute the gate is registered under
+     */
+    public static final String CONTEXT_ATTRIBUTE = ReadinessGate.class.getName();
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param condition the name of the condition the instance is not ready without
+     */
+    public void require(final String condition){
+
+        pending.add(condition);
+    }
+
+    /**
+     * @param condition the name of the fulfilled condition
+     */
+    public void complete(final String condition){
+
+        pending.remove(condition);
+    }
+
+    public boolean isReady(){
+
+        return pending.isEmpty();
+    }
+
+    /**
+     * @return the names of the pending conditions, sorted
+     */
+    public Set<String> getPending(){
+
+        return new TreeSet<>(pending);
+    }
+}
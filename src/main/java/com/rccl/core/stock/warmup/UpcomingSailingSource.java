@@ -0,0 +1,19 @@
+package com.rccl.core.stock.warmup;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * source of the sailings the stock caches are pre-warmed for, e.g. the sailings which open for booking or depart soon.
+ */
+public interface UpcomingSailingSource{
+
+    /**
+     * @param from the start of the departure window, inclusive
+     * @param to   the end of the departure window, exclusive
+     * @return the codes of the products to warm by the code of each sailing departing in the window
+     */
+    Map<String, Set<String>> getProductCodesBySailing(Date from, Date to);
+}
@@ -0,0 +1,203 @@
+package com.rccl.core.stock.warmup;
+
+import com.rccl.core.stock.availability.AvailabilityIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * versioned binary file holding the hot data of a stock service instance, so a new instance starts with warm data.
+ * The file holds the entries of an {@link AvailabilityIndex} and named sets of lookup keys. Availability entries carry
+ * the version they were computed from, so an entry whose inventory block changed since the dump is simply never hit.
+ * Lookup keys carry no data, they name what is worth loading again in the background.
+ * <p>
+ * Layout: magic, format version, creation time, entry count, entries, key set count, key sets. Each entry keeps the
+ * time it was computed, so restored entries expire like the dumped ones, entries of a version 1 file are dated at its
+ * creation time. Strings are stored as length prefixed UTF-8. The file is written to a temporary file and moved in
+ * place, and read through a read only memory mapping.
+ */
+public final class WarmStartSnapshot{
+
+    private static final int MAGIC = 0x52435753;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FORMAT_VERSION_WITHOUT_UPDATE_TIME = 1;
+
+    private final long createdAt;
+    private final int availabilityEntries;
+    private final Map<String, List<String>> keys;
+
+    private WarmStartSnapshot(final long createdAt, final int availabilityEntries, final Map<String, List<String>> keys){
+
+        this.createdAt = createdAt;
+        this.availabilityEntries = availabilityEntries;
+        this.keys = Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * writes the entries of the index and the key sets to the file, replacing it atomically
+     *
+     * @param file  the snapshot file
+     * @param index the {@link AvailabilityIndex} to dump, may be {@code null}
+     * @param keys  the lookup keys by name
+     * @throws IOException if the file can't be written
+     */
+    public static void write(final Path file, final AvailabilityIndex index, final Map<String, ? extends Collection<String>> keys)
+                    throws IOException{
+
+        final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        final DataOutputStream entriesOut = new DataOutputStream(entries);
+        final int[] entryCount = { 0 };
+        if (index != null) {
+            index.forEach((code, version, status, hasAvailableQty, availableQty, updatedAt) -> {
+                try {
+                    writeString(entriesOut, code);
+                    entriesOut.writeLong(version);
+                    entriesOut.writeByte(status);
+                    entriesOut.writeBoolean(hasAvailableQty);
+                    entriesOut.writeLong(availableQty);
+                    entriesOut.writeLong(updatedAt);
+                    entryCount[0]++;
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream(entries.size() + 1024);
+        final DataOutputStream out = new DataOutputStream(content);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(entryCount[0]);
+        entries.writeTo(out);
+        out.writeInt(keys.size());
+        for (final Map.Entry<String, ? extends Collection<String>> keySet : keys.entrySet()) {
+            writeString(out, keySet.getKey());
+            out.writeInt(keySet.getValue().size());
+            for (final String key : keySet.getValue()) {
+                writeString(out, key);
+            }
+        }
+        out.flush();
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content.toByteArray());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * maps the file and loads its availability entries into the index
+     *
+     * @param file  the snapshot file
+     * @param index the {@link AvailabilityIndex} to fill, may be {@code null}
+     * @return the {@link WarmStartSnapshot} with the key sets
+     * @throws IOException if the file can't be read or is no snapshot of a supported format
+     */
+    public static WarmStartSnapshot read(final Path file, final AvailabilityIndex index) throws IOException{
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a warm start snapshot: " + file);
+            }
+            final int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION && formatVersion != FORMAT_VERSION_WITHOUT_UPDATE_TIME) {
+                throw new IOException("Unsupported warm start snapshot version " + formatVersion + ": " + file);
+            }
+            final long createdAt = buffer.getLong();
+            final int entryCount = buffer.getInt();
+            for (int i = 0; i < entryCount; i++) {
+                final String code = readString(buffer);
+                final long version = buffer.getLong();
+                final byte status = buffer.get();
+                final boolean hasAvailableQty = buffer.get() != 0;
+                final long availableQty = buffer.getLong();
+                final long updatedAt = formatVersion == FORMAT_VERSION ? buffer.getLong() : createdAt;
+                if (index != null) {
+                    index.put(code, version, status, hasAvailableQty, availableQty, updatedAt);
+                }
+            }
+            final int keySetCount = buffer.getInt();
+            final Map<String, List<String>> keys = new LinkedHashMap<>();
+            for (int i = 0; i < keySetCount; i++) {
+                final String name = readString(buffer);
+                final int keyCount = buffer.getInt();
+                final List<String> keySet = new ArrayList<>(keyCount);
+                for (int k = 0; k < keyCount; k++) {
+                    keySet.add(readString(buffer));
+                }
+                keys.put(name, Collections.unmodifiableList(keySet));
+            }
+            return new WarmStartSnapshot(createdAt, entryCount, keys);
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated warm start snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * @return the time the snapshot was written in milliseconds
+     */
+    public long getCreatedAt(){
+
+        return createdAt;
+    }
+
+    /**
+     * @return the number of availability entries loaded
+     */
+    public int getAvailabilityEntries(){
+
+        return availabilityEntries;
+    }
+
+    /**
+     * @param name the name of the key set
+     * @return the keys of the set, empty if the snapshot has none
+     */
+    public List<String> getKeys(final String name){
+
+        final List<String> keySet = keys.get(name);
+        return keySet != null ? keySet : Collections.<String>emptyList();
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException{
+
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final MappedByteBuffer buffer) throws IOException{
+
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,316 @@
+package com.rccl.web.availability;
+
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.core.stock.availability.OfferingAvailability;
+import com.rccl.core.stock.availability.VersionedAvailability;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * serves the availability of the offerings of a product on a sailing as JSON,
+ * {@code GET /availability?productCode=...&sailingCode=...}.
+ * <p>
+ * In the default async mode the request is suspended with an {@link AsyncContext} and answered through the
+ * {@link CoalescingAvailabilityLoader}, so no container thread waits for the database and concurrent polls of the
+ * same product and sailing share one provider call. In blocking mode the provider is called on the container thread,
+ * which is the baseline to benchmark the async mode against.
+ * <p>
+ * The {@link AvailabilityProvider} registered as servlet context attribute {@link AvailabilityProvider#CONTEXT_ATTRIBUTE}
+ * is used, otherwise the class of the init-param {@value #PROVIDER_CLASS_PARAM} is instantiated, e.g. a stand-in for
+ * benchmarks. Without either the servlet fails to start rather than serving made up availability.
+ * <p>
+ * Responses carry the {@link AvailabilityProvider#getVersion(String, String) version} of the availability as ETag. The
+ * version and the availability come from one {@link AvailabilityProvider#getAvailability(String, String, java.util.function.Predicate)
+ * provider call}, a poll whose If-None-Match still matches the current version is answered with 304 Not Modified
+ * without evaluating or serializing the availability.
+ */
+public class AvailabilityServlet extends HttpServlet{
+
+    private static final String MODE_PARAM = "mode";
+    private static final String COALESCE_WINDOW_PARAM = "coalesceWindowMillis";
+    private static final String WORKER_THREADS_PARAM = "workerThreads";
+    private static final String TIMEOUT_PARAM = "timeoutMillis";
+    private static final String PROVIDER_CLASS_PARAM = "providerClass";
+    private static final String PRODUCT_CODE = "productCode";
+    private static final String SAILING_CODE = "sailingCode";
+    private static final String ETAG = "ETag";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String NO_CACHE = "no-cache";
+    private static final long serialVersionUID = 1L;
+    private static final String BLOCKING_MODE = "blocking";
+    private static final String CONTENT_TYPE = "application/json";
+    private static final long DEFAULT_COALESCE_WINDOW_MILLIS = 5L;
+    private static final int DEFAULT_WORKER_THREADS = 16;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000L;
+
+    private transient AvailabilityProvider provider;
+    private transient CoalescingAvailabilityLoader loader;
+    private transient ScheduledExecutorService scheduler;
+    private transient ExecutorService workers;
+    private boolean blocking;
+    private long timeoutMillis;
+
+    @Override
+    public void init() throws ServletException{
+
+        provider = lookupProvider();
+        blocking = BLOCKING_MODE.equalsIgnoreCase(getInitParameter(MODE_PARAM));
+        timeoutMillis = getLongParameter(TIMEOUT_PARAM, DEFAULT_TIMEOUT_MILLIS);
+        if (!blocking) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("availability-coalescer"));
+            workers = Executors.newFixedThreadPool((int) getLongParameter(WORKER_THREADS_PARAM, DEFAULT_WORKER_THREADS),
+                            daemonThreads("availability-worker"));
+            loader = new CoalescingAvailabilityLoader(provider, scheduler, workers,
+                            getLongParameter(COALESCE_WINDOW_PARAM, DEFAULT_COALESCE_WINDOW_MILLIS));
+        }
+    }
+
+    @Override
+    public void destroy(){
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException{
+
+        final String productCode = request.getParameter(PRODUCT_CODE);
+        final String sailingCode = request.getParameter(SAILING_CODE);
+        if (isBlank(productCode) || isBlank(sailingCode)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, PRODUCT_CODE + " and " + SAILING_CODE + " are required");
+            return;
+        }
+        final String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (blocking || !request.isAsyncSupported()) {
+            final VersionedAvailability result;
+            try {
+                result = provider.getAvailability(productCode, sailingCode, version -> isNotModified(ifNoneMatch, version));
+            } catch (final RuntimeException e) {
+                getServletContext().log("Availability could not be loaded for " + productCode + " " + sailingCode, e);
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            writeResult(response, productCode, sailingCode, result);
+            return;
+        }
+
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeoutMillis);
+        final AtomicBoolean done = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener(){
+
+            @Override
+            public void onTimeout(final AsyncEvent event) throws IOException{
+
+                if (done.compareAndSet(false, true)) {
+                    final HttpServletResponse timedOutResponse = (HttpServletResponse) event.getAsyncContext().getResponse();
+                    timedOutResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    event.getAsyncContext().complete();
+                }
+            }
+
+            @Override
+            public void onError(final AsyncEvent event){
+
+                if (done.compareAndSet(false, true)) {
+                    getServletContext().log("Availability request failed for " + productCode + " " + sailingCode, event.getThrowable());
+                    event.getAsyncContext().complete();
+                }
+            }
+
+            @Override
+            public void onComplete(final AsyncEvent event){
+
+                done.set(true);
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event){
+
+                // nothing to do
+            }
+        });
+        loader.load(productCode, sailingCode, ifNoneMatch, version -> isNotModified(ifNoneMatch, version)).whenComplete((result, error) -> {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            final HttpServletResponse asyncResponse = (HttpServletResponse) asyncContext.getResponse();
+            try {
+                if (error != null) {
+                    getServletContext().log("Availability could not be loaded for " + productCode + " " + sailingCode, error);
+                    asyncResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } else {
+                    writeResult(asyncResponse, productCode, sailingCode, result);
+                }
+            } catch (final IOException e) {
+                getServletContext().log("Availability response could not be written", e);
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    /**
+     * @return the {@link CoalescingAvailabilityLoader}, {@code null} in blocking mode
+     */
+    public CoalescingAvailabilityLoader getLoader(){
+
+        return loader;
+    }
+
+    private AvailabilityProvider lookupProvider() throws ServletException{
+
+        final Object registered = getServletContext().getAttribute(AvailabilityProvider.CONTEXT_ATTRIBUTE);
+        if (registered instanceof AvailabilityProvider) {
+            return (AvailabilityProvider) registered;
+        }
+        final String providerClass = getInitParameter(PROVIDER_CLASS_PARAM);
+        if (isBlank(providerClass)) {
+            throw new ServletException("No availability provider registered as " + AvailabilityProvider.CONTEXT_ATTRIBUTE
+                            + " and no init-param " + PROVIDER_CLASS_PARAM + " given");
+        }
+        try {
+            return (AvailabilityProvider) Class.forName(providerClass).getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            throw new ServletException("Availability provider " + providerClass + " could not be created", e);
+        }
+    }
+
+    private long getLongParameter(final String name, final long defaultValue) throws ServletException{
+
+        final String value = getInitParameter(name);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            throw new ServletException("Invalid init-param " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match header, may be {@code null}
+     * @param version     the current version, may be {@code null}
+     * @return if the client holds the current version
+     */
+    private static boolean isNotModified(final String ifNoneMatch, final String version){
+
+        if (ifNoneMatch == null || version == null) {
+            return false;
+        }
+        final String etag = toEtag(version);
+        for (final String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if ("*".equals(tag) || etag.equals(tag.startsWith("W/") ? tag.substring(2) : tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toEtag(final String version){
+
+        return '"' + version + '"';
+    }
+
+    private static void writeResult(final HttpServletResponse response, final String productCode, final String sailingCode,
+                    final VersionedAvailability result) throws IOException{
+
+        if (result.getVersion() != null) {
+            response.setHeader(ETAG, toEtag(result.getVersion()));
+            response.setHeader(CACHE_CONTROL, NO_CACHE);
+        }
+        if (result.getAvailability() == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        writeAvailability(response, productCode, sailingCode, result.getAvailability());
+    }
+
+    private static void writeAvailability(final HttpServletResponse response, final String productCode, final String sailingCode,
+                    final List<OfferingAvailability> availability) throws IOException{
+
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        final PrintWriter writer = response.getWriter();
+        writer.append("{\"productCode\":");
+        writeString(writer, productCode);
+        writer.append(",\"sailingCode\":");
+        writeString(writer, sailingCode);
+        writer.append(",\"offerings\":[");
+        for (int i = 0; i < availability.size(); i++) {
+            final OfferingAvailability offering = availability.get(i);
+            if (i > 0) {
+                writer.append(',');
+            }
+            writer.append("{\"code\":");
+            writeString(writer, offering.getCode());
+            writer.append(",\"status\":");
+            writeString(writer, offering.getStatus());
+            writer.append(",\"availableQty\":").append(String.valueOf(offering.getAvailableQty()));
+            writer.append(",\"expired\":").append(String.valueOf(offering.isExpired()));
+            writer.append(",\"forceInStock\":").append(String.valueOf(offering.isForceInStock()));
+            writer.append(",\"inventoryAvailable\":").append(String.valueOf(offering.isInventoryAvailable())).append('}');
+        }
+        writer.append("]}");
+        writer.flush();
+    }
+
+    private static void writeString(final PrintWriter writer, final String value){
+
+        if (value == null) {
+            writer.append("null");
+            return;
+        }
+        writer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.append('\\').append(c);
+            } else if (c < 0x20) {
+                writer.append(String.format("\\u%04x", (int) c));
+            } else {
+                writer.append(c);
+            }
+        }
+        writer.append('"');
+    }
+
+    private static boolean isBlank(final String value){
+
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static ThreadFactory daemonThreads(final String name){
+
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.rccl.web.availability;
+
+import com.rccl.core.stock.availability.AvailabilityProvider;
+import com.rccl.core.stock.availability.OfferingAvailability;
+import com.rccl.core.stock.availability.VersionedAvailability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * loads availability and its version through an {@link AvailabilityProvider} without blocking the caller. All
+ * requests for the same product and sailing arriving within windowMillis of the first one are answered by one provider
+ * call, which runs on the worker pool. Requests arriving while that call runs open the next window, so nobody gets
+ * data loaded before the request was made.
+ */
+public class CoalescingAvailabilityLoader{
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private final AvailabilityProvider provider;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final long windowMillis;
+    private final ConcurrentMap<String, CompletableFuture<VersionedAvailability>> pendingLoads = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder providerCalls = new LongAdder();
+
+    /**
+     * @param provider     the {@link AvailabilityProvider}
+     * @param scheduler    closes the coalescing windows
+     * @param workers      runs the provider calls
+     * @param windowMillis how long requests are collected before the provider is called, 0 to call it right away
+     */
+    public CoalescingAvailabilityLoader(final AvailabilityProvider provider, final ScheduledExecutorService scheduler,
+                    final ExecutorService workers, final long windowMillis){
+
+        this.provider = provider;
+        this.scheduler = scheduler;
+        this.workers = workers;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * loads the version and, unless the client holds it already, the availability in one provider call. Requests are
+     * only coalesced with requests for the same product and sailing holding the same versions.
+     *
+     * @param productCode      the product code
+     * @param sailingCode      the sailing code
+     * @param ifNoneMatch      the versions the client holds, may be {@code null}
+     * @param isCurrentVersion tells if the client holds the given version, must only depend on ifNoneMatch
+     * @return the future version with the availability, shared with all requests of the same window
+     */
+    public CompletableFuture<VersionedAvailability> load(final String productCode, final String sailingCode, final String ifNoneMatch,
+                    final Predicate<String> isCurrentVersion){
+
+        requests.increment();
+        final String key = productCode + KEY_SEPARATOR + sailingCode + KEY_SEPARATOR + (ifNoneMatch != null ? ifNoneMatch : "");
+        return coalesce(pendingLoads, key, () -> {
+            final VersionedAvailability result = provider.getAvailability(productCode, sailingCode, isCurrentVersion);
+            if (result == null) {
+                return new VersionedAvailability(null, Collections.<OfferingAvailability>emptyList());
+            }
+            return result.getAvailability() != null ? new VersionedAvailability(result.getVersion(),
+                            Collections.unmodifiableList(new ArrayList<>(result.getAvailability()))) : result;
+        });
+    }
+
+    /**
+     * @return the number of requests
+     */
+    public long getRequestCount(){
+
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of provider calls the requests were coalesced into
+     */
+    public long getProviderCallCount(){
+
+        return providerCalls.sum();
+    }
+
+    private <T> CompletableFuture<T> coalesce(final ConcurrentMap<String, CompletableFuture<T>> pending, final String key,
+                    final Supplier<T> call){
+
+        final CompletableFuture<T> existing = pending.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final CompletableFuture<T> created = new CompletableFuture<>();
+        final CompletableFuture<T> raced = pending.putIfAbsent(key, created);
+        if (raced != null) {
+            return raced;
+        }
+        try {
+            if (windowMillis > 0) {
+                scheduler.schedule(() -> dispatch(pending, key, created, call), windowMillis, TimeUnit.MILLISECONDS);
+            } else {
+                dispatch(pending, key, created, call);
+            }
+        } catch (final RejectedExecutionException e) {
+            pending.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private <T> void dispatch(final ConcurrentMap<String, CompletableFuture<T>> pending, final String key,
+                    final CompletableFuture<T> future, final Supplier<T> call){
+
+        pending.remove(key, future);
+        try {
+            workers.execute(() -> {
+                providerCalls.increment();
+                try {
+                    future.complete(call.get());
+                } catch (final RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.rccl.web.health;
+
+import com.rccl.core.stock.warmup.ReadinessGate;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Set;
+
+
+/**
+ * readiness probe of the web application, {@code GET /ready}. Answers 200 once the {@link ReadinessGate} registered as
+ * servlet context attribute {@link ReadinessGate#CONTEXT_ATTRIBUTE} has no pending condition and 503 with the pending
+ * conditions before. Without a registered gate nothing is awaited and the application is ready.
+ */
+public class ReadinessServlet extends HttpServlet{
+
+    private static final long serialVersionUID = 1L;
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException{
+
+        final Object gate = getServletContext().getAttribute(ReadinessGate.CONTEXT_ATTRIBUTE);
+        final Set<String> pending = gate instanceof ReadinessGate ? ((ReadinessGate) gate).getPending() : null;
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        final PrintWriter writer = response.getWriter();
+        if (pending == null || pending.isEmpty()) {
+            writer.append("ready\n");
+        } else {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            writer.append("waiting for ").append(String.join(", ", pending)).append('\n');
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,78 @@
+package com.rccl.web.metrics;
+
+import com.rccl.core.stock.metrics.LatencyHistogram;
+import com.rccl.core.stock.metrics.StockMetrics;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * exposes the {@link StockMetrics} in the prometheus text format. Latencies are reported as histograms in seconds,
+ * result sizes as histograms of the number of results. The buckets are cumulative since the start of the process,
+ * quantiles of a time window are calculated from their rate, e.g.
+ * {@code histogram_quantile(0.99, sum by (call, le) (rate(rccl_stock_call_duration_seconds_bucket[5m])))}.
+ */
+public class StockMetricsServlet extends HttpServlet{
+
+    private static final long serialVersionUID = 1L;
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+    private static final double[] DURATION_BUCKETS = { 0.0001d, 0.00025d, 0.0005d, 0.001d, 0.0025d, 0.005d, 0.01d, 0.025d, 0.05d,
+                    0.1d, 0.25d, 0.5d, 1d, 2.5d, 5d, 10d };
+    private static final double[] RESULT_SIZE_BUCKETS = { 0d, 1d, 2d, 5d, 10d, 25d, 50d, 100d, 250d, 500d, 1000d, 2500d, 5000d,
+                    10000d };
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException{
+
+        response.setContentType(CONTENT_TYPE);
+        final PrintWriter writer = response.getWriter();
+        final StockMetrics metrics = StockMetrics.getDefault();
+        writeHistogram(writer, "rccl_stock_call_duration_seconds", "Duration of stock service, DAO and strategy calls",
+                        metrics.getLatencies(), DURATION_BUCKETS, NANOS_PER_SECOND);
+        writeHistogram(writer, "rccl_stock_call_result_size", "Number of results of stock service, DAO and strategy calls",
+                        metrics.getResultSizes(), RESULT_SIZE_BUCKETS, 1d);
+        writer.flush();
+    }
+
+    private static void writeHistogram(final PrintWriter writer, final String metric, final String help,
+                    final Map<String, LatencyHistogram> histograms, final double[] buckets, final double divisor){
+
+        final long[] upperBounds = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            upperBounds[i] = (long) (buckets[i] * divisor);
+        }
+        writer.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        writer.append("# TYPE ").append(metric).append(" histogram\n");
+        histograms.forEach((call, histogram) -> {
+            final long[] counts = histogram.getCumulativeCounts(upperBounds);
+            for (int i = 0; i < buckets.length; i++) {
+                writeBucket(writer, metric, call, BigDecimal.valueOf(buckets[i]).stripTrailingZeros().toPlainString(), counts[i]);
+            }
+            final long count = counts[buckets.length];
+            writeBucket(writer, metric, call, "+Inf", count);
+            writer.append(metric).append("_sum{call=\"").append(call).append("\"} ").append(format(histogram.getSum() / divisor))
+                            .append('\n');
+            writer.append(metric).append("_count{call=\"").append(call).append("\"} ").append(Long.toString(count)).append('\n');
+        });
+    }
+
+    private static void writeBucket(final PrintWriter writer, final String metric, final String call, final String le,
+                    final long count){
+
+        writer.append(metric).append("_bucket{call=\"").append(call).append("\",le=\"").append(le).append("\"} ")
+                        .append(Long.toString(count)).append('\n');
+    }
+
+    private static String format(final double value){
+
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+}
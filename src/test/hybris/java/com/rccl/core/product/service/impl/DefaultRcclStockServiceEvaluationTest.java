@@ -0,0 +1,226 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.model.OfferingModel;
+import com.rccl.core.stock.availability.AvailabilityIndex;
+import com.rccl.core.stock.data.BlockTypeStrategyParam;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.stock.service.RcclBlockTypeListBeanPostProcessor;
+import com.rccl.core.strategy.RcclCommerceAvailabilityCalculationStrategy;
+import com.rccl.core.strategy.RcclStockLevelStatusStrategy;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import junit.framework.TestCase;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.rccl.core.product.service.impl.Fakes.fake;
+
+
+/**
+ * property based test of the single pass evaluation of {@link DefaultRcclStockService#calculateInventory}: for random
+ * stock levels, offerings and strategy answers the {@link InventoryDto} must equal the one of the previous evaluation,
+ * which asked the strategies and the time service once per attribute
+ */
+public class DefaultRcclStockServiceEvaluationTest extends TestCase{
+
+    private static final long[] SEEDS = { 1L, 17L, 4711L, 20161017L };
+    private static final int SAMPLES = 2000;
+    private static final long HOUR = 3600000L;
+    private static final Date NOW = new Date(1476700000000L);
+    private static final StockLevelStatus[] STATUSES = { null, StockLevelStatus.INSTOCK, StockLevelStatus.LOWSTOCK,
+                    StockLevelStatus.OUTOFSTOCK };
+
+    private final Map<InventoryBlockModel, StockLevelStatus> statuses = new IdentityHashMap<>();
+    private final Map<InventoryBlockModel, Long> availableQtys = new IdentityHashMap<>();
+    private final Map<StockLevelModel, InventoryBlockModel> selectedBlocks = new IdentityHashMap<>();
+    private long nextPk = 1L;
+
+    public void testEvaluationMatchesThePreviousPath(){
+
+        for (final long seed : SEEDS) {
+            assertEquivalent(seed, createStockService(null));
+        }
+    }
+
+    public void testIndexedEvaluationMatchesThePreviousPath(){
+
+        for (final long seed : SEEDS) {
+            assertEquivalent(seed, createStockService(new AvailabilityIndex(SAMPLES, HOUR)));
+        }
+    }
+
+    public void testOfferingWithoutOfferingTimeIsExpired(){
+
+        final OfferingModel offering = new OfferingModel();
+        offering.setId("O0");
+        offering.setActive(true);
+        offering.setInStockStatus(InStockStatus.FORCEINSTOCK);
+
+        final InventoryDto inventoryDto = createStockService(null).calculateInventory(InventoryCriteria.of(null, null, true), offering);
+
+        assertTrue(inventoryDto.isExpired());
+    }
+
+    private void assertEquivalent(final long seed, final DefaultRcclStockService service){
+
+        final Random random = new Random(seed);
+        for (int i = 0; i < SAMPLES; i++) {
+            final StockLevelModel stockLevel = randomStockLevel(random, "S" + seed + "-" + i);
+            final boolean includePastOfferings = random.nextBoolean();
+            final InventoryCriteria criteria = InventoryCriteria.of(null, null, includePastOfferings);
+            final String sample = "seed " + seed + ", sample " + i;
+
+            assertSameInventory(sample, previousInventoryDto(includePastOfferings, stockLevel),
+                            service.calculateInventory(criteria, stockLevel));
+            // evaluated again, from the index if one is set, unchanged or after the reservation and the answers changed
+            if (random.nextBoolean()) {
+                final InventoryBlockModel inventoryBlock = selectedBlocks.get(stockLevel);
+                if (inventoryBlock.getPk() != null) {
+                    inventoryBlock.setReserved(inventoryBlock.getReserved() + 1);
+                    answer(random, inventoryBlock);
+                }
+            }
+            assertSameInventory(sample + " again", previousInventoryDto(includePastOfferings, stockLevel),
+                            service.calculateInventory(criteria, stockLevel));
+        }
+    }
+
+    /**
+     * the evaluation before the single pass, the transient block of an unmanaged stock level stands in for the one the
+     * service creates
+     */
+    private InventoryDto previousInventoryDto(final boolean includeSoldOutOfferings, final StockLevelModel stockLevelModel){
+
+        final InventoryBlockModel inventoryBlock = selectedBlocks.get(stockLevelModel);
+        final InventoryDto inventoryDto = new InventoryDto();
+        inventoryDto.setForceInStock(InStockStatus.FORCEINSTOCK.equals(stockLevelModel.getInStockStatus()));
+        inventoryDto.setInventoryBlock(inventoryBlock);
+        inventoryDto.setStockLevel(stockLevelModel);
+        inventoryDto.setStockLevelStatus(statuses.get(inventoryBlock));
+        inventoryDto.setExpired(!isValidStockLevel(stockLevelModel));
+        final Long availableQty = availableQtys.get(inventoryBlock);
+        inventoryDto.setAvailableQty(availableQty);
+        if (includeSoldOutOfferings) {
+            inventoryDto.setInventoryAvailable(StockLevelStatus.INSTOCK.equals(inventoryDto.getStockLevelStatus()) || (availableQty != null
+                            && availableQty > 0));
+        }
+        return inventoryDto;
+    }
+
+    private static boolean isValidStockLevel(final StockLevelModel stockLevelModel){
+
+        return stockLevelModel != null && stockLevelModel.isActive() && (!(stockLevelModel instanceof OfferingModel)
+                        || isValidOffering((OfferingModel) stockLevelModel));
+    }
+
+    private static boolean isValidOffering(final OfferingModel offeringModel){
+
+        return offeringModel != null && offeringModel.isActive() && NOW.before(offeringModel.getOfferingTime());
+    }
+
+    private static void assertSameInventory(final String sample, final InventoryDto expected, final InventoryDto actual){
+
+        assertEquals(sample, expected.isForceInStock(), actual.isForceInStock());
+        assertEquals(sample, expected.getStockLevel(), actual.getStockLevel());
+        assertEquals(sample, expected.getStockLevelStatus(), actual.getStockLevelStatus());
+        assertEquals(sample, expected.isExpired(), actual.isExpired());
+        assertEquals(sample, expected.getAvailableQty(), actual.getAvailableQty());
+        assertEquals(sample, expected.isInventoryAvailable(), actual.isInventoryAvailable());
+        if (expected.getInventoryBlock().getPk() != null) {
+            assertSame(sample, expected.getInventoryBlock(), actual.getInventoryBlock());
+        } else {
+            assertEquals(sample, expected.getStockLevel().getId(), actual.getInventoryBlock().getCode());
+            assertSame(sample, expected.getStockLevel(), actual.getInventoryBlock().getStocklevel());
+        }
+    }
+
+    /**
+     * a stock level or offering, managed by inventory blocks or not, with the offering time before, at or after now
+     */
+    private StockLevelModel randomStockLevel(final Random random, final String id){
+
+        final StockLevelModel stockLevel;
+        if (random.nextBoolean()) {
+            final OfferingModel offering = new OfferingModel();
+            offering.setOfferingTime(new Date(NOW.getTime() + (random.nextInt(3) - 1) * random.nextInt(48) * HOUR));
+            stockLevel = offering;
+        } else {
+            stockLevel = new StockLevelModel();
+        }
+        stockLevel.setId(id);
+        stockLevel.setActive(random.nextInt(4) > 0);
+        stockLevel.setInStockStatus(InStockStatus.values()[random.nextInt(InStockStatus.values().length)]);
+        stockLevel.setReserved(random.nextInt(10));
+        stockLevel.setAvailable(random.nextInt(10));
+        if (InStockStatus.NOTSPECIFIED.equals(stockLevel.getInStockStatus())) {
+            final InventoryBlockModel inventoryBlock = persistedInventoryBlock(id + "-IB");
+            inventoryBlock.setStocklevel(stockLevel);
+            inventoryBlock.setReserved(random.nextInt(10));
+            stockLevel.setInventoryBlocks(Collections.singletonList(inventoryBlock));
+            selectedBlocks.put(stockLevel, inventoryBlock);
+            answer(random, inventoryBlock);
+        } else {
+            // the service creates its own transient block, the strategies answer for whichever block stands for it
+            final InventoryBlockModel answers = new InventoryBlockModel();
+            answer(random, answers);
+            selectedBlocks.put(stockLevel, answers);
+        }
+        return stockLevel;
+    }
+
+    private InventoryBlockModel persistedInventoryBlock(final String code){
+
+        final PK inventoryBlockPk = PK.fromLong(nextPk++);
+        final InventoryBlockModel inventoryBlock = new InventoryBlockModel(){
+
+            @Override
+            public PK getPk(){
+
+                return inventoryBlockPk;
+            }
+        };
+        inventoryBlock.setCode(code);
+        return inventoryBlock;
+    }
+
+    private void answer(final Random random, final InventoryBlockModel inventoryBlock){
+
+        statuses.put(inventoryBlock, STATUSES[random.nextInt(STATUSES.length)]);
+        availableQtys.put(inventoryBlock, random.nextInt(4) == 0 ? null : Long.valueOf(random.nextInt(11) - 5));
+    }
+
+    /**
+     * the answers of an inventory block created by the service are the ones drawn for its stock level
+     */
+    private InventoryBlockModel answersFor(final InventoryBlockModel inventoryBlock){
+
+        return inventoryBlock.getPk() != null ? inventoryBlock : selectedBlocks.get(inventoryBlock.getStocklevel());
+    }
+
+    private DefaultRcclStockService createStockService(final AvailabilityIndex availabilityIndex){
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setTimeService(fake(TimeService.class, (name, args) -> new Date(NOW.getTime())));
+        service.setStatusStrategy(fake(RcclStockLevelStatusStrategy.class,
+                        (name, args) -> statuses.get(answersFor((InventoryBlockModel) args[0]))));
+        service.setAvailableStrategy(fake(RcclCommerceAvailabilityCalculationStrategy.class,
+                        (name, args) -> availableQtys.get(answersFor((InventoryBlockModel) args[0]))));
+        service.setBlockTypeListBeanPostProcessor(fake(RcclBlockTypeListBeanPostProcessor.class, (name, args) -> {
+            final Collection<InventoryBlockModel> inventoryBlocks =
+                            ((BlockTypeStrategyParam) args[0]).getValue(BlockTypeStrategyParam.INVENTROY_BLOCKS);
+            return inventoryBlocks.iterator().next();
+        }));
+        service.setAvailabilityIndex(availabilityIndex);
+        return service;
+    }
+}
@@ -0,0 +1,119 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.stock.dto.InventoryDto;
+import com.rccl.core.strategy.RcclCommerceAvailabilityCalculationStrategy;
+import com.rccl.core.strategy.RcclStockLevelStatusStrategy;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.basecommerce.enums.StockLevelStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.store.BaseStoreModel;
+import de.hybris.platform.travelservices.model.user.TravellerModel;
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rccl.core.product.service.impl.Fakes.fake;
+
+
+/**
+ * unit test for the memoized {@link DefaultRcclStockService#fetchInventory(TravellerModel, StockLevelModel, BaseStoreModel)}
+ * without a session, the memo is kept by the service
+ */
+public class DefaultRcclStockServiceFetchTest extends TestCase{
+
+    private final AtomicInteger calculations = new AtomicInteger();
+    private final StockLevelModel stockLevel = new StockLevelModel();
+
+    @Override
+    protected void setUp(){
+
+        stockLevel.setItemCode("ITEM1");
+        stockLevel.setId("ID1");
+        stockLevel.setActive(true);
+        stockLevel.setInStockStatus(InStockStatus.FORCEINSTOCK);
+    }
+
+    public void testFetchesOfDifferentTravellersShareTheMemo(){
+
+        final DefaultRcclStockService service = createStockService(60000L);
+        final BaseStoreModel baseStore = baseStore(1L);
+
+        final InventoryDto first = service.fetchInventory(traveller(1L), stockLevel, baseStore);
+        final InventoryDto second = service.fetchInventory(traveller(2L), stockLevel, baseStore);
+        final InventoryDto anonymous = service.fetchInventory(null, stockLevel, baseStore);
+
+        assertEquals(1, calculations.get());
+        assertNotSame(first, second);
+        assertNotSame(second, anonymous);
+        assertEquals(Long.valueOf(5L), second.getAvailableQty());
+        assertEquals(StockLevelStatus.INSTOCK, anonymous.getStockLevelStatus());
+    }
+
+    public void testFetchesForDifferentBaseStoresAreCalculatedEach(){
+
+        final DefaultRcclStockService service = createStockService(60000L);
+
+        service.fetchInventory(traveller(1L), stockLevel, baseStore(1L));
+        service.fetchInventory(traveller(1L), stockLevel, baseStore(2L));
+        service.fetchInventory(traveller(1L), stockLevel, baseStore(1L));
+
+        assertEquals(2, calculations.get());
+    }
+
+    public void testFetchesAreCalculatedEachWithoutMemo(){
+
+        final DefaultRcclStockService service = createStockService(0L);
+        final BaseStoreModel baseStore = baseStore(1L);
+
+        service.fetchInventory(traveller(1L), stockLevel, baseStore);
+        service.fetchInventory(traveller(1L), stockLevel, baseStore);
+
+        assertEquals(2, calculations.get());
+    }
+
+    private static TravellerModel traveller(final long pk){
+
+        final PK travellerPk = PK.fromLong(pk);
+        return new TravellerModel(){
+
+            @Override
+            public PK getPk(){
+
+                return travellerPk;
+            }
+        };
+    }
+
+    private static BaseStoreModel baseStore(final long pk){
+
+        final PK baseStorePk = PK.fromLong(pk);
+        return new BaseStoreModel(){
+
+            @Override
+            public PK getPk(){
+
+                return baseStorePk;
+            }
+        };
+    }
+
+    private DefaultRcclStockService createStockService(final long inventoryFetchMemoMillis){
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setTimeService(fake(TimeService.class, (name, args) -> new Date()));
+        service.setStatusStrategy(fake(RcclStockLevelStatusStrategy.class, (name, args) -> {
+            calculations.incrementAndGet();
+            return StockLevelStatus.INSTOCK;
+        }));
+        service.setAvailableStrategy(fake(RcclCommerceAvailabilityCalculationStrategy.class, (name, args) -> {
+            assertNull(((InventoryBlockModel) args[0]).getPk());
+            return 5L;
+        }));
+        service.setInventoryFetchMemoMillis(inventoryFetchMemoMillis);
+        return service;
+    }
+}
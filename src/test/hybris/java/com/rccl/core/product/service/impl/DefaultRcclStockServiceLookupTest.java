@@ -0,0 +1,137 @@
+package com.rccl.core.product.service.impl;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.rccl.core.product.service.impl.Fakes.fake;
+
+
+/**
+ * unit test for the batched stock level lookups of {@link DefaultRcclStockService} against a stand-in
+ * {@link FlexibleSearchService} which answers the IN-queries from a list of stock levels
+ */
+public class DefaultRcclStockServiceLookupTest extends TestCase{
+
+    private static final int STOCK_LEVELS = 2500;
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
+    private static final Pattern ATTRIBUTE = Pattern.compile("WHERE \\{(\\w+)\\} IN \\(\\?values\\)");
+
+    private final List<StockLevelModel> stockLevels = new ArrayList<>();
+    private final List<Collection<?>> queriedBatches = new ArrayList<>();
+
+    @Override
+    protected void setUp(){
+
+        for (int i = 0; i < STOCK_LEVELS; i++) {
+            stockLevels.add(stockLevel("ITEM" + i, "ID" + i));
+        }
+    }
+
+    public void testLooksUpAllItemCodesWithOneQueryPerBatch(){
+
+        final List<String> itemCodes = IntStream.range(0, STOCK_LEVELS).mapToObj(i -> "ITEM" + i).collect(Collectors.toList());
+
+        final Map<String, StockLevelModel> found = createStockService().getStockLevelsByItemCodes(itemCodes);
+
+        assertEquals(STOCK_LEVELS, found.size());
+        for (int i = 0; i < STOCK_LEVELS; i++) {
+            assertSame(stockLevels.get(i), found.get("ITEM" + i));
+        }
+        assertEquals(3, queriedBatches.size());
+        assertEquals(Arrays.asList(IN_QUERY_BATCH_SIZE, IN_QUERY_BATCH_SIZE, STOCK_LEVELS - 2 * IN_QUERY_BATCH_SIZE),
+                        queriedBatches.stream().map(Collection::size).collect(Collectors.toList()));
+    }
+
+    public void testLooksUpIds(){
+
+        final Map<String, StockLevelModel> found = createStockService().getStockLevelsByIds(Arrays.asList("ID7", "ID42"));
+
+        assertEquals(2, found.size());
+        assertSame(stockLevels.get(7), found.get("ID7"));
+        assertSame(stockLevels.get(42), found.get("ID42"));
+        assertEquals(1, queriedBatches.size());
+    }
+
+    public void testQueriesDuplicateCodesOnceAndIgnoresBlankCodes(){
+
+        final Map<String, StockLevelModel> found = createStockService().getStockLevelsByItemCodes(
+                        Arrays.asList("ITEM1", "ITEM1", " ", "", null, "ITEM2"));
+
+        assertEquals(2, found.size());
+        assertEquals(Collections.singletonList(Arrays.asList("ITEM1", "ITEM2")), queriedBatches);
+    }
+
+    public void testUnknownCodesAreNotContained(){
+
+        final Map<String, StockLevelModel> found = createStockService().getStockLevelsByItemCodes(Arrays.asList("ITEM3", "UNKNOWN"));
+
+        assertEquals(Collections.singleton("ITEM3"), found.keySet());
+    }
+
+    public void testFirstMatchWinsForNonUniqueCodes(){
+
+        final StockLevelModel duplicate = stockLevel("ITEM5", "DUPLICATE");
+        stockLevels.add(duplicate);
+
+        final Map<String, StockLevelModel> found = createStockService().getStockLevelsByItemCodes(Collections.singletonList("ITEM5"));
+
+        assertSame(stockLevels.get(5), found.get("ITEM5"));
+    }
+
+    public void testNoCodesRunNoQuery(){
+
+        assertTrue(createStockService().getStockLevelsByItemCodes(Collections.emptyList()).isEmpty());
+        assertTrue(queriedBatches.isEmpty());
+    }
+
+    public void testNullCodesAreRejected(){
+
+        try {
+            createStockService().getStockLevelsByItemCodes(null);
+            fail("null codes must be rejected");
+        } catch (final IllegalArgumentException expected) {
+            assertTrue(queriedBatches.isEmpty());
+        }
+    }
+
+    private static StockLevelModel stockLevel(final String itemCode, final String id){
+
+        final StockLevelModel stockLevel = new StockLevelModel();
+        stockLevel.setItemCode(itemCode);
+        stockLevel.setId(id);
+        return stockLevel;
+    }
+
+    private DefaultRcclStockService createStockService(){
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setFlexibleSearchService(fake(FlexibleSearchService.class, (name, args) -> {
+            final FlexibleSearchQuery query = (FlexibleSearchQuery) args[0];
+            final Matcher attribute = ATTRIBUTE.matcher(query.getQuery());
+            assertTrue(query.getQuery(), attribute.find());
+            final Function<StockLevelModel, String> keyExtractor =
+                            StockLevelModel.ITEMCODE.equals(attribute.group(1)) ? StockLevelModel::getItemCode : StockLevelModel::getId;
+            final Collection<?> values = (Collection<?>) query.getQueryParameters().get("values");
+            queriedBatches.add(new ArrayList<>(values));
+            final List<StockLevelModel> result = stockLevels.stream().filter(stockLevel -> values.contains(keyExtractor.apply(stockLevel)))
+                            .collect(Collectors.toList());
+            return new SearchResultImpl<>(result, result.size(), -1, 0);
+        }));
+        return service;
+    }
+}
@@ -0,0 +1,267 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.stock.data.BlockTypeStrategyParam;
+import com.rccl.core.stock.data.InventoryCriteria;
+import com.rccl.core.stock.service.RcclBlockTypeListBeanPostProcessor;
+import de.hybris.platform.basecommerce.enums.InStockStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.jalo.JaloSession;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static com.rccl.core.product.service.impl.Fakes.fake;
+
+
+/**
+ * equivalence test of the set based {@link DefaultRcclStockService#getInventory(InventoryCriteria, List)}, which
+ * prefetches the inventory blocks of all stock levels, against the previous per stock level selection over
+ * {@link StockLevelModel#getInventoryBlocks()}
+ */
+public class DefaultRcclStockServicePrefetchTest extends TestCase{
+
+    private static final long[] SEEDS = { 1L, 17L, 4711L, 20161017L };
+    private static final int SAMPLES = 50;
+    private static final int MAX_STOCK_LEVELS = 60;
+    private static final int MAX_INVENTORY_BLOCKS = 5;
+    private static final String SESSION_ATTRIBUTE = "catalogversions";
+
+    private final List<InventoryBlockModel> inventoryBlocks = new ArrayList<>();
+    private final List<Integer> queriedBatchSizes = new ArrayList<>();
+    private final List<Object> selectionSessionAttributes = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Map<String, Object>> localView = new ThreadLocal<>();
+    private long nextPk = 1L;
+
+    public void testPrefetchedSelectionMatchesThePerStockLevelSelection(){
+
+        for (final long seed : SEEDS) {
+            assertEquivalent(seed, createStockService());
+        }
+    }
+
+    public void testParallelPrefetchedSelectionMatchesThePerStockLevelSelection(){
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        Registry.setCurrentTenant(fake(Tenant.class, (name, args) -> "junit"));
+        try {
+            for (final long seed : SEEDS) {
+                final DefaultRcclStockService service = createStockService();
+                service.setInventoryExecutor(executor);
+                service.setParallelInventoryThreshold(4);
+                service.setInventoryParallelism(4);
+                assertEquivalent(seed, service);
+            }
+        } finally {
+            Registry.unsetCurrentTenant();
+            executor.shutdownNow();
+        }
+    }
+
+    public void testWorkersSeeTheSessionAttributesOfTheCaller(){
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        Registry.setCurrentTenant(fake(Tenant.class, (name, args) -> "junit"));
+        JaloSession.getCurrentSession().getSessionContext().setAttribute(SESSION_ATTRIBUTE, "Online");
+        try {
+            final Random random = new Random(1L);
+            final List<StockLevelModel> stockLevels = new ArrayList<>();
+            for (int i = 0; i < MAX_STOCK_LEVELS; i++) {
+                stockLevels.add(randomStockLevel(random, "S" + i, InStockStatus.NOTSPECIFIED));
+            }
+            final DefaultRcclStockService service = createStockService();
+            service.setInventoryExecutor(executor);
+            service.setParallelInventoryThreshold(4);
+            service.setInventoryParallelism(4);
+
+            service.getInventory(InventoryCriteria.of(null, null, false), stockLevels);
+
+            assertEquals(Collections.nCopies(MAX_STOCK_LEVELS, "Online"), selectionSessionAttributes);
+        } finally {
+            JaloSession.deactivate();
+            Registry.unsetCurrentTenant();
+            executor.shutdownNow();
+        }
+    }
+
+    public void testPrefetchRunsOneQueryForAllStockLevels(){
+
+        final Random random = new Random(1L);
+        final List<StockLevelModel> stockLevels = new ArrayList<>();
+        for (int i = 0; i < MAX_STOCK_LEVELS; i++) {
+            stockLevels.add(randomStockLevel(random, "S" + i, InStockStatus.NOTSPECIFIED));
+        }
+
+        createStockService().getInventory(InventoryCriteria.of(null, null, false), stockLevels);
+
+        assertEquals(Collections.singletonList(MAX_STOCK_LEVELS), queriedBatchSizes);
+    }
+
+    public void testNoPrefetchWithoutManagedStockLevels(){
+
+        final Random random = new Random(1L);
+        final List<StockLevelModel> stockLevels = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stockLevels.add(randomStockLevel(random, "S" + i, InStockStatus.FORCEINSTOCK));
+        }
+
+        assertEquals(3, createStockService().getInventory(InventoryCriteria.of(null, null, false), stockLevels).size());
+        assertTrue(queriedBatchSizes.isEmpty());
+    }
+
+    private void assertEquivalent(final long seed, final DefaultRcclStockService service){
+
+        final Random random = new Random(seed);
+        for (int i = 0; i < SAMPLES; i++) {
+            final List<StockLevelModel> stockLevels = new ArrayList<>();
+            final int size = random.nextInt(MAX_STOCK_LEVELS);
+            for (int j = 0; j < size; j++) {
+                // the same stock level may be listed twice
+                stockLevels.add(j > 0 && random.nextInt(10) == 0 ? stockLevels.get(random.nextInt(j))
+                                : randomStockLevel(random, "S" + seed + "-" + i + "-" + j,
+                                                InStockStatus.values()[random.nextInt(InStockStatus.values().length)]));
+            }
+            final String sample = "seed " + seed + ", sample " + i;
+
+            final List<InventoryBlockModel> selected = service.getInventory(InventoryCriteria.of(null, null, random.nextBoolean()),
+                            stockLevels);
+
+            assertEquals(sample, stockLevels.size(), selected.size());
+            for (int j = 0; j < stockLevels.size(); j++) {
+                assertSameInventoryBlock(sample + ", stock level " + j, previousInventory(stockLevels.get(j)), selected.get(j));
+            }
+        }
+    }
+
+    /**
+     * the selection before the prefetch, over the inventory blocks loaded from the stock level
+     */
+    private static InventoryBlockModel previousInventory(final StockLevelModel stockLevelModel){
+
+        if (InStockStatus.NOTSPECIFIED.equals(stockLevelModel.getInStockStatus()) && stockLevelModel.getInventoryBlocks() != null) {
+            return selectInventoryBlock(stockLevelModel.getInventoryBlocks());
+        } else {
+            final InventoryBlockModel inventoryBlock = new InventoryBlockModel();
+            inventoryBlock.setCode(stockLevelModel.getId());
+            inventoryBlock.setStocklevel(stockLevelModel);
+            return inventoryBlock;
+        }
+    }
+
+    private static void assertSameInventoryBlock(final String sample, final InventoryBlockModel expected, final InventoryBlockModel actual){
+
+        if (expected == null || expected.getPk() != null) {
+            assertSame(sample, expected, actual);
+        } else {
+            assertNull(sample, actual.getPk());
+            assertEquals(sample, expected.getCode(), actual.getCode());
+            assertSame(sample, expected.getStocklevel(), actual.getStocklevel());
+        }
+    }
+
+    /**
+     * stands in for the block type selection, the selected block depends on every candidate but not on their order, so
+     * a missing or foreign candidate changes the selection
+     */
+    private static InventoryBlockModel selectInventoryBlock(final Collection<InventoryBlockModel> candidates){
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        final List<InventoryBlockModel> sorted = candidates.stream().sorted(Comparator.comparing(InventoryBlockModel::getCode))
+                        .collect(Collectors.toList());
+        final int hash = sorted.stream().mapToInt(inventoryBlock -> inventoryBlock.getCode().hashCode()).sum();
+        return sorted.get(Math.floorMod(hash, sorted.size()));
+    }
+
+    private StockLevelModel randomStockLevel(final Random random, final String id, final InStockStatus inStockStatus){
+
+        final PK stockLevelPk = PK.fromLong(nextPk++);
+        final StockLevelModel stockLevel = new StockLevelModel(){
+
+            @Override
+            public PK getPk(){
+
+                return stockLevelPk;
+            }
+        };
+        stockLevel.setId(id);
+        stockLevel.setInStockStatus(inStockStatus);
+        final List<InventoryBlockModel> stockLevelBlocks = new ArrayList<>();
+        final int size = random.nextInt(MAX_INVENTORY_BLOCKS + 1);
+        for (int i = 0; i < size; i++) {
+            final PK inventoryBlockPk = PK.fromLong(nextPk++);
+            final InventoryBlockModel inventoryBlock = new InventoryBlockModel(){
+
+                @Override
+                public PK getPk(){
+
+                    return inventoryBlockPk;
+                }
+            };
+            inventoryBlock.setCode(id + "-IB" + i);
+            inventoryBlock.setStocklevel(stockLevel);
+            stockLevelBlocks.add(inventoryBlock);
+            inventoryBlocks.add(inventoryBlock);
+        }
+        // the relation is loaded in no particular order
+        Collections.shuffle(stockLevelBlocks, random);
+        stockLevel.setInventoryBlocks(stockLevelBlocks);
+        return stockLevel;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DefaultRcclStockService createStockService(){
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setFlexibleSearchService(fake(FlexibleSearchService.class, (name, args) -> {
+            final FlexibleSearchQuery query = (FlexibleSearchQuery) args[0];
+            assertTrue(query.getQuery(), query.getQuery().contains("{" + InventoryBlockModel.STOCKLEVEL + "} IN"));
+            final Collection<?> stockLevels = (Collection<?>) query.getQueryParameters().get("values");
+            synchronized (queriedBatchSizes) {
+                queriedBatchSizes.add(stockLevels.size());
+            }
+            final List<InventoryBlockModel> result = inventoryBlocks.stream()
+                            .filter(inventoryBlock -> stockLevels.contains(inventoryBlock.getStocklevel()))
+                            .sorted(Comparator.comparing(InventoryBlockModel::getPk)).collect(Collectors.toList());
+            return new SearchResultImpl<>(result, result.size(), -1, 0);
+        }));
+        service.setBlockTypeListBeanPostProcessor(fake(RcclBlockTypeListBeanPostProcessor.class, (name, args) -> {
+            final Collection<InventoryBlockModel> candidates =
+                            ((BlockTypeStrategyParam) args[0]).getValue(BlockTypeStrategyParam.INVENTROY_BLOCKS);
+            if (localView.get() != null) {
+                selectionSessionAttributes.add(localView.get().get(SESSION_ATTRIBUTE));
+            }
+            return selectInventoryBlock(candidates);
+        }));
+        // local views are bound to the thread that opened them, like the ones of the platform
+        service.setSessionService(fake(SessionService.class, (name, args) -> {
+            assertEquals("executeInLocalViewWithParams", name);
+            final Map<String, Object> previous = localView.get();
+            localView.set((Map<String, Object>) args[0]);
+            try {
+                return ((SessionExecutionBody) args[1]).execute();
+            } finally {
+                localView.set(previous);
+            }
+        }));
+        return service;
+    }
+}
@@ -0,0 +1,316 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.model.InventoryBlockModel;
+import com.rccl.core.product.dao.RcclInventoryReservationDao;
+import com.rccl.core.stock.journal.ReleaseJournal;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.ordercancel.OrderCancelEntry;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.rccl.core.product.service.impl.Fakes.fake;
+
+
+/**
+ * unit test for the releases of {@link DefaultRcclStockService} against a stand-in {@link RcclInventoryReservationDao}
+ * which applies each release to its row as one atomic update, as the database does, and records the applied journal
+ * sequence with it
+ */
+public class DefaultRcclStockServiceReleaseTest extends TestCase{
+
+    private static final int RESERVED = 10000;
+    private static final int THREADS = 8;
+    private static final int RELEASES_PER_THREAD = 250;
+    private static final int JOURNAL_CAPACITY = 64 * 1024;
+
+    private final StandInReservationDao reservationDao = new StandInReservationDao();
+    private final List<InventoryBlockModel> inventoryBlocks = new ArrayList<>();
+    private final OrderModel order = new OrderModel();
+    private Path journalFile;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        journalFile = Files.createTempFile("release-journal", ".journal");
+        Files.delete(journalFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        Files.deleteIfExists(journalFile);
+    }
+
+    public void testConcurrentReleasesOfOneBlockAreNotLost() throws Exception{
+
+        final InventoryBlockModel inventoryBlock = inventoryBlock("IB0", 1L);
+        final DefaultRcclStockService service = createStockService();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    boolean released = true;
+                    for (int j = 0; j < RELEASES_PER_THREAD; j++) {
+                        released &= Boolean.TRUE.equals(service.releaseInventoryBatch(
+                                        Collections.singletonList(new OrderCancelEntry(orderEntry(inventoryBlock, j), 1))).get("IB0"));
+                    }
+                    return released;
+                }));
+            }
+            start.countDown();
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(RESERVED - THREADS * RELEASES_PER_THREAD, reservationDao.getReserved(inventoryBlock));
+        assertEquals(Integer.valueOf(RESERVED - THREADS * RELEASES_PER_THREAD), inventoryBlock.getReserved());
+    }
+
+    public void testReleasesTheEntriesOfABlockInOrder(){
+
+        final InventoryBlockModel first = inventoryBlock("IB0", 1L);
+        final InventoryBlockModel second = inventoryBlock("IB1", 2L);
+        final DefaultRcclStockService service = createStockService();
+
+        final Map<String, Boolean> released = service.releaseInventoryBatch(
+                        Arrays.asList(new OrderCancelEntry(orderEntry(first, 0), 3), new OrderCancelEntry(orderEntry(second, 1), 2),
+                                        new OrderCancelEntry(orderEntry(first, 2), 5)));
+
+        assertEquals(Boolean.TRUE, released.get("IB0"));
+        assertEquals(Boolean.TRUE, released.get("IB1"));
+        assertEquals(Arrays.asList(3, 5), reservationDao.getReleases(first));
+        assertEquals(Collections.singletonList(2), reservationDao.getReleases(second));
+        assertEquals(RESERVED - 8, reservationDao.getReserved(first));
+        assertEquals(RESERVED - 2, reservationDao.getReserved(second));
+    }
+
+    public void testUnknownInventoryBlockIsNotReleased(){
+
+        final InventoryBlockModel unknown = new InventoryBlockModel();
+        unknown.setCode("UNKNOWN");
+        final DefaultRcclStockService service = createStockService();
+
+        final Map<String, Boolean> released =
+                        service.releaseInventoryBatch(Collections.singletonList(new OrderCancelEntry(orderEntry(unknown, 0), 1)));
+
+        assertEquals(Boolean.FALSE, released.get("UNKNOWN"));
+    }
+
+    public void testFlushStoppedMidwayIsReplayedExactlyOnceAfterARestart() throws Exception{
+
+        final InventoryBlockModel first = inventoryBlock("IB0", 1L);
+        final InventoryBlockModel second = inventoryBlock("IB1", 2L);
+        // the process dies during the flush, after the first block was released: neither checkpoint nor close happen
+        final ReleaseJournal crashed = new ReleaseJournal(journalFile, JOURNAL_CAPACITY, 0L);
+        final DefaultRcclStockService service = createStockService();
+        service.setReleaseJournal(crashed);
+        journalReleases(service, first, second);
+        reservationDao.failOn(second);
+        try {
+            service.flushReleaseJournal();
+            fail("flush did not fail");
+        } catch (final IllegalStateException expected) {
+            assertEquals(RESERVED - 8, reservationDao.getReserved(first));
+            assertEquals(RESERVED, reservationDao.getReserved(second));
+        }
+        reservationDao.failOn(null);
+
+        try (ReleaseJournal journal = new ReleaseJournal(journalFile, JOURNAL_CAPACITY, 0L)) {
+            final DefaultRcclStockService restarted = createStockService();
+            restarted.setReleaseJournal(journal);
+            restarted.flushReleaseJournal();
+
+            assertEquals(RESERVED - 8, reservationDao.getReserved(first));
+            assertEquals(RESERVED - 2, reservationDao.getReserved(second));
+            assertTrue(journal.pending().isEmpty());
+        }
+    }
+
+    public void testFailedFlushIsRetriedExactlyOnce() throws Exception{
+
+        final InventoryBlockModel first = inventoryBlock("IB0", 1L);
+        final InventoryBlockModel second = inventoryBlock("IB1", 2L);
+        try (ReleaseJournal journal = new ReleaseJournal(journalFile, JOURNAL_CAPACITY, 0L)) {
+            final DefaultRcclStockService service = createStockService();
+            service.setReleaseJournal(journal);
+            journalReleases(service, first, second);
+            reservationDao.failOn(second);
+            try {
+                service.flushReleaseJournal();
+                fail("flush did not fail");
+            } catch (final IllegalStateException expected) {
+                assertFalse(journal.pending().isEmpty());
+            }
+            reservationDao.failOn(null);
+            service.flushReleaseJournal();
+
+            assertEquals(RESERVED - 8, reservationDao.getReserved(first));
+            assertEquals(RESERVED - 2, reservationDao.getReserved(second));
+            assertTrue(journal.pending().isEmpty());
+        }
+    }
+
+    private void journalReleases(final DefaultRcclStockService service, final InventoryBlockModel first,
+                    final InventoryBlockModel second){
+
+        final Map<String, Boolean> journaled = service.releaseInventoryBatch(
+                        Arrays.asList(new OrderCancelEntry(orderEntry(first, 0), 3), new OrderCancelEntry(orderEntry(second, 1), 2),
+                                        new OrderCancelEntry(orderEntry(first, 2), 5)));
+        assertEquals(Boolean.TRUE, journaled.get("IB0"));
+        assertEquals(Boolean.TRUE, journaled.get("IB1"));
+        assertEquals(RESERVED, reservationDao.getReserved(first));
+    }
+
+    private InventoryBlockModel inventoryBlock(final String code, final long pk){
+
+        final PK inventoryBlockPk = PK.fromLong(pk);
+        final InventoryBlockModel inventoryBlock = new InventoryBlockModel(){
+
+            @Override
+            public PK getPk(){
+
+                return inventoryBlockPk;
+            }
+        };
+        inventoryBlock.setCode(code);
+        inventoryBlock.setReserved(RESERVED);
+        reservationDao.reserve(inventoryBlock, RESERVED);
+        inventoryBlocks.add(inventoryBlock);
+        return inventoryBlock;
+    }
+
+    private OrderEntryModel orderEntry(final InventoryBlockModel inventoryBlock, final int entryNumber){
+
+        final OrderEntryModel orderEntry = new OrderEntryModel();
+        orderEntry.setEntryNumber(entryNumber);
+        orderEntry.setOrder(order);
+        orderEntry.setInventoryBlock(inventoryBlock.getCode());
+        return orderEntry;
+    }
+
+    private DefaultRcclStockService createStockService(){
+
+        final Map<String, InventoryBlockModel> inventoryBlocksByCode =
+                        inventoryBlocks.stream().collect(Collectors.toMap(InventoryBlockModel::getCode, Function.identity()));
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setFlexibleSearchService(fake(FlexibleSearchService.class, (name, args) -> {
+            final Collection<?> codes = (Collection<?>) ((FlexibleSearchQuery) args[0]).getQueryParameters().get("values");
+            final List<InventoryBlockModel> result = codes.stream().map(inventoryBlocksByCode::get).filter(block -> block != null)
+                            .collect(Collectors.toList());
+            return new SearchResultImpl<>(result, result.size(), -1, 0);
+        }));
+        service.setInventoryReservationDao(reservationDao);
+        service.setModelService(fake(ModelService.class, (name, args) -> {
+            if ("refresh".equals(name)) {
+                final InventoryBlockModel inventoryBlock = (InventoryBlockModel) args[0];
+                inventoryBlock.setReserved(reservationDao.getReserved(inventoryBlock));
+            }
+            return null;
+        }));
+        return service;
+    }
+
+    /**
+     * the reserved quantity per inventory block, each release is applied to it with one atomic update like the
+     * conditional update of {@code DefaultRcclInventoryReservationDao}
+     */
+    private static class StandInReservationDao implements RcclInventoryReservationDao{
+
+        private final Map<PK, Integer> reserved = new ConcurrentHashMap<>();
+        private final Map<PK, List<Integer>> releases = new ConcurrentHashMap<>();
+        private final Map<String, Long> appliedJournalSequences = new ConcurrentHashMap<>();
+        private volatile PK failingPk;
+
+        @Override
+        public boolean release(final InventoryBlockModel inventoryBlock, final int qtyToBeReleased){
+
+            if (inventoryBlock.getPk().equals(failingPk)) {
+                throw new IllegalStateException("Database is gone");
+            }
+            return reserved.computeIfPresent(inventoryBlock.getPk(), (pk, current) -> {
+                releases.computeIfAbsent(pk, key -> Collections.synchronizedList(new ArrayList<>())).add(qtyToBeReleased);
+                return current >= qtyToBeReleased ? current - qtyToBeReleased : qtyToBeReleased;
+            }) != null;
+        }
+
+        @Override
+        public boolean release(final InventoryBlockModel inventoryBlock, final List<Integer> quantities){
+
+            boolean released = true;
+            for (final Integer qtyToBeReleased : quantities) {
+                released &= release(inventoryBlock, qtyToBeReleased);
+            }
+            return released;
+        }
+
+        /**
+         * skips the quantities up to the journal sequence applied before and records the last one, under the lock of
+         * the row as the transaction of the DAO does
+         */
+        @Override
+        public synchronized boolean release(final InventoryBlockModel inventoryBlock, final String journalId,
+                        final NavigableMap<Long, Integer> quantities){
+
+            final String key = journalId + '|' + inventoryBlock.getPk();
+            final long appliedSequence = appliedJournalSequences.getOrDefault(key, 0L);
+            final List<Integer> unapplied = new ArrayList<>(quantities.tailMap(appliedSequence, false).values());
+            if (unapplied.isEmpty()) {
+                return true;
+            }
+            if (!release(inventoryBlock, unapplied)) {
+                return false;
+            }
+            appliedJournalSequences.put(key, quantities.lastKey());
+            return true;
+        }
+
+        void failOn(final InventoryBlockModel inventoryBlock){
+
+            failingPk = inventoryBlock != null ? inventoryBlock.getPk() : null;
+        }
+
+        void reserve(final InventoryBlockModel inventoryBlock, final int quantity){
+
+            reserved.put(inventoryBlock.getPk(), quantity);
+        }
+
+        int getReserved(final InventoryBlockModel inventoryBlock){
+
+            return reserved.get(inventoryBlock.getPk());
+        }
+
+        List<Integer> getReleases(final InventoryBlockModel inventoryBlock){
+
+            return releases.get(inventoryBlock.getPk());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.rccl.core.product.service.impl;
+
+import com.rccl.core.stock.availability.AvailabilityIndex;
+import com.rccl.core.stock.warmup.WarmStartSnapshot;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * unit test for the warm start snapshots of {@link DefaultRcclStockService}
+ */
+public class DefaultRcclStockServiceWarmStartTest extends TestCase{
+
+    private static final long SNAPSHOT_MILLIS = 20L;
+    private static final long MAX_AGE_MILLIS = 60000L;
+
+    private Path directory;
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        directory = Files.createTempDirectory("warm-start");
+        file = directory.resolve("stock.snapshot");
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    public void testWritesSnapshotsPeriodicallyUntilSaved() throws Exception{
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        final DefaultRcclStockService service = createStockService(index);
+        service.loadWarmStartSnapshot();
+        try {
+            index.put("B1", 7L, (byte) 0, true, 40L);
+            awaitSnapshotOf("B1", 7L);
+        } finally {
+            service.saveWarmStartSnapshot();
+        }
+
+        assertTrue(Files.exists(file));
+        Files.delete(file);
+        Thread.sleep(10 * SNAPSHOT_MILLIS);
+        assertFalse("snapshots are written after the service was stopped", Files.exists(file));
+    }
+
+    public void testOnlySavesOnShutdownWithoutInterval() throws Exception{
+
+        final DefaultRcclStockService service = createStockService(new AvailabilityIndex(100, MAX_AGE_MILLIS));
+        service.setWarmStartSnapshotMillis(0L);
+        service.loadWarmStartSnapshot();
+        Thread.sleep(10 * SNAPSHOT_MILLIS);
+        assertFalse(Files.exists(file));
+
+        service.saveWarmStartSnapshot();
+        assertTrue(Files.exists(file));
+    }
+
+    private void awaitSnapshotOf(final String code, final long version) throws InterruptedException{
+
+        final long deadline = System.currentTimeMillis() + 5000L;
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        while (System.currentTimeMillis() < deadline) {
+            if (Files.exists(file)) {
+                final AvailabilityIndex restored = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+                try {
+                    WarmStartSnapshot.read(file, restored);
+                    if (restored.get(code, version, availability)) {
+                        return;
+                    }
+                } catch (final IOException e) {
+                    // replaced while reading, retried
+                }
+            }
+            Thread.sleep(SNAPSHOT_MILLIS);
+        }
+        fail("no periodic snapshot was written");
+    }
+
+    private DefaultRcclStockService createStockService(final AvailabilityIndex index){
+
+        final DefaultRcclStockService service = new DefaultRcclStockService();
+        service.setAvailabilityIndex(index);
+        service.setWarmStartSnapshotFile(file.toString());
+        service.setWarmStartSnapshotMillis(SNAPSHOT_MILLIS);
+        return service;
+    }
+}
@@ -0,0 +1,64 @@
+package com.rccl.core.product.service.impl;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+
+/**
+ * fakes of the interfaces {@link DefaultRcclStockService} depends on, for the unit tests which run without a hybris
+ * tenant
+ */
+final class Fakes{
+
+    private Fakes(){
+
+        // static helpers only
+    }
+
+    /**
+     * creates a fake of the interface which answers every call through answers, primitive results default to zero.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T fake(final Class<T> type, final BiFunction<String, Object[], Object> answers){
+
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            final Object answer = answers.apply(method.getName(), args == null ? new Object[0] : args);
+            return answer == null ? defaultValue(method.getReturnType()) : answer;
+        });
+    }
+
+    private static Object objectMethod(final Object proxy, final Method method, final Object[] args){
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getInterfaces()[0].getSimpleName() + "Fake";
+        }
+    }
+
+    private static Object defaultValue(final Class<?> returnType){
+
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        final Map<Class<?>, Object> defaults = new HashMap<>();
+        defaults.put(boolean.class, Boolean.FALSE);
+        defaults.put(int.class, 0);
+        defaults.put(long.class, 0L);
+        defaults.put(double.class, 0d);
+        defaults.put(float.class, 0f);
+        defaults.put(short.class, (short) 0);
+        defaults.put(byte.class, (byte) 0);
+        defaults.put(char.class, '\0');
+        return defaults.get(returnType);
+    }
+}
@@ -0,0 +1,109 @@
+package com.rccl.core.stock.cache;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * unit test for {@link DefaultStockLookupCache}
+ */
+public class DefaultStockLookupCacheTest extends TestCase{
+
+    private final DefaultStockLookupCache cache = new DefaultStockLookupCache(100L, 3600L);
+
+    public void testCachesValuesAndMisses(){
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get("region", "a", () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get("region", "a", () -> "v" + loads.incrementAndGet()));
+        assertNull(cache.get("region", "b", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("region", "b", () -> "v" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    public void testLoadRacingAnInvalidationOfItsKeyIsNotKept() throws Exception{
+
+        assertEquals("stale", loadWhile("a", cache -> cache.invalidate("region", "a")));
+        assertEquals("fresh", cache.get("region", "a", () -> "fresh"));
+    }
+
+    public void testLoadRacingAnInvalidationOfAnotherKeyIsKept() throws Exception{
+
+        assertEquals("stale", loadWhile("a", cache -> cache.invalidate("region", "b")));
+        assertEquals("stale", cache.get("region", "a", () -> "fresh"));
+    }
+
+    public void testLoadRacingAnInvalidationOfItsPrefixIsNotKept() throws Exception{
+
+        assertEquals("stale", loadWhile("a|1", cache -> cache.invalidatePrefix("region", "a|")));
+        assertEquals("fresh", cache.get("region", "a|1", () -> "fresh"));
+
+        assertEquals("stale", loadWhile("b|1", cache -> cache.invalidatePrefix("region", "a|")));
+        assertEquals("stale", cache.get("region", "b|1", () -> "fresh"));
+    }
+
+    public void testLoadRacingAnInvalidationOfItsRegionOrAllIsNotKept() throws Exception{
+
+        assertEquals("stale", loadWhile("a", cache -> cache.invalidateRegion("region")));
+        assertEquals("fresh", cache.get("region", "a", () -> "fresh"));
+
+        assertEquals("stale", loadWhile("b", cache -> cache.invalidateRegion("other")));
+        assertEquals("stale", cache.get("region", "b", () -> "fresh"));
+
+        assertEquals("stale", loadWhile("c", DefaultStockLookupCache::invalidateAll));
+        assertEquals("fresh", cache.get("region", "c", () -> "fresh"));
+    }
+
+    public void testInvalidationsAreCountedAsEvictions(){
+
+        cache.get("region", "a", () -> "a");
+        cache.get("region", "b", () -> "b");
+        cache.get("other", "c", () -> "c");
+
+        cache.invalidate("region", "a");
+        cache.invalidate("region", "unknown");
+        cache.invalidateRegion("other");
+
+        assertEquals(2L, cache.getEvictionCount());
+        assertEquals(1, cache.keys("region").size());
+        assertTrue(cache.keys("region").contains("b"));
+    }
+
+    /**
+     * loads "stale" for the key of "region" while the invalidation runs on the calling thread
+     */
+    private String loadWhile(final String key, final Consumer<DefaultStockLookupCache> invalidation) throws Exception{
+
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> load = executor.submit(() -> cache.<String>get("region", key, () -> {
+                loading.countDown();
+                try {
+                    invalidated.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "stale";
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            invalidation.accept(cache);
+            invalidated.countDown();
+            return load.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.rccl.core.stock.audit;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/**
+ * unit test for {@link ReleaseAuditLog}
+ */
+public class ReleaseAuditLogTest extends TestCase{
+
+    private Path directory;
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        directory = Files.createTempDirectory("release-audit");
+        file = directory.resolve("audit.log");
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (final Path path : files) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    public void testWritesEventsAsJsonLinesOnClose() throws IOException{
+
+        final ReleaseAuditLog auditLog = new ReleaseAuditLog(file, 16, 4, 1024 * 1024, 2);
+        assertTrue(auditLog.record(0L, "B1", "O1", 2, 3, "CUSTOMER", "said \"no\"\n", ReleaseAuditLog.Outcome.RELEASED));
+        assertTrue(auditLog.record(1000L, "B2", null, -1, 1, null, null, ReleaseAuditLog.Outcome.JOURNALED));
+        auditLog.close();
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("{\"time\":\"1970-01-01T00:00:00Z\",\"outcome\":\"RELEASED\",\"inventoryBlock\":\"B1\",\"quantity\":3,"
+                        + "\"order\":\"O1\",\"entry\":2,\"reason\":\"CUSTOMER\",\"notes\":\"said \\\"no\\\"\\u000a\"}", lines.get(0));
+        assertEquals("{\"time\":\"1970-01-01T00:00:01Z\",\"outcome\":\"JOURNALED\",\"inventoryBlock\":\"B2\",\"quantity\":1}",
+                        lines.get(1));
+        assertEquals(2L, auditLog.getWrittenCount());
+        assertEquals(0L, auditLog.getDroppedCount());
+    }
+
+    public void testAppendsToAnExistingFile() throws IOException{
+
+        Files.write(file, "{}\n".getBytes(StandardCharsets.UTF_8));
+        final ReleaseAuditLog auditLog = new ReleaseAuditLog(file, 16, 4, 1024 * 1024, 2);
+        auditLog.record(0L, "B1", null, -1, 1, null, null, ReleaseAuditLog.Outcome.FAILED);
+        auditLog.close();
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("{}", lines.get(0));
+    }
+
+    public void testRollsOverAndKeepsMaxFiles() throws IOException{
+
+        final ReleaseAuditLog auditLog = new ReleaseAuditLog(file, 1024, 1, 100, 2);
+        for (int i = 0; i < 20; i++) {
+            auditLog.record(i, "B" + i, null, -1, 1, null, null, ReleaseAuditLog.Outcome.RELEASED);
+        }
+        auditLog.close();
+
+        assertTrue(Files.size(file) <= 100);
+        assertTrue(Files.exists(directory.resolve("audit.log.1")));
+        assertTrue(Files.exists(directory.resolve("audit.log.2")));
+        assertFalse(Files.exists(directory.resolve("audit.log.3")));
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.get(lines.size() - 1).contains("\"inventoryBlock\":\"B19\""));
+    }
+
+    public void testKeepsWritingWhenRollingOverFails() throws IOException{
+
+        // a non empty directory in place of the first rolled file can't be replaced
+        final Path blocked = Files.createDirectory(directory.resolve("audit.log.1"));
+        Files.createFile(blocked.resolve("keep"));
+        final ReleaseAuditLog auditLog = new ReleaseAuditLog(file, 1024, 1, 100, 1);
+        try {
+            for (int i = 0; i < 20; i++) {
+                auditLog.record(i, "B" + i, null, -1, 1, null, null, ReleaseAuditLog.Outcome.RELEASED);
+            }
+        } finally {
+            auditLog.close();
+            Files.delete(blocked.resolve("keep"));
+        }
+
+        assertEquals(20L, auditLog.getWrittenCount());
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(20, lines.size());
+        assertTrue(lines.get(19).contains("\"inventoryBlock\":\"B19\""));
+    }
+
+    public void testAccountsForEveryRecordedEvent() throws IOException{
+
+        final ReleaseAuditLog auditLog = new ReleaseAuditLog(file, 2, 1, 1024 * 1024, 0);
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (auditLog.record(i, "B", null, -1, 1, null, null, ReleaseAuditLog.Outcome.RELEASED)) {
+                accepted++;
+            }
+        }
+        auditLog.close();
+
+        assertEquals(accepted, auditLog.getWrittenCount());
+        assertEquals(10000L - accepted, auditLog.getDroppedCount());
+        assertEquals(accepted, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.rccl.core.stock.availability;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * unit test for {@link AvailabilityIndex}
+ */
+public class AvailabilityIndexTest extends TestCase{
+
+    private static final long MAX_AGE_MILLIS = 60000L;
+
+    public void testHitsOnlyTheIndexedVersion(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        index.put("B1", 7L, (byte) 2, true, 40L);
+
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertTrue(index.get("B1", 7L, availability));
+        assertEquals(2, availability.getStatus());
+        assertTrue(availability.hasAvailableQty());
+        assertEquals(40L, availability.getAvailableQty());
+        assertFalse(index.get("B1", 8L, availability));
+        assertFalse(index.get("B2", 7L, availability));
+    }
+
+    public void testReplacesTheEntryOfACode(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        index.put("B1", 7L, (byte) 2, true, 40L);
+        index.put("B1", 8L, AvailabilityIndex.NO_STATUS, false, 0L);
+
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertEquals(1, index.size());
+        assertFalse(index.get("B1", 7L, availability));
+        assertTrue(index.get("B1", 8L, availability));
+        assertEquals(AvailabilityIndex.NO_STATUS, availability.getStatus());
+        assertFalse(availability.hasAvailableQty());
+    }
+
+    public void testMissesInvalidatedAndExpiredEntries(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        index.put("B1", 7L, (byte) 2, true, 40L);
+        index.invalidate("B1");
+        index.invalidate("unknown");
+        assertFalse(index.get("B1", 7L, new AvailabilityIndex.Availability()));
+
+        final AvailabilityIndex expiring = new AvailabilityIndex(100, -1L);
+        expiring.put("B1", 7L, (byte) 2, true, 40L);
+        assertFalse(expiring.get("B1", 7L, new AvailabilityIndex.Availability()));
+    }
+
+    public void testEntriesExpireFromTheirUpdateTime(){
+
+        final long now = System.currentTimeMillis();
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        index.put("B1", 7L, (byte) 2, true, 40L, now - MAX_AGE_MILLIS - 1000L);
+        index.put("B2", 7L, (byte) 2, true, 40L, now - 1000L);
+
+        final List<Long> updatedAts = new ArrayList<>();
+        index.forEach((code, version, status, hasAvailableQty, availableQty, updatedAt) -> updatedAts.add(updatedAt));
+        assertTrue(updatedAts.contains(now - 1000L));
+        assertFalse(index.get("B1", 7L, new AvailabilityIndex.Availability()));
+        assertTrue(index.get("B2", 7L, new AvailabilityIndex.Availability()));
+    }
+
+    public void testKeepsEntriesWhileGrowing(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(10000, MAX_AGE_MILLIS);
+        for (int i = 0; i < 5000; i++) {
+            index.put("B" + i, i, (byte) 0, true, i * 2L);
+        }
+        assertEquals(5000, index.size());
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        for (int i = 0; i < 5000; i++) {
+            assertTrue("B" + i, index.get("B" + i, i, availability));
+            assertEquals(i * 2L, availability.getAvailableQty());
+        }
+    }
+
+    public void testStartsOverBeyondMaxEntries(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(2, MAX_AGE_MILLIS);
+        index.put("B1", 1L, (byte) 0, true, 1L);
+        index.put("B2", 1L, (byte) 0, true, 1L);
+        index.put("B3", 1L, (byte) 0, true, 1L);
+
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertEquals(1, index.size());
+        assertFalse(index.get("B1", 1L, availability));
+        assertTrue(index.get("B3", 1L, availability));
+    }
+
+    public void testVisitsCurrentEntriesOnly(){
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, MAX_AGE_MILLIS);
+        index.put("B1", 1L, (byte) 0, true, 1L);
+        index.put("B2", 2L, (byte) 1, false, 0L);
+        index.invalidate("B1");
+
+        final List<String> visited = new ArrayList<>();
+        index.forEach((code, version, status, hasAvailableQty, availableQty, updatedAt) -> visited.add(
+                        code + ':' + version + ':' + status));
+        assertEquals(Collections.singletonList("B2:2:1"), visited);
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.get("B2", 2L, new AvailabilityIndex.Availability()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.rccl.core.stock.cache;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * unit test for {@link SingleFlightMemo}
+ */
+public class SingleFlightMemoTest extends TestCase{
+
+    public void testMemoizesPerKey(){
+
+        final SingleFlightMemo<String> memo = new SingleFlightMemo<>(1L);
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a1", memo.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("a1", memo.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("b2", memo.get("b", () -> "b" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    public void testCoalescesConcurrentLoads() throws Exception{
+
+        final SingleFlightMemo<Integer> memo = new SingleFlightMemo<>(1L);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<Integer> first = executor.submit(() -> memo.get("key", () -> {
+                loading.countDown();
+                await(release);
+                return loads.incrementAndGet();
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            final List<Future<Integer>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(executor.submit(() -> memo.get("key", loads::incrementAndGet)));
+            }
+            release.countDown();
+
+            assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+            for (final Future<Integer> other : others) {
+                assertEquals(Integer.valueOf(1), other.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testDoesNotMemoizeFailures(){
+
+        final SingleFlightMemo<String> memo = new SingleFlightMemo<>(1L);
+        try {
+            memo.get("key", () -> {
+                throw new IllegalArgumentException("failed");
+            });
+            fail("failure was not passed on");
+        } catch (final IllegalArgumentException expected) {
+            assertEquals("failed", expected.getMessage());
+        }
+        assertEquals("loaded", memo.get("key", () -> "loaded"));
+    }
+
+    public void testIsValidForItsGenerationAndAgeOnly(){
+
+        final SingleFlightMemo<String> memo = new SingleFlightMemo<>(3L);
+        assertEquals(3L, memo.getGeneration());
+        assertTrue(memo.isValid(3L, 60000L));
+        assertFalse(memo.isValid(4L, 60000L));
+        assertFalse(memo.isValid(3L, -1L));
+    }
+
+    private static void await(final CountDownLatch latch){
+
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
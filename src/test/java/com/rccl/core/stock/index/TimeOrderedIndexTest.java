@@ -0,0 +1,66 @@
+package com.rccl.core.stock.index;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * unit test for {@link TimeOrderedIndex}
+ */
+public class TimeOrderedIndexTest extends TestCase{
+
+    private TimeOrderedIndex<String> index;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        final Map<String, Date> times = new LinkedHashMap<>();
+        times.put("late", new Date(300L));
+        times.put("early", new Date(100L));
+        times.put("untimed", null);
+        times.put("middle", new Date(200L));
+        times.put("middle2", new Date(200L));
+        index = new TimeOrderedIndex<>(times.keySet(), times::get);
+    }
+
+    public void testOrdersTimedValuesOnly(){
+
+        assertEquals(Arrays.asList("early", "middle", "middle2", "late"), index.values());
+    }
+
+    public void testRangeIncludesTheStartAndExcludesTheEnd(){
+
+        assertEquals(Arrays.asList("early", "middle", "middle2"), index.between(new Date(100L), new Date(300L)));
+        assertEquals(Arrays.asList("middle", "middle2", "late"), index.between(new Date(101L), new Date(301L)));
+        assertEquals(Collections.emptyList(), index.between(new Date(301L), new Date(400L)));
+        assertEquals(Collections.emptyList(), index.between(new Date(300L), new Date(100L)));
+    }
+
+    public void testFindsValuesAtATime(){
+
+        assertEquals(Arrays.asList("middle", "middle2"), index.at(new Date(200L)));
+        assertEquals(Collections.emptyList(), index.at(new Date(150L)));
+    }
+
+    public void testFindsTheNearestValue(){
+
+        assertEquals("early", index.nearest(new Date(0L)));
+        assertEquals("early", index.nearest(new Date(149L)));
+        assertEquals("early", index.nearest(new Date(150L)));
+        assertEquals("middle", index.nearest(new Date(151L)));
+        assertEquals("middle2", index.nearest(new Date(250L)));
+        assertEquals("late", index.nearest(new Date(1000L)));
+    }
+
+    public void testEmptyIndex(){
+
+        final TimeOrderedIndex<String> empty = new TimeOrderedIndex<>(Collections.<String>emptyList(), value -> new Date(0L));
+        assertNull(empty.nearest(new Date(0L)));
+        assertEquals(Collections.emptyList(), empty.between(new Date(0L), new Date(10L)));
+    }
+}
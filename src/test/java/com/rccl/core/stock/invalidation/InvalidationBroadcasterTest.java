@@ -0,0 +1,127 @@
+package com.rccl.core.stock.invalidation;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * coherence test for {@link InvalidationBroadcaster} over a {@link LoopbackInvalidationTransport}
+ */
+public class InvalidationBroadcasterTest extends TestCase{
+
+    private static final long BATCH_MILLIS = 60000L;
+
+    private LoopbackInvalidationTransport transport;
+    private List<InvalidationBroadcaster> broadcasters;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        transport = new LoopbackInvalidationTransport();
+        broadcasters = new ArrayList<>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        broadcasters.forEach(InvalidationBroadcaster::close);
+        transport.close();
+    }
+
+    public void testOtherNodesApplyPublishedInvalidations(){
+
+        final InvalidationBroadcaster first = createBroadcaster("first");
+        final List<String> firstReceived = listen(first);
+        final List<String> secondReceived = listen(createBroadcaster("second"));
+        final List<String> thirdReceived = listen(createBroadcaster("third"));
+
+        first.publish("availability", "B1");
+        first.publish("offerings", null);
+        first.flush();
+
+        assertEquals(Collections.emptyList(), firstReceived);
+        assertEquals(Arrays.asList("availability B1", "offerings *"), secondReceived);
+        assertEquals(Arrays.asList("availability B1", "offerings *"), thirdReceived);
+        assertEquals(2L, first.getPublishedCount());
+        assertEquals(2L, first.getDroppedCount());
+    }
+
+    public void testRepeatedInvalidationsWithinABatchAreSentOnce(){
+
+        final InvalidationBroadcaster first = createBroadcaster("first");
+        final List<String> received = listen(createBroadcaster("second"));
+
+        first.publish("availability", "B1");
+        first.publish("availability", "B1");
+        first.flush();
+
+        assertEquals(Collections.singletonList("availability B1"), received);
+    }
+
+    public void testDropsRedeliveredAndOvertakenMessages(){
+
+        final InvalidationBroadcaster second = createBroadcaster("second");
+        final List<String> received = listen(second);
+        final long epoch = 42L;
+
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", epoch, 2L, "availability", "B1")));
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", epoch, 2L, "availability", "B1")));
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", epoch, 1L, "availability", "B1")));
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", epoch, 3L, "availability", "B1")));
+
+        assertEquals(Arrays.asList("availability B1", "availability B1"), received);
+        assertEquals(2L, second.getAppliedCount());
+        assertEquals(2L, second.getDroppedCount());
+    }
+
+    public void testAppliesInvalidationsOfARestartedNode(){
+
+        final InvalidationBroadcaster beforeRestart = createBroadcaster("first");
+        final InvalidationBroadcaster second = createBroadcaster("second");
+        final List<String> received = listen(second);
+        for (int i = 0; i < 5; i++) {
+            beforeRestart.publish("availability", "B" + i);
+        }
+        beforeRestart.publish("availability", "B1");
+        beforeRestart.flush();
+        beforeRestart.close();
+
+        final InvalidationBroadcaster afterRestart = createBroadcaster("first");
+        assertFalse(beforeRestart.getEpoch() == afterRestart.getEpoch());
+        afterRestart.publish("availability", "B1");
+        afterRestart.flush();
+
+        assertEquals(6, received.size());
+        assertEquals("availability B1", received.get(received.size() - 1));
+        assertEquals(6L, second.getAppliedCount());
+    }
+
+    public void testDropsOwnMessagesOfTheCurrentEpochOnly(){
+
+        final InvalidationBroadcaster first = createBroadcaster("first");
+        final List<String> received = listen(first);
+
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", first.getEpoch(), 1L, "availability", "B1")));
+        transport.publish(Collections.singletonList(new InvalidationMessage("first", first.getEpoch() + 1, 1L, "availability", "B2")));
+
+        assertEquals(Collections.singletonList("availability B2"), received);
+    }
+
+    private InvalidationBroadcaster createBroadcaster(final String nodeId){
+
+        final InvalidationBroadcaster broadcaster = new InvalidationBroadcaster(nodeId, transport, BATCH_MILLIS, 100, 1000);
+        broadcasters.add(broadcaster);
+        return broadcaster;
+    }
+
+    private static List<String> listen(final InvalidationBroadcaster broadcaster){
+
+        final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        broadcaster.addListener((region, key) -> received.add(region + ' ' + (key != null ? key : "*")));
+        return received;
+    }
+}
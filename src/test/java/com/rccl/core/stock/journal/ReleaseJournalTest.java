@@ -0,0 +1,200 @@
+package com.rccl.core.stock.journal;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * unit test for {@link ReleaseJournal}
+ */
+public class ReleaseJournalTest extends TestCase{
+
+    private static final int CAPACITY = 64 * 1024;
+    private static final int HEADER_SIZE = 32;
+
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        file = Files.createTempFile("release-journal", ".journal");
+        Files.delete(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        Files.deleteIfExists(file);
+    }
+
+    public void testAppendedDeltasArePendingInAppendOrder() throws IOException{
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            final Map<String, List<Integer>> deltas = new LinkedHashMap<>();
+            deltas.put("B1", Arrays.asList(2, 1));
+            deltas.put("B2", Collections.singletonList(3));
+            assertEquals(3L, journal.append(deltas));
+            assertEquals(4L, journal.append(Collections.singletonMap("B1", Collections.singletonList(5))));
+
+            final ReleaseJournal.Batch batch = journal.pending();
+            assertEquals(Arrays.asList(2, 1, 5), batch.getQuantities().get("B1"));
+            assertEquals(Collections.singletonList(3), batch.getQuantities().get("B2"));
+            assertEquals(4L, batch.getLastSequence());
+        }
+    }
+
+    public void testCheckpointDropsAppliedDeltasAndStartsOver() throws IOException{
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(2)));
+            final ReleaseJournal.Batch applied = journal.pending();
+            journal.append(Collections.singletonMap("B2", Collections.singletonList(4)));
+
+            journal.checkpoint(applied.getLastSequence());
+            final ReleaseJournal.Batch batch = journal.pending();
+            assertEquals(Collections.singletonMap("B2", Collections.singletonList(4)), batch.getQuantities());
+            assertTrue(journal.getUsedBytes() > 0);
+
+            journal.checkpoint(batch.getLastSequence());
+            assertTrue(journal.pending().isEmpty());
+            assertEquals(0, journal.getUsedBytes());
+        }
+    }
+
+    public void testReplaysDeltasAfterTheCheckpoint() throws IOException{
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(2)));
+            journal.checkpoint(journal.pending().getLastSequence());
+            journal.append(Collections.singletonMap("B2", Arrays.asList(1, 3)));
+        }
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            final ReleaseJournal.Batch batch = journal.pending();
+            assertEquals(Collections.singletonMap("B2", Arrays.asList(1, 3)), batch.getQuantities());
+            assertEquals(3L, batch.getLastSequence());
+            assertEquals(4L, journal.append(Collections.singletonMap("B3", Collections.singletonList(1))));
+        }
+    }
+
+    public void testStopMidFlushReplaysTheSameDeltasUnderTheSameIdAndSequences() throws IOException{
+
+        // the process dies while the batch is applied: neither checkpoint nor close happen
+        final ReleaseJournal crashed = new ReleaseJournal(file, CAPACITY, 0L);
+        final Map<String, List<Integer>> deltas = new LinkedHashMap<>();
+        deltas.put("B1", Arrays.asList(2, 1));
+        deltas.put("B2", Collections.singletonList(3));
+        crashed.append(deltas);
+        final String id = crashed.getId();
+        final ReleaseJournal.Batch applying = crashed.pending();
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            final ReleaseJournal.Batch replayed = journal.pending();
+            assertEquals(id, journal.getId());
+            assertEquals(applying.getQuantitiesBySequence(), replayed.getQuantitiesBySequence());
+            assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(replayed.getQuantitiesBySequence().get("B1").keySet()));
+            assertEquals(Collections.singletonList(3L), new ArrayList<>(replayed.getQuantitiesBySequence().get("B2").keySet()));
+            assertEquals(applying.getLastSequence(), replayed.getLastSequence());
+
+            journal.checkpoint(replayed.getLastSequence());
+            assertEquals(4L, journal.append(Collections.singletonMap("B1", Collections.singletonList(1))));
+        }
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            assertEquals(id, journal.getId());
+            assertEquals(Collections.singletonList(4L),
+                            new ArrayList<>(journal.pending().getQuantitiesBySequence().get("B1").keySet()));
+        }
+    }
+
+    public void testNewJournalFileGetsANewId() throws IOException{
+
+        final String id;
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            id = journal.getId();
+        }
+        Files.delete(file);
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            assertFalse(id.equals(journal.getId()));
+        }
+    }
+
+    public void testJournalOfThePreviousVersionGetsAnId() throws IOException{
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(2)));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // version 1 had no id, its header was zero after the checkpoint
+            channel.write(ByteBuffer.wrap(new byte[]{ 0, 0, 0, 1 }), 4);
+            channel.write(ByteBuffer.wrap(new byte[16]), 16);
+        }
+        final String id;
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            id = journal.getId();
+            assertEquals(Collections.singletonMap("B1", Collections.singletonList(2)), journal.pending().getQuantities());
+        }
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            assertEquals(id, journal.getId());
+        }
+    }
+
+    public void testTornTailEndsTheReplay() throws IOException{
+
+        final int usedBytes;
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(2)));
+            usedBytes = journal.getUsedBytes();
+            journal.append(Collections.singletonMap("B2", Collections.singletonList(7)));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // corrupt the checksum, the last bytes of the second record
+            final int secondRecordEnd = HEADER_SIZE + 2 * usedBytes;
+            channel.write(ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }), secondRecordEnd - 4);
+        }
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            final ReleaseJournal.Batch batch = journal.pending();
+            assertEquals(Collections.singletonMap("B1", Collections.singletonList(2)), batch.getQuantities());
+            assertEquals(usedBytes, journal.getUsedBytes());
+            assertEquals(2L, journal.append(Collections.singletonMap("B3", Collections.singletonList(1))));
+        }
+        try (ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L)) {
+            assertEquals(Arrays.asList("B1", "B3"), Arrays.asList(journal.pending().getQuantities().keySet().toArray()));
+        }
+    }
+
+    public void testRejectsAppendsOnceClosed() throws IOException{
+
+        final ReleaseJournal journal = new ReleaseJournal(file, CAPACITY, 0L);
+        journal.close();
+        try {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(1)));
+            fail("closed journal accepted an append");
+        } catch (final IllegalStateException expected) {
+            assertTrue(journal.pending().isEmpty());
+        }
+    }
+
+    public void testRejectsDeltasBeyondItsCapacity() throws IOException{
+
+        try (ReleaseJournal journal = new ReleaseJournal(file, HEADER_SIZE + 64, 0L)) {
+            journal.append(Collections.singletonMap("B1", Collections.singletonList(1)));
+            try {
+                journal.append(Collections.singletonMap("B2", Arrays.asList(1, 2, 3)));
+                fail("full journal accepted an append");
+            } catch (final IllegalStateException expected) {
+                assertEquals(Collections.singletonMap("B1", Collections.singletonList(1)), journal.pending().getQuantities());
+            }
+        }
+    }
+}
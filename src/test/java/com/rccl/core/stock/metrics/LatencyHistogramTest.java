@@ -0,0 +1,78 @@
+package com.rccl.core.stock.metrics;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+
+/**
+ * unit test for {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest extends TestCase{
+
+    public void testEmptyHistogram(){
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getSum());
+        assertEquals(0L, histogram.getValueAtPercentile(99d));
+        assertTrue(Arrays.equals(new long[]{ 0L, 0L, 0L }, histogram.getCumulativeCounts(new long[]{ 1L, 10L })));
+    }
+
+    public void testCountsAndSumsRecordedValues(){
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3L);
+        histogram.record(1000L);
+        histogram.record(-5L);
+        assertEquals(3L, histogram.getCount());
+        assertEquals(1003L, histogram.getSum());
+    }
+
+    public void testSmallValuesAreExact(){
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 20; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1L, histogram.getValueAtPercentile(0d));
+        assertEquals(10L, histogram.getValueAtPercentile(50d));
+        assertEquals(20L, histogram.getValueAtPercentile(100d));
+    }
+
+    public void testLargeValuesStayWithinTheRelativeError(){
+
+        final long[] values = { 33L, 1000L, 123456L, 987654321L, Long.MAX_VALUE / 3 };
+        for (final long value : values) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            final long reported = histogram.getValueAtPercentile(50d);
+            assertTrue(value + " reported as " + reported, reported >= value);
+            assertTrue(value + " reported as " + reported, reported - value <= value / 32);
+        }
+    }
+
+    public void testPercentilesFollowTheRank(){
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(500L);
+        }
+        assertEquals(1L, histogram.getValueAtPercentile(99d));
+        final long p999 = histogram.getValueAtPercentile(99.9d);
+        assertTrue(String.valueOf(p999), p999 >= 500L && p999 - 500L <= 500L / 32);
+    }
+
+    public void testCumulativeCountsIncludeValuesEqualToABound(){
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (final long value : new long[]{ 0L, 1L, 5L, 50L, 100L, 100L, 5000L, 20000L }) {
+            histogram.record(value);
+        }
+        final long[] counts = histogram.getCumulativeCounts(new long[]{ 0L, 1L, 10L, 100L, 1000L, 10000L });
+        assertTrue(Arrays.toString(counts), Arrays.equals(new long[]{ 1L, 2L, 3L, 6L, 6L, 7L, 8L }, counts));
+    }
+}
@@ -0,0 +1,143 @@
+package com.rccl.core.stock.warmup;
+
+import com.rccl.core.stock.availability.AvailabilityIndex;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * unit test for {@link WarmStartSnapshot}
+ */
+public class WarmStartSnapshotTest extends TestCase{
+
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception{
+
+        file = Files.createTempFile("warm-start", ".snapshot");
+    }
+
+    @Override
+    protected void tearDown() throws Exception{
+
+        Files.deleteIfExists(file);
+    }
+
+    public void testRoundTripsAvailabilityAndKeys() throws IOException{
+
+        final AvailabilityIndex index = new AvailabilityIndex(100, 60000L);
+        index.put("B1", 7L, (byte) 2, true, 40L);
+        index.put("B\u00fc", 8L, AvailabilityIndex.NO_STATUS, false, 0L);
+        index.put("B3", 9L, (byte) 1, true, 1L);
+        index.invalidate("B3");
+        final Map<String, Set<String>> keys = new LinkedHashMap<>();
+        keys.put("stockLevelByItemCode", new TreeSet<>(Arrays.asList("I1", "I2")));
+        keys.put("empty", Collections.<String>emptySet());
+        final long before = System.currentTimeMillis();
+        WarmStartSnapshot.write(file, index, keys);
+
+        final AvailabilityIndex restored = new AvailabilityIndex(100, 60000L);
+        final WarmStartSnapshot snapshot = WarmStartSnapshot.read(file, restored);
+        assertEquals(2, snapshot.getAvailabilityEntries());
+        assertTrue(snapshot.getCreatedAt() >= before);
+        assertEquals(Arrays.asList("I1", "I2"), snapshot.getKeys("stockLevelByItemCode"));
+        assertEquals(Collections.emptyList(), snapshot.getKeys("empty"));
+        assertEquals(Collections.emptyList(), snapshot.getKeys("unknown"));
+
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertTrue(restored.get("B1", 7L, availability));
+        assertEquals(2, availability.getStatus());
+        assertEquals(40L, availability.getAvailableQty());
+        assertTrue(restored.get("B\u00fc", 8L, availability));
+        assertFalse(availability.hasAvailableQty());
+        assertFalse(restored.get("B3", 9L, availability));
+    }
+
+    public void testRestoredEntriesKeepTheirAge() throws IOException{
+
+        final long now = System.currentTimeMillis();
+        final AvailabilityIndex index = new AvailabilityIndex(100, 60000L);
+        index.put("OLD", 1L, (byte) 0, true, 5L, now - 50000L);
+        index.put("NEW", 2L, (byte) 0, true, 6L, now);
+        WarmStartSnapshot.write(file, index, Collections.<String, Set<String>>emptyMap());
+
+        final AvailabilityIndex restored = new AvailabilityIndex(100, 30000L);
+        WarmStartSnapshot.read(file, restored);
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertFalse(restored.get("OLD", 1L, availability));
+        assertTrue(restored.get("NEW", 2L, availability));
+        assertEquals(6L, availability.getAvailableQty());
+    }
+
+    public void testEntriesOfAVersionOneSnapshotAreDatedAtItsCreation() throws IOException{
+
+        final long createdAt = System.currentTimeMillis() - 50000L;
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(content);
+        out.writeInt(0x52435753);
+        out.writeInt(1);
+        out.writeLong(createdAt);
+        out.writeInt(1);
+        out.writeInt(2);
+        out.writeBytes("B1");
+        out.writeLong(7L);
+        out.writeByte(0);
+        out.writeBoolean(true);
+        out.writeLong(40L);
+        out.writeInt(0);
+        out.flush();
+        Files.write(file, content.toByteArray());
+
+        final AvailabilityIndex recent = new AvailabilityIndex(100, 30000L);
+        final AvailabilityIndex lenient = new AvailabilityIndex(100, 60000L);
+        assertEquals(createdAt, WarmStartSnapshot.read(file, recent).getCreatedAt());
+        WarmStartSnapshot.read(file, lenient);
+        final AvailabilityIndex.Availability availability = new AvailabilityIndex.Availability();
+        assertFalse(recent.get("B1", 7L, availability));
+        assertTrue(lenient.get("B1", 7L, availability));
+        assertEquals(40L, availability.getAvailableQty());
+    }
+
+    public void testReplacesAnExistingSnapshot() throws IOException{
+
+        WarmStartSnapshot.write(file, null, Collections.singletonMap("keys", Collections.singletonList("old")));
+        WarmStartSnapshot.write(file, null, Collections.singletonMap("keys", Collections.singletonList("new")));
+
+        final WarmStartSnapshot snapshot = WarmStartSnapshot.read(file, null);
+        assertEquals(0, snapshot.getAvailabilityEntries());
+        assertEquals(Collections.singletonList("new"), snapshot.getKeys("keys"));
+    }
+
+    public void testRejectsForeignAndTruncatedFiles() throws IOException{
+
+        Files.write(file, new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertUnreadable();
+
+        WarmStartSnapshot.write(file, null, Collections.singletonMap("keys", Arrays.asList("a", "b")));
+        final byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+        assertUnreadable();
+    }
+
+    private void assertUnreadable(){
+
+        try {
+            WarmStartSnapshot.read(file, null);
+            fail("unreadable snapshot was read");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+}